@@ -0,0 +1,11 @@
+package com.nickmacinnis.dags.benchmarks;
+
+import com.nickmacinnis.dags.DirectEdge;
+
+public class BenchDirectEdge extends DirectEdge<BenchNode, BenchEdge> implements BenchEdge {
+
+    public BenchDirectEdge(BenchNode startNode, BenchNode endNode) {
+        super(startNode, endNode);
+    }
+
+}
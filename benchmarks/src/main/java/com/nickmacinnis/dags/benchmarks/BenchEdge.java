@@ -0,0 +1,7 @@
+package com.nickmacinnis.dags.benchmarks;
+
+import com.nickmacinnis.dags.Edge;
+
+public interface BenchEdge extends Edge<BenchNode, BenchEdge> {
+
+}
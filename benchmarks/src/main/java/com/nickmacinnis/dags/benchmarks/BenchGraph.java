@@ -0,0 +1,43 @@
+package com.nickmacinnis.dags.benchmarks;
+
+import com.nickmacinnis.dags.Closure;
+import com.nickmacinnis.dags.DirectedAcyclicGraph;
+
+public class BenchGraph extends DirectedAcyclicGraph<BenchNode, BenchEdge> {
+    /** The closure the nodes of the copy under way join, so that copies never pile up in this graph's. */
+    private Closure<BenchNode, BenchEdge> copyClosure;
+
+    public BenchGraph(BenchNode rootNode) {
+        super(rootNode);
+    }
+
+    public BenchNode getRootNode() {
+        return rootNode;
+    }
+
+    /** Exposed so that it can be measured on its own. */
+    @Override
+    public void untangle() {
+        super.untangle();
+    }
+
+    /** Copies into a new closure of the same kind as the root's, dropped along with the copy. */
+    @Override
+    public DirectedAcyclicGraph<BenchNode, BenchEdge> copy() {
+        copyClosure = ClosureKind.of(rootNode.getClosure()).create();
+        try {
+            return super.copy();
+        } finally {
+            copyClosure = null;
+        }
+    }
+
+    Closure<BenchNode, BenchEdge> getCopyClosure() {
+        return copyClosure;
+    }
+
+    @Override
+    protected DirectedAcyclicGraph<BenchNode, BenchEdge> constructThis() {
+        return new BenchGraph(rootNode.copy());
+    }
+}
@@ -0,0 +1,12 @@
+package com.nickmacinnis.dags.benchmarks;
+
+import com.nickmacinnis.dags.ImplicitEdge;
+
+public class BenchImplicitEdge extends ImplicitEdge<BenchNode, BenchEdge> implements BenchEdge {
+
+    public BenchImplicitEdge(BenchNode startNode, BenchNode endNode, BenchEdge entryEdge, BenchEdge directEdge,
+            BenchEdge exitEdge, int hops) {
+        super(startNode, endNode, entryEdge, directEdge, exitEdge, hops);
+    }
+
+}
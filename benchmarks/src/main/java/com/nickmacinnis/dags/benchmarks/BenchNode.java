@@ -0,0 +1,31 @@
+package com.nickmacinnis.dags.benchmarks;
+
+import com.nickmacinnis.dags.AbstractNode;
+import com.nickmacinnis.dags.Closure;
+
+public class BenchNode extends AbstractNode<BenchNode, BenchEdge> {
+
+    public BenchNode(Closure<BenchNode, BenchEdge> closure) {
+        super(closure);
+    }
+
+    @Override
+    protected BenchEdge buildDirectEdge(BenchNode startNode, BenchNode endNode) {
+        return new BenchDirectEdge(startNode, endNode);
+    }
+
+    @Override
+    protected BenchEdge buildImplicitEdge(BenchNode startNode, BenchNode endNode, BenchEdge entryEdge,
+            BenchEdge directEdge, BenchEdge exitEdge, int hops) {
+        return new BenchImplicitEdge(startNode, endNode, entryEdge, directEdge, exitEdge, hops);
+    }
+
+    /** @return a node in the closure of the copy its graph is making, or in this node's outside a copy */
+    @Override
+    public BenchNode copy() {
+        if (getGraph() instanceof BenchGraph graph && graph.getCopyClosure() != null) {
+            return new BenchNode(graph.getCopyClosure());
+        }
+        return new BenchNode(closure);
+    }
+}
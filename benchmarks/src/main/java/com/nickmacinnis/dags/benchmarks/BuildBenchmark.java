@@ -0,0 +1,115 @@
+package com.nickmacinnis.dags.benchmarks;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nickmacinnis.dags.Closure;
+import com.nickmacinnis.dags.GraphSnapshot;
+
+/**
+ * Building a whole graph, one addChild at a time and as a single addEdges batch, and restoring one from a
+ * {@link GraphSnapshot} saved with its implicit edges.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BuildBenchmark {
+    @Param({"CHAIN", "FAN_OUT", "LAYERED_DIAMONDS", "RANDOM_SPARSE"})
+    public GraphShape shape;
+
+    @Param({"16", "64", "256"})
+    public int size;
+
+    @Param({"IMPLICIT_EDGES", "BITSET", "PATH_COLLAPSED", "LAZY"})
+    public ClosureKind closure;
+
+    private List<int[]> edges;
+    private Path snapshot;
+
+    @Setup
+    public void setUp() throws IOException {
+        edges = shape.edges(size, new Random(42));
+        List<BenchNode> nodes = newNodes();
+        BenchGraph graph = new BenchGraph(nodes.get(0));
+        for (int[] edge : edges) {
+            nodes.get(edge[0]).addChild(nodes.get(edge[1]));
+        }
+        IdentityHashMap<BenchNode, Integer> keys = new IdentityHashMap<>();
+        for (int i = 0; i < nodes.size(); i++) {
+            keys.put(nodes.get(i), i);
+        }
+        snapshot = Files.createTempFile("dags", ".snapshot");
+        GraphSnapshot.write(graph, keys::get, true, true, snapshot);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshot);
+    }
+
+    @Benchmark
+    public BenchGraph addChild() {
+        List<BenchNode> nodes = newNodes();
+        BenchGraph graph = new BenchGraph(nodes.get(0));
+        for (int[] edge : edges) {
+            nodes.get(edge[0]).addChild(nodes.get(edge[1]));
+        }
+        return graph;
+    }
+
+    @Benchmark
+    public BenchGraph addEdges() {
+        List<BenchNode> nodes = newNodes();
+        BenchGraph graph = new BenchGraph(nodes.get(0));
+        List<Map.Entry<BenchNode, BenchNode>> batch = new ArrayList<>(edges.size());
+        for (int[] edge : edges) {
+            batch.add(Map.entry(nodes.get(edge[0]), nodes.get(edge[1])));
+        }
+        graph.addEdges(batch);
+        return graph;
+    }
+
+    @Benchmark
+    public BenchGraph restoreSnapshot() {
+        Closure<BenchNode, BenchEdge> shared = closure.create();
+        try {
+            return (BenchGraph) GraphSnapshot.read(snapshot, new BenchGraph(new BenchNode(shared)),
+                    key -> new BenchNode(shared));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<BenchNode> newNodes() {
+        Closure<BenchNode, BenchEdge> shared = closure.create();
+        List<BenchNode> nodes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            nodes.add(new BenchNode(shared));
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,50 @@
+package com.nickmacinnis.dags.benchmarks;
+
+import com.nickmacinnis.dags.BitsetClosure;
+import com.nickmacinnis.dags.Closure;
+import com.nickmacinnis.dags.LazyClosure;
+import com.nickmacinnis.dags.PathCollapsedClosure;
+
+/** How reachability is maintained in the graphs measured. */
+public enum ClosureKind {
+    IMPLICIT_EDGES {
+        @Override
+        Closure<BenchNode, BenchEdge> create() {
+            return null;
+        }
+    },
+    BITSET {
+        @Override
+        Closure<BenchNode, BenchEdge> create() {
+            return new BitsetClosure<>();
+        }
+    },
+    PATH_COLLAPSED {
+        @Override
+        Closure<BenchNode, BenchEdge> create() {
+            return new PathCollapsedClosure<>();
+        }
+    },
+    LAZY {
+        @Override
+        Closure<BenchNode, BenchEdge> create() {
+            return new LazyClosure<>();
+        }
+    };
+
+    abstract Closure<BenchNode, BenchEdge> create();
+
+    /** @return the kind of closure, or {@link #IMPLICIT_EDGES} if it is null */
+    static ClosureKind of(Closure<BenchNode, BenchEdge> closure) {
+        if (closure instanceof BitsetClosure) {
+            return BITSET;
+        }
+        if (closure instanceof PathCollapsedClosure) {
+            return PATH_COLLAPSED;
+        }
+        if (closure instanceof LazyClosure) {
+            return LAZY;
+        }
+        return IMPLICIT_EDGES;
+    }
+}
@@ -0,0 +1,75 @@
+package com.nickmacinnis.dags.benchmarks;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nickmacinnis.dags.ConcurrentDirectedAcyclicGraph;
+
+/**
+ * Queries through {@link ConcurrentDirectedAcyclicGraph}, with readers alone and alongside a writer which keeps
+ * adding and removing one leaf. Vary the group threads with {@code -tg} to see how reads scale.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentBenchmark {
+    @Param({"LAYERED_DIAMONDS", "RANDOM_SPARSE"})
+    public GraphShape shape;
+
+    @Param({"64", "256"})
+    public int size;
+
+    @Param({"IMPLICIT_EDGES", "BITSET"})
+    public ClosureKind closure;
+
+    private GraphFixture fixture;
+    private ConcurrentDirectedAcyclicGraph<BenchNode, BenchEdge> graph;
+    private BenchNode leaf;
+
+    @Setup
+    public void setUp() {
+        fixture = new GraphFixture(shape, size, closure);
+        graph = new ConcurrentDirectedAcyclicGraph<>(fixture.graph);
+        leaf = new BenchNode(fixture.nodes.get(0).getClosure());
+    }
+
+    @Benchmark
+    @Group("readOnly")
+    @GroupThreads(4)
+    public Set<BenchNode> readersAlone() {
+        return graph.collectChildren(fixture.middleNode());
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public List<BenchNode> readers() {
+        return graph.dft(fixture.middleNode());
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public boolean writer() {
+        graph.addChild(fixture.middleNode(), leaf);
+        return graph.removeChild(fixture.middleNode(), leaf);
+    }
+}
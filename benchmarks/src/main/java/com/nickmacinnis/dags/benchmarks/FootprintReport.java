@@ -0,0 +1,47 @@
+package com.nickmacinnis.dags.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Prints the heap retained per edge by graphs of each shape built with implicit edges: the heap in use after
+ * building a batch of graphs, less the heap in use before, over the number of edges built. Run it with
+ * {@code java -cp benchmarks/target/benchmarks.jar com.nickmacinnis.dags.benchmarks.FootprintReport [size]}.
+ */
+public final class FootprintReport {
+    /** Graphs built per shape, so that each measurement covers enough edges to dwarf the noise. */
+    private static final int GRAPHS = 20;
+
+    private FootprintReport() {
+    }
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 256;
+        System.out.printf("%-18s %10s %10s %14s%n", "shape", "nodes", "edges", "bytes/edge");
+        for (GraphShape shape : GraphShape.values()) {
+            long before = usedHeap();
+            List<GraphFixture> fixtures = new ArrayList<>(GRAPHS);
+            long edges = 0;
+            for (int i = 0; i < GRAPHS; i++) {
+                GraphFixture fixture = new GraphFixture(shape, size, ClosureKind.IMPLICIT_EDGES);
+                fixtures.add(fixture);
+                edges += fixture.graph.getEdgeCount();
+            }
+            long retained = usedHeap() - before;
+            System.out.printf("%-18s %10d %10d %14.1f%n", shape, size, edges / GRAPHS, (double) retained / edges);
+            // keep the graphs reachable until measured
+            fixtures.clear();
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // collections are only requested, so take the lowest of a few readings
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+}
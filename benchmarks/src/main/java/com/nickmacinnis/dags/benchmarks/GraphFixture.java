@@ -0,0 +1,45 @@
+package com.nickmacinnis.dags.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.nickmacinnis.dags.Closure;
+
+/** A graph of a given shape, built with addChild, along with its nodes by index. */
+final class GraphFixture {
+    private static final long SEED = 42;
+
+    final BenchGraph graph;
+    final List<BenchNode> nodes;
+    final List<int[]> edges;
+
+    GraphFixture(GraphShape shape, int size, ClosureKind closureKind) {
+        Closure<BenchNode, BenchEdge> closure = closureKind.create();
+        nodes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            nodes.add(new BenchNode(closure));
+        }
+        graph = new BenchGraph(nodes.get(0));
+        edges = shape.edges(size, new Random(SEED));
+        for (int[] edge : edges) {
+            nodes.get(edge[0]).addChild(nodes.get(edge[1]));
+        }
+    }
+
+    /** @return a node about halfway down the graph, with both parents and children in most shapes */
+    BenchNode middleNode() {
+        return nodes.get(nodes.size() / 2);
+    }
+
+    /** @return the first parent the middle node was given */
+    BenchNode middleParent() {
+        int middle = nodes.size() / 2;
+        for (int[] edge : edges) {
+            if (edge[1] == middle) {
+                return nodes.get(edge[0]);
+            }
+        }
+        throw new IllegalStateException("Every node but the root has a parent");
+    }
+}
@@ -0,0 +1,82 @@
+package com.nickmacinnis.dags.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The shapes of graph measured, as direct edges between node indices; index 0 is the root.
+ * Shapes are kept shallow enough that building them with implicit edges stays polynomial in size.
+ */
+public enum GraphShape {
+    /** Every node the only child of the one before. */
+    CHAIN {
+        @Override
+        List<int[]> edges(int size, Random random) {
+            List<int[]> edges = new ArrayList<>();
+            for (int i = 1; i < size; i++) {
+                edges.add(new int[] {i - 1, i});
+            }
+            return edges;
+        }
+    },
+    /** Every node a child of the root. */
+    FAN_OUT {
+        @Override
+        List<int[]> edges(int size, Random random) {
+            List<int[]> edges = new ArrayList<>();
+            for (int i = 1; i < size; i++) {
+                edges.add(new int[] {0, i});
+            }
+            return edges;
+        }
+    },
+    /** Stacks of diamonds hanging from the root, each stack DIAMOND_LAYERS deep. */
+    LAYERED_DIAMONDS {
+        @Override
+        List<int[]> edges(int size, Random random) {
+            List<int[]> edges = new ArrayList<>();
+            int next = 1;
+            while (next + 3 <= size) {
+                int top = 0;
+                for (int layer = 0; layer < DIAMOND_LAYERS && next + 3 <= size; layer++) {
+                    int left = next++;
+                    int right = next++;
+                    int bottom = next++;
+                    edges.add(new int[] {top, left});
+                    edges.add(new int[] {top, right});
+                    edges.add(new int[] {left, bottom});
+                    edges.add(new int[] {right, bottom});
+                    top = bottom;
+                }
+            }
+            while (next < size) {
+                edges.add(new int[] {0, next++});
+            }
+            return edges;
+        }
+    },
+    /** A random tree, with a quarter of the nodes given a second parent from just before them. */
+    RANDOM_SPARSE {
+        @Override
+        List<int[]> edges(int size, Random random) {
+            List<int[]> edges = new ArrayList<>();
+            for (int i = 1; i < size; i++) {
+                int parent = random.nextInt(i);
+                edges.add(new int[] {parent, i});
+                if (i > 1 && random.nextInt(4) == 0) {
+                    int second = Math.max(0, i - 8) + random.nextInt(Math.min(i, 8));
+                    if (second != parent) {
+                        edges.add(new int[] {second, i});
+                    }
+                }
+            }
+            return edges;
+        }
+    };
+
+    static final int DIAMOND_LAYERS = 6;
+
+    /** @return the direct edges of a graph of this shape with size nodes, root included, in insertion order */
+    abstract List<int[]> edges(int size, Random random);
+}
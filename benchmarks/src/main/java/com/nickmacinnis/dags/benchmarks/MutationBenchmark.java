@@ -0,0 +1,63 @@
+package com.nickmacinnis.dags.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nickmacinnis.dags.HistogramMetrics;
+
+/**
+ * Removing an edge or a node from the middle of a freshly built graph. The graph is rebuilt before every
+ * invocation, outside the measurement, and given a {@link HistogramMetrics} if metrics are on.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MutationBenchmark {
+    @Param({"CHAIN", "FAN_OUT", "LAYERED_DIAMONDS", "RANDOM_SPARSE"})
+    public GraphShape shape;
+
+    @Param({"16", "64", "256"})
+    public int size;
+
+    @Param({"IMPLICIT_EDGES", "BITSET", "PATH_COLLAPSED", "LAZY"})
+    public ClosureKind closure;
+
+    @Param({"false", "true"})
+    public boolean metrics;
+
+    private GraphFixture fixture;
+
+    @Setup(Level.Invocation)
+    public void setUp() {
+        fixture = new GraphFixture(shape, size, closure);
+        if (metrics) {
+            fixture.graph.setMetrics(new HistogramMetrics());
+        }
+    }
+
+    @Benchmark
+    public boolean removeChild() {
+        return fixture.middleParent().removeChild(fixture.middleNode());
+    }
+
+    @Benchmark
+    public int removeNode() {
+        fixture.graph.removeNode(fixture.middleNode());
+        return fixture.graph.getNodeCount();
+    }
+}
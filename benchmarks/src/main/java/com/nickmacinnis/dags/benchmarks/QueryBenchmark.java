@@ -0,0 +1,80 @@
+package com.nickmacinnis.dags.benchmarks;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.nickmacinnis.dags.DirectedAcyclicGraph;
+import com.nickmacinnis.dags.IncrementalLayout;
+
+/**
+ * Whole-graph operations which leave the graph's structure as it was: copying, traversal and layout.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+    @Param({"CHAIN", "FAN_OUT", "LAYERED_DIAMONDS", "RANDOM_SPARSE"})
+    public GraphShape shape;
+
+    @Param({"16", "64", "256"})
+    public int size;
+
+    @Param({"IMPLICIT_EDGES", "BITSET", "PATH_COLLAPSED", "LAZY"})
+    public ClosureKind closure;
+
+    private GraphFixture fixture;
+    private IncrementalLayout<BenchNode, BenchEdge> layout;
+    private BenchNode leaf;
+
+    @Setup
+    public void setUp() {
+        fixture = new GraphFixture(shape, size, closure);
+        layout = fixture.graph.layOutIncrementally();
+        leaf = new BenchNode(fixture.nodes.get(0).getClosure());
+    }
+
+    @Benchmark
+    public DirectedAcyclicGraph<BenchNode, BenchEdge> copy() {
+        return fixture.graph.copy();
+    }
+
+    @Benchmark
+    public Set<BenchEdge> collectEdges() {
+        return fixture.graph.getRootNode().collectEdges();
+    }
+
+    /** Sorting edges that are already untangled still does all the work of deciding the order. */
+    @Benchmark
+    public void untangle() {
+        fixture.graph.untangle();
+    }
+
+    @Benchmark
+    public void calculateNodeCoordinates() {
+        fixture.graph.calculateNodeCoordinates();
+    }
+
+    /** Adding a leaf to the middle node and taking it away again, laying the graph out after each. */
+    @Benchmark
+    public Set<BenchNode> incrementalLayout() {
+        fixture.middleNode().addChild(leaf);
+        layout.update();
+        fixture.middleNode().removeChild(leaf);
+        return layout.update();
+    }
+}
@@ -1,6 +1,7 @@
 package com.nickmacinnis.dags;
 
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.Objects;
 import java.util.Set;
@@ -18,6 +19,15 @@ public abstract sealed class AbstractEdge<N extends Node<N, E>, E extends Edge<N
     protected E directEdge;
     protected E exitEdge;
     protected int hops;
+    /**
+     * The hash of the parts of this edge which decide equality, set once they are: an edge's parts never change,
+     * and those which are edges already carry their own hash, so no edge is hashed by walking its chain.
+     */
+    int hash;
+    /*
+     * Most edges have no implicit edges of a given kind attached, and most of the rest have one or two, so each
+     * set is left null until its first member arrives and starts out as a small array.
+     */
     protected Set<E> incomingImplicitEdges;
     protected Set<E> outgoingImplicitEdges;
     protected Set<E> dependentImplicitEdges;
@@ -26,10 +36,6 @@ public abstract sealed class AbstractEdge<N extends Node<N, E>, E extends Edge<N
         this.startNode = startNode;
         this.endNode = endNode;
         this.hops = hops;
-
-        incomingImplicitEdges = new LinkedHashSet<>();
-        outgoingImplicitEdges = new LinkedHashSet<>();
-        dependentImplicitEdges = new LinkedHashSet<>();
     }
 
     /**
@@ -44,32 +50,41 @@ public abstract sealed class AbstractEdge<N extends Node<N, E>, E extends Edge<N
 
     @Override
     public boolean attachIncomingEdge(E edge) {
+        if (incomingImplicitEdges == null) {
+            incomingImplicitEdges = new CompactSet<>();
+        }
         return incomingImplicitEdges.add(edge);
     }
 
     @Override
     public boolean detachIncomingEdge(E edge) {
-        return incomingImplicitEdges.remove(edge);
+        return incomingImplicitEdges != null && incomingImplicitEdges.remove(edge);
     }
 
     @Override
     public boolean attachOutgoingEdge(E edge) {
+        if (outgoingImplicitEdges == null) {
+            outgoingImplicitEdges = new CompactSet<>();
+        }
         return outgoingImplicitEdges.add(edge);
     }
 
     @Override
     public boolean detachOutgoingEdge(E edge) {
-        return outgoingImplicitEdges.remove(edge);
+        return outgoingImplicitEdges != null && outgoingImplicitEdges.remove(edge);
     }
 
     @Override
     public boolean attachDependentEdge(E edge) {
+        if (dependentImplicitEdges == null) {
+            dependentImplicitEdges = new CompactSet<>();
+        }
         return dependentImplicitEdges.add(edge);
     }
 
     @Override
     public boolean detachDependentEdge(E edge) {
-        return dependentImplicitEdges.remove(edge);
+        return dependentImplicitEdges != null && dependentImplicitEdges.remove(edge);
     }
 
     @Override
@@ -103,29 +118,33 @@ public abstract sealed class AbstractEdge<N extends Node<N, E>, E extends Edge<N
     }
 
     public Set<E> getIncomingImplicitEdges() {
-        return Collections.unmodifiableSet(incomingImplicitEdges);
+        return view(incomingImplicitEdges);
     }
 
     public Set<E> getOutgoingImplicitEdges() {
-        return Collections.unmodifiableSet(outgoingImplicitEdges);
+        return view(outgoingImplicitEdges);
     }
 
     public Set<E> getDependentImplicitEdges() {
-        return Collections.unmodifiableSet(dependentImplicitEdges);
+        return view(dependentImplicitEdges);
+    }
+
+    private static <E> Set<E> view(Set<E> edges) {
+        return edges == null ? Collections.emptySet() : Collections.unmodifiableSet(edges);
     }
 
     @Override
     public Set<E> collectAttachedEdges() {
         Set<E> collectedEdges = new LinkedHashSet<>();
-        for (E incomingEdge : incomingImplicitEdges) {
+        for (E incomingEdge : getIncomingImplicitEdges()) {
             collectedEdges.add(incomingEdge);
             collectedEdges.addAll(incomingEdge.collectAttachedEdges());
         }
-        for (E outgoingEdge : outgoingImplicitEdges) {
+        for (E outgoingEdge : getOutgoingImplicitEdges()) {
             collectedEdges.add(outgoingEdge);
             collectedEdges.addAll(outgoingEdge.collectAttachedEdges());
         }
-        for (E dependentEdge : dependentImplicitEdges) {
+        for (E dependentEdge : getDependentImplicitEdges()) {
             collectedEdges.add(dependentEdge);
             collectedEdges.addAll(dependentEdge.collectAttachedEdges());
         }
@@ -139,6 +158,10 @@ public abstract sealed class AbstractEdge<N extends Node<N, E>, E extends Edge<N
         }
         startNode.addOutgoingEdge(getThis());
         endNode.addIncomingEdge(getThis());
+        DirectedAcyclicGraph<N, E> graph = startNode.getGraph();
+        if (graph != null) {
+            graph.edgeAttached(getThis());
+        }
         return true;
     }
 
@@ -147,34 +170,75 @@ public abstract sealed class AbstractEdge<N extends Node<N, E>, E extends Edge<N
         if (startNode == null || endNode == null) {
             return false;
         }
-        startNode.removeOutgoingEdge(getThis());
-        endNode.removeIncomingEdge(getThis());
-        // Copy sets before iterating: detaching an implicit edge removes it from these
-        // sets via detachOutgoingEdge/detachIncomingEdge/detachDependentEdge, which would
-        // cause ConcurrentModificationException if we iterated the live sets directly.
-        for (E edge : new LinkedHashSet<>(outgoingImplicitEdges)) {
-            edge.detach();
+        DirectedAcyclicGraph<N, E> graph = startNode.getGraph();
+        MetricsRecorder recorder = graph != null ? graph.getRecorder() : null;
+        if (recorder == null) {
+            return detachWithImplicitEdges() >= 0;
         }
-        for (E edge : new LinkedHashSet<>(incomingImplicitEdges)) {
-            edge.detach();
+        recorder.begin();
+        recorder.beginDetach();
+        int fanOut = -1;
+        try {
+            fanOut = detachWithImplicitEdges();
+            return fanOut >= 0;
+        } finally {
+            recorder.endDetach(Math.max(fanOut, 0));
+            recorder.end(GraphMetrics.Operation.DETACH_EDGE);
         }
-        for (E edge : new LinkedHashSet<>(dependentImplicitEdges)) {
-            edge.detach();
+    }
+
+    /** @return the number of implicit edges detached along with this edge, or -1 if it was not attached */
+    private int detachWithImplicitEdges() {
+        boolean removed = startNode.removeOutgoingEdge(getThis());
+        removed |= endNode.removeIncomingEdge(getThis());
+        if (!removed) {
+            // already detached, and its implicit edges with it
+            return -1;
         }
-        return true;
+        int detached = detachAll(outgoingImplicitEdges);
+        detached += detachAll(incomingImplicitEdges);
+        detached += detachAll(dependentImplicitEdges);
+        DirectedAcyclicGraph<N, E> graph = startNode.getGraph();
+        if (graph != null) {
+            graph.edgeDetached(getThis());
+        }
+        return detached;
+    }
+
+    /**
+     * Drain the set, detaching each edge. An edge is taken out of the set before it detaches, and removes
+     * itself from every other set it belongs to as it does, so each one is detached exactly once.
+     * @return the number of edges detached here rather than already
+     */
+    private int detachAll(Set<E> edges) {
+        int detached = 0;
+        while (edges != null && !edges.isEmpty()) {
+            Iterator<E> iterator = edges.iterator();
+            E edge = iterator.next();
+            iterator.remove();
+            if (edge.detach()) {
+                detached++;
+            }
+        }
+        return detached;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(directEdge, endNode, entryEdge, exitEdge, hops, startNode);
+        return hash;
     }
 
+    /**
+     * Edges differing anywhere along their chains almost always differ in hash, so are told apart at once; the
+     * parts of equal edges are nearly always the very same edges, which compare equal without looking inside.
+     */
     @Override
     public boolean equals(Object obj) {
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
         AbstractEdge<?, ?> other = (AbstractEdge<?, ?>) obj;
-        return hops == other.hops
+        return hash == other.hash
+                && hops == other.hops
                 && Objects.equals(directEdge, other.directEdge)
                 && Objects.equals(endNode, other.endNode)
                 && Objects.equals(entryEdge, other.entryEdge)
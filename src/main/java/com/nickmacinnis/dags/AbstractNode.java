@@ -1,26 +1,34 @@
 package com.nickmacinnis.dags;
 
-import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Optional;
-import java.util.Queue;
 import java.util.Set;
 
 /**
  * Represents a single node in the graph.
  */
 public abstract class AbstractNode<N extends Node<N, E>, E extends Edge<N, E>> implements Iterable<N>, Node<N, E> {
-    protected List<E> incomingEdges;
-    protected List<E> outgoingEdges;
+    protected EdgeList<N, E> incomingEdges;
+    protected EdgeList<N, E> outgoingEdges;
     protected double x;
     protected double y;
+    protected final Closure<N, E> closure;
+    private DirectedAcyclicGraph<N, E> graph;
 
     public AbstractNode() {
-        this.incomingEdges = new ArrayList<>();
-        this.outgoingEdges = new ArrayList<>();
+        this(null);
+    }
+
+    /**
+     * @param closure The closure maintaining reachability between this node and the nodes it is joined to,
+     *                or null to generate implicit edges
+     */
+    public AbstractNode(Closure<N, E> closure) {
+        this.incomingEdges = new EdgeList<>(Edge::getStartNode);
+        this.outgoingEdges = new EdgeList<>(Edge::getEndNode);
+        this.closure = closure;
     }
 
     @Override
@@ -51,6 +59,20 @@ public abstract class AbstractNode<N extends Node<N, E>, E extends Edge<N, E>> i
 
     @Override
     public boolean addDirectEdge(E edge) {
+        MetricsRecorder recorder = graph != null ? graph.getRecorder() : null;
+        if (recorder == null) {
+            return attachDirectEdge(edge);
+        }
+        recorder.begin();
+        try {
+            return attachDirectEdge(edge);
+        } finally {
+            recorder.end(GraphMetrics.Operation.ADD_DIRECT_EDGE);
+        }
+    }
+
+    /** Check and attach the direct edge, then the implicit edges it implies unless this node has a closure. */
+    private boolean attachDirectEdge(E edge) {
         N endNode = edge.getEndNode();
 
         if (endNode == null) {
@@ -61,10 +83,16 @@ public abstract class AbstractNode<N extends Node<N, E>, E extends Edge<N, E>> i
             throw new GraphLogicException("This direct edge would create a self-referent cycle in the graph");
         }
 
-        for (E checkEdge : getIncomingEdges()) {
-            if (endNode.equals(checkEdge.getStartNode())) {
-                throw new GraphLogicException("This direct edge would create a cycle in the graph");
-            }
+        if (closure != endNode.getClosure()) {
+            throw new GraphLogicException("Cannot join nodes whose reachability is maintained by different closures");
+        }
+
+        if (graph != null) {
+            graph.checkJoin(endNode);
+        }
+
+        if (endNode.canReach(getThis())) {
+            throw new GraphLogicException("This direct edge would create a cycle in the graph");
         }
 
         if (outgoingEdges.contains(edge)) {
@@ -73,6 +101,10 @@ public abstract class AbstractNode<N extends Node<N, E>, E extends Edge<N, E>> i
 
         addEdge(edge);
 
+        if (closure != null) {
+            return true;
+        }
+
         for (E incomingEdge : getIncomingEdges()) {
             addEdge(buildImplicitEdge(incomingEdge.getStartNode(), endNode, incomingEdge, edge, edge, incomingEdge.getHops() + 1));
         }
@@ -112,12 +144,11 @@ public abstract class AbstractNode<N extends Node<N, E>, E extends Edge<N, E>> i
 
     @Override
     public boolean removeChild(N endNode) {
-        E edge = buildDirectEdge(getThis(), endNode);
-        if (!outgoingEdges.contains(edge)) {
+        E edge = outgoingEdges.findDirect(endNode);
+        if (edge == null) {
             return false;
         }
-        E actualEdge = findActual(edge, outgoingEdges).orElseThrow();
-        return actualEdge.detach();
+        return edge.detach();
     }
 
     @Override
@@ -125,8 +156,34 @@ public abstract class AbstractNode<N extends Node<N, E>, E extends Edge<N, E>> i
         return incomingEdges.isEmpty();
     }
 
+    @Override
+    public Closure<N, E> getClosure() {
+        return closure;
+    }
+
+    @Override
+    public DirectedAcyclicGraph<N, E> getGraph() {
+        return graph;
+    }
+
+    /** Called by a graph as this node joins (or, with null, leaves) it, and by nothing else. */
+    void setGraph(DirectedAcyclicGraph<N, E> graph) {
+        this.graph = graph;
+    }
+
+    @Override
+    public boolean canReach(N node) {
+        if (closure != null) {
+            return closure.isReachable(getThis(), node);
+        }
+        return outgoingEdges.hasEndpoint(node);
+    }
+
     @Override
     public Set<N> collectChildren() {
+        if (closure != null) {
+            return closure.collectDescendants(getThis());
+        }
         Set<N> children = new LinkedHashSet<>();
         for (Edge<N, E> edge : outgoingEdges) {
             children.add(edge.getEndNode());
@@ -136,24 +193,12 @@ public abstract class AbstractNode<N extends Node<N, E>, E extends Edge<N, E>> i
 
     @Override
     public Set<E> collectEdges() {
-        Set<E> edges = new LinkedHashSet<>();
-        for (E edge : outgoingEdges) {
-            edges.add(edge);
-            edges.addAll(edge.getEndNode().collectEdges());
-        }
-        return edges;
+        return Traversal.collectEdges(getThis(), false);
     }
 
     @Override
     public Set<E> collectDirectEdges() {
-        Set<E> edges = new LinkedHashSet<>();
-        for (E edge : outgoingEdges) {
-            if (edge instanceof DirectEdge<?, ?>) {
-                edges.add(edge);
-            }
-            edges.addAll(edge.getEndNode().collectDirectEdges());
-        }
-        return edges;
+        return Traversal.collectEdges(getThis(), true);
     }
 
     @Override
@@ -167,41 +212,31 @@ public abstract class AbstractNode<N extends Node<N, E>, E extends Edge<N, E>> i
 
     @Override
     public List<N> dft() {
-        List<N> nodes = new ArrayList<>();
-        nodes.add(getThis());
-        for (E edge : outgoingEdges) {
-            if (edge instanceof DirectEdge<?, ?>) {
-                nodes.addAll(edge.getEndNode().dft());
-            }
-        }
-        return nodes;
+        return Traversal.preorder(getThis());
     }
 
     @Override
     public List<N> bft() {
-        List<N> result = new ArrayList<>();
-        Queue<N> queue = new ArrayDeque<>();
-        queue.add(getThis());
-        while (!queue.isEmpty()) {
-            N current = queue.poll();
-            result.add(current);
-            for (E edge : current.getOutgoingEdges()) {
-                if (edge instanceof DirectEdge<?, ?>) {
-                    queue.add(edge.getEndNode());
-                }
-            }
-        }
-        return result;
+        return Traversal.levelOrder(getThis());
     }
 
     @Override
     public boolean addIncomingEdge(E edge) {
-        return incomingEdges.add(edge);
+        boolean added = incomingEdges.add(edge);
+        // edges register with their end node last, so the closure sees both nodes already updated
+        if (added && closure != null) {
+            closure.directEdgeAttached(edge);
+        }
+        return added;
     }
 
     @Override
     public boolean removeIncomingEdge(E edge) {
-        return incomingEdges.remove(edge);
+        boolean removed = incomingEdges.remove(edge);
+        if (removed && closure != null) {
+            closure.directEdgeDetached(edge);
+        }
+        return removed;
     }
 
     @Override
@@ -224,12 +259,6 @@ public abstract class AbstractNode<N extends Node<N, E>, E extends Edge<N, E>> i
         return outgoingEdges;
     }
 
-    private <T> Optional<T> findActual(T matchingObject, List<T> list) {
-        return list.stream()
-                .filter(t -> t.equals(matchingObject))
-                .findFirst();
-    }
-
     @Override
     public Iterator<N> iterator() {
         List<N> nodes = new ArrayList<>();
@@ -240,6 +269,9 @@ public abstract class AbstractNode<N extends Node<N, E>, E extends Edge<N, E>> i
 
     @Override
     public int calculateDepth() {
+        if (closure != null) {
+            return closure.calculateDepth(getThis());
+        }
         int depth = 0;
         for (E edge : incomingEdges) {
             if (edge.getHops() > depth) {
@@ -251,23 +283,12 @@ public abstract class AbstractNode<N extends Node<N, E>, E extends Edge<N, E>> i
 
     @Override
     public List<List<N>> generateGrid() {
-        List<List<N>> tree = new ArrayList<>();
-        for (E edge : outgoingEdges) {
-            if (edge instanceof DirectEdge<?, ?>) {
-                N endpoint = edge.getEndNode();
-                List<List<N>> childGrid = endpoint.generateGrid();
-                for (List<N> row : childGrid) {
-                    row.add(0, getThis());
-                    tree.add(row);
-                }
-            }
-        }
-        if (tree.isEmpty()) {
-            List<N> row = new ArrayList<>();
-            row.add(getThis());
-            tree.add(row);
-        }
-        return tree;
+        return Traversal.paths(getThis());
+    }
+
+    @Override
+    public Iterator<List<N>> iteratePaths() {
+        return Traversal.pathIterator(getThis());
     }
 
     @Override
@@ -0,0 +1,228 @@
+package com.nickmacinnis.dags;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A closure which keeps the ancestors and descendants of every node as compressed bitsets over dense node ids,
+ * so that nodes carry only their direct edges and reachability is answered with bit operations.
+ * Ids are handed out when a node gains its first direct edge and recycled once it has none left.
+ */
+public class BitsetClosure<N extends Node<N, E>, E extends Edge<N, E>> implements Closure<N, E> {
+    private final Map<N, Integer> ids = new HashMap<>();
+    private final List<N> nodes = new ArrayList<>();
+    private final List<CompressedBitSet> descendants = new ArrayList<>();
+    private final List<CompressedBitSet> ancestors = new ArrayList<>();
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+    /** Edges attached since the outermost {@link #beginBatch()}, or null outside a batch. */
+    private List<E> batch;
+    private int batchDepth;
+
+    public BitsetClosure() {
+    }
+
+    @Override
+    public void directEdgeAttached(E edge) {
+        if (batch != null) {
+            batch.add(edge);
+            return;
+        }
+        int start = register(edge.getStartNode());
+        int end = register(edge.getEndNode());
+        if (descendants.get(start).contains(end)) {
+            // already reachable by another path, so nothing new is reachable either
+            return;
+        }
+        CompressedBitSet upstream = ancestors.get(start).copy();
+        upstream.add(start);
+        CompressedBitSet downstream = descendants.get(end).copy();
+        downstream.add(end);
+        upstream.forEach(id -> descendants.get(id).or(downstream));
+        downstream.forEach(id -> ancestors.get(id).or(upstream));
+    }
+
+    @Override
+    public void directEdgeDetached(E edge) {
+        if (batch != null) {
+            applyBatch();
+        }
+        Integer start = ids.get(edge.getStartNode());
+        Integer end = ids.get(edge.getEndNode());
+        if (start == null || end == null) {
+            return;
+        }
+        // Only the start node and its ancestors can lose descendants, and only the end node and its
+        // descendants can lose ancestors. Rebuild exactly those sets from the remaining direct edges.
+        CompressedBitSet upstream = ancestors.get(start).copy();
+        upstream.add(start);
+        CompressedBitSet downstream = descendants.get(end).copy();
+        downstream.add(end);
+        rebuild(upstream, downstream);
+        releaseIfIsolated(edge.getStartNode());
+        releaseIfIsolated(edge.getEndNode());
+    }
+
+    @Override
+    public void beginBatch() {
+        if (batchDepth++ == 0) {
+            batch = new ArrayList<>();
+        }
+    }
+
+    /** Brings the sets up to date with every edge of the batch in a single pass over the affected region. */
+    @Override
+    public void endBatch() {
+        if (--batchDepth == 0) {
+            applyBatch();
+            batch = null;
+        }
+    }
+
+    @Override
+    public boolean isReachable(N startNode, N endNode) {
+        Integer start = ids.get(startNode);
+        Integer end = ids.get(endNode);
+        return start != null && end != null && descendants.get(start).contains(end);
+    }
+
+    @Override
+    public Set<N> collectDescendants(N node) {
+        return collect(descendants, node);
+    }
+
+    @Override
+    public Set<N> collectAncestors(N node) {
+        return collect(ancestors, node);
+    }
+
+    /**
+     * The bitsets hold reachability but not path lengths, so this sorts the ancestors of node and finds the longest
+     * path through them on every call, in time linear in the edges among them; nothing is cached between calls.
+     */
+    @Override
+    public int calculateDepth(N node) {
+        Integer id = ids.get(node);
+        if (id == null || ancestors.get(id).isEmpty()) {
+            return 0;
+        }
+        CompressedBitSet region = ancestors.get(id).copy();
+        region.add(id);
+        Map<N, Integer> longestPaths = new HashMap<>();
+        for (N current : sort(region, true)) {
+            int longest = 0;
+            for (E incomingEdge : current.getIncomingEdges()) {
+                longest = Math.max(longest, longestPaths.get(incomingEdge.getStartNode()) + 1);
+            }
+            longestPaths.put(current, longest);
+        }
+        return longestPaths.get(node) - 1;
+    }
+
+    private void applyBatch() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        // New paths all run from a start node or its ancestors to an end node or its descendants; the sets hold
+        // nothing of the batch yet, so find those regions along the direct edges themselves.
+        List<N> starts = new ArrayList<>();
+        List<N> ends = new ArrayList<>();
+        for (E edge : batch) {
+            starts.add(edge.getStartNode());
+            ends.add(edge.getEndNode());
+        }
+        batch.clear();
+        rebuild(registerAll(Traversal.alongDirectEdges(starts, true)),
+                registerAll(Traversal.alongDirectEdges(ends, false)));
+    }
+
+    /**
+     * Recompute the descendants of the upstream region, children first, and the ancestors of the downstream
+     * region, parents first, from the direct edges.
+     */
+    private void rebuild(CompressedBitSet upstream, CompressedBitSet downstream) {
+        for (N node : sort(upstream, false)) {
+            CompressedBitSet reachable = new CompressedBitSet();
+            for (E outgoingEdge : node.getOutgoingEdges()) {
+                int child = ids.get(outgoingEdge.getEndNode());
+                reachable.add(child);
+                reachable.or(descendants.get(child));
+            }
+            descendants.set(ids.get(node), reachable);
+        }
+        for (N node : sort(downstream, true)) {
+            CompressedBitSet reachedFrom = new CompressedBitSet();
+            for (E incomingEdge : node.getIncomingEdges()) {
+                int parent = ids.get(incomingEdge.getStartNode());
+                reachedFrom.add(parent);
+                reachedFrom.or(ancestors.get(parent));
+            }
+            ancestors.set(ids.get(node), reachedFrom);
+        }
+    }
+
+    private CompressedBitSet registerAll(Set<N> region) {
+        CompressedBitSet registered = new CompressedBitSet();
+        for (N node : region) {
+            registered.add(register(node));
+        }
+        return registered;
+    }
+
+    private Set<N> collect(List<CompressedBitSet> sets, N node) {
+        Set<N> collected = new LinkedHashSet<>();
+        Integer id = ids.get(node);
+        if (id != null) {
+            sets.get(id).forEach(member -> collected.add(nodes.get(member)));
+        }
+        return collected;
+    }
+
+    private int register(N node) {
+        Integer id = ids.get(node);
+        if (id != null) {
+            return id;
+        }
+        if (freeIds.isEmpty()) {
+            id = nodes.size();
+            nodes.add(node);
+            descendants.add(new CompressedBitSet());
+            ancestors.add(new CompressedBitSet());
+        } else {
+            id = freeIds.pop();
+            nodes.set(id, node);
+        }
+        ids.put(node, id);
+        return id;
+    }
+
+    private void releaseIfIsolated(N node) {
+        if (node.getIncomingEdges().isEmpty() && node.getOutgoingEdges().isEmpty()) {
+            Integer id = ids.remove(node);
+            nodes.set(id, null);
+            descendants.get(id).clear();
+            ancestors.get(id).clear();
+            freeIds.push(id);
+        }
+    }
+
+    /**
+     * Order the nodes of a region so that every node comes after its direct parents (or, if not parentsFirst,
+     * after its direct children) within that region.
+     */
+    private List<N> sort(CompressedBitSet region, boolean parentsFirst) {
+        List<N> members = new ArrayList<>(region.cardinality());
+        region.forEach(id -> members.add(nodes.get(id)));
+        return TopologicalSort.sortRegion(members, node -> inRegion(region, node), parentsFirst);
+    }
+
+    private boolean inRegion(CompressedBitSet region, N node) {
+        Integer id = ids.get(node);
+        return id != null && region.contains(id);
+    }
+}
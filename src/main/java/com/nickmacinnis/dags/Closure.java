@@ -0,0 +1,40 @@
+package com.nickmacinnis.dags;
+
+import java.util.Set;
+
+/**
+ * Maintains the transitive closure of the direct edges joining a family of nodes, in place of the
+ * {@link ImplicitEdge} objects that nodes build when they have no closure.
+ * All nodes joined by an edge must share the same closure instance.
+ */
+public interface Closure<N extends Node<N, E>, E extends Edge<N, E>> {
+
+    /** Called once a direct edge has been registered with both of its nodes. */
+    void directEdgeAttached(E edge);
+
+    /** Called once a direct edge has been unregistered from both of its nodes. */
+    void directEdgeDetached(E edge);
+
+    /**
+     * Called before a batch of direct edges attaches. Until the matching {@link #endBatch()} the closure may defer
+     * its work, answering queries as they stood before the batch.
+     */
+    default void beginBatch() {
+    }
+
+    /** Called once every edge of a batch has attached. */
+    default void endBatch() {
+    }
+
+    /** @return true if endNode can be reached from startNode by one or more direct edges */
+    boolean isReachable(N startNode, N endNode);
+
+    /** @return the set of all nodes reachable from node */
+    Set<N> collectDescendants(N node);
+
+    /** @return the set of all nodes from which node is reachable */
+    Set<N> collectAncestors(N node);
+
+    /** @return the maximum hop count of any path ending at node, as {@link Node#calculateDepth()} */
+    int calculateDepth(N node);
+}
@@ -0,0 +1,158 @@
+package com.nickmacinnis.dags;
+
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * An insertion-ordered set for the implicit edges attached to an edge, most of which hold none or one. Up to a
+ * handful of members are kept in an array just long enough for them and found by scanning; past that the set
+ * moves them into a {@link LinkedHashSet}.
+ */
+final class CompactSet<T> extends AbstractSet<T> {
+    /** Sets this small are scanned instead of hashed. */
+    private static final int HASH_THRESHOLD = 8;
+
+    /** The members in insertion order, or null once hashed. */
+    private Object[] elements = new Object[1];
+    private int size;
+    private LinkedHashSet<T> hashed;
+    /** Changes made so far, for iterators to notice changes not made through them. */
+    private int modifications;
+
+    @Override
+    public int size() {
+        return hashed != null ? hashed.size() : size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return hashed != null ? hashed.contains(o) : indexOf(o) >= 0;
+    }
+
+    @Override
+    public boolean add(T member) {
+        if (hashed != null) {
+            return hashed.add(member);
+        }
+        if (indexOf(member) >= 0) {
+            return false;
+        }
+        if (size == HASH_THRESHOLD) {
+            hashed = new LinkedHashSet<>(2 * HASH_THRESHOLD);
+            for (int i = 0; i < size; i++) {
+                hashed.add(elementAt(i));
+            }
+            hashed.add(member);
+            elements = null;
+            size = 0;
+            modifications++;
+            return true;
+        }
+        if (size == elements.length) {
+            Object[] grown = new Object[Math.min(2 * size, HASH_THRESHOLD)];
+            System.arraycopy(elements, 0, grown, 0, size);
+            elements = grown;
+        }
+        elements[size++] = member;
+        modifications++;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (hashed != null) {
+            return hashed.remove(o);
+        }
+        int index = indexOf(o);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        if (hashed != null) {
+            hashed.clear();
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            elements[i] = null;
+        }
+        size = 0;
+        modifications++;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        if (hashed != null) {
+            return hashed.iterator();
+        }
+        return new Iterator<>() {
+            private int next;
+            private boolean removable;
+            private int expectedModifications = modifications;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public T next() {
+                if (expectedModifications != modifications) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                removable = true;
+                return elementAt(next++);
+            }
+
+            @Override
+            public void remove() {
+                if (!removable) {
+                    throw new IllegalStateException();
+                }
+                if (expectedModifications != modifications) {
+                    throw new ConcurrentModificationException();
+                }
+                removable = false;
+                removeAt(--next);
+                expectedModifications = modifications;
+            }
+        };
+    }
+
+    private int indexOf(Object o) {
+        // identity first: an edge is almost always looked up by the same instance that was added
+        for (int i = 0; i < size; i++) {
+            if (elements[i] == o) {
+                return i;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (Objects.equals(elements[i], o)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void removeAt(int index) {
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        elements[--size] = null;
+        modifications++;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T elementAt(int index) {
+        return (T) elements[index];
+    }
+}
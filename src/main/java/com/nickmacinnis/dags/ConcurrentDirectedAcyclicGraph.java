@@ -0,0 +1,201 @@
+package com.nickmacinnis.dags;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+
+/**
+ * Guards a {@link DirectedAcyclicGraph} for use from several threads. Edits take a write lock. Queries which read
+ * a single field, the counts and the version, run under an optimistic read stamp, which costs readers no shared
+ * writes at all, and only if a write overlapped them run again under the read lock. Every other query walks edge
+ * lists, registries or a closure, which a concurrent edit could leave half changed and send into an endless loop
+ * or an error, so it takes the read lock. Results are copies, so they stay valid after the call returns.
+ * <p>
+ * Once wrapped, the graph and its nodes must only be edited through this class. The queries offered here only
+ * ever iterate edge lists and read the registry and closure, so any number of them may run at once.
+ * <p>
+ * Every edit which succeeds starts a new version of the graph. The first {@link #freeze()} of a version takes its
+ * {@link FrozenGraph} under the read lock, and every later call until the next edit returns that snapshot without
+ * locking, even while a writer holds the lock, so edits pay for a snapshot only of the versions a reader asks for.
+ * A reader may query its snapshot for as long as it likes while later edits go ahead. The wrapper keeps only the
+ * latest snapshot; older ones are reclaimed by the garbage collector once no reader holds them.
+ */
+public class ConcurrentDirectedAcyclicGraph<N extends Node<N, E>, E extends Edge<N, E>> {
+    private final DirectedAcyclicGraph<N, E> graph;
+    private final StampedLock lock = new StampedLock();
+    /** Held while a snapshot is taken, so readers sharing the read lock take each version's only once. */
+    private final Object snapshotting = new Object();
+    /** Number of edits which have succeeded so far, only changed under the write lock. */
+    private volatile long version;
+    /** The latest snapshot taken, which may be of an earlier version than the current one. */
+    private volatile Version<N, E> latest;
+
+    public ConcurrentDirectedAcyclicGraph(DirectedAcyclicGraph<N, E> graph) {
+        this.graph = graph;
+    }
+
+    /** @see Node#addChild(Node) */
+    public boolean addChild(N startNode, N endNode) {
+        return write(() -> startNode.addChild(endNode));
+    }
+
+    /** @see DirectedAcyclicGraph#addEdges(Collection) */
+    public int addEdges(Collection<? extends Map.Entry<N, N>> edges) {
+        return write(() -> graph.addEdges(edges));
+    }
+
+    /** @see Node#removeChild(Node) */
+    public boolean removeChild(N startNode, N endNode) {
+        return write(() -> startNode.removeChild(endNode));
+    }
+
+    /** @see DirectedAcyclicGraph#removeNode(Node) */
+    public void removeNode(N node) {
+        write(() -> {
+            graph.removeNode(node);
+            return null;
+        });
+    }
+
+    /** @see DirectedAcyclicGraph#removeNodes(Collection) */
+    public void removeNodes(Collection<? extends N> nodes) {
+        write(() -> {
+            graph.removeNodes(nodes);
+            return null;
+        });
+    }
+
+    /** Reorders edges and moves nodes, so runs under the write lock. */
+    public void calculateNodeCoordinates() {
+        write(() -> {
+            graph.calculateNodeCoordinates();
+            return null;
+        });
+    }
+
+    /** @see DirectedAcyclicGraph#getNodeCount() */
+    public int getNodeCount() {
+        return readField(graph::getNodeCount);
+    }
+
+    /** @see DirectedAcyclicGraph#getEdgeCount() */
+    public int getEdgeCount() {
+        return readField(graph::getEdgeCount);
+    }
+
+    /** @see DirectedAcyclicGraph#containsNode(Node) */
+    public boolean containsNode(N node) {
+        return read(() -> graph.containsNode(node));
+    }
+
+    /** @return a copy of {@link Node#collectChildren()} */
+    public Set<N> collectChildren(N node) {
+        return read(() -> new LinkedHashSet<>(node.collectChildren()));
+    }
+
+    /** @return a copy of {@link DirectedAcyclicGraph#collectEdges()} */
+    public Set<E> collectEdges() {
+        return read(() -> new LinkedHashSet<>(graph.collectEdges()));
+    }
+
+    /** @see Node#canReach(Node) */
+    public boolean canReach(N startNode, N endNode) {
+        return read(() -> startNode.canReach(endNode));
+    }
+
+    /** @see Node#calculateDepth() */
+    public int calculateDepth(N node) {
+        return read(node::calculateDepth);
+    }
+
+    /** @see Node#dft() */
+    public List<N> dft(N node) {
+        return read(node::dft);
+    }
+
+    /** @see Node#bft() */
+    public List<N> bft(N node) {
+        return read(node::bft);
+    }
+
+    /** @return the number of edits which have succeeded so far, which identifies the current version */
+    public long getVersion() {
+        return readField(() -> version);
+    }
+
+    /**
+     * @return a snapshot of the latest finished edit, which may then be queried without any locking; the same
+     *         snapshot is returned until the next edit finishes. The first call for a version takes the snapshot
+     *         under the read lock, and later calls only read two fields.
+     */
+    public FrozenGraph<N, E> freeze() {
+        // version only moves once an edit has finished, so an edit under way leaves the pinned snapshot current
+        Version<N, E> pinned = latest;
+        if (pinned != null && pinned.number == version) {
+            return pinned.snapshot;
+        }
+        long stamp = lock.readLock();
+        try {
+            synchronized (snapshotting) {
+                pinned = latest;
+                if (pinned == null || pinned.number != version) {
+                    pinned = new Version<>(version, graph.freeze());
+                    latest = pinned;
+                }
+            }
+            return pinned.snapshot;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private <T> T write(Supplier<T> edit) {
+        long stamp = lock.writeLock();
+        try {
+            T result = edit.get();
+            version++;
+            return result;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Run a query which only reads a field or two, so cannot loop or fail however a write tears it, optimistically,
+     * and again under the read lock if a write overlapped it.
+     */
+    private <T> T readField(Supplier<T> query) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            T result = query.get();
+            if (lock.validate(stamp)) {
+                return result;
+            }
+        }
+        return read(query);
+    }
+
+    private <T> T read(Supplier<T> query) {
+        long stamp = lock.readLock();
+        try {
+            return query.get();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /** A snapshot along with the version it was taken of. */
+    private static final class Version<N extends Node<N, E>, E extends Edge<N, E>> {
+        final long number;
+        final FrozenGraph<N, E> snapshot;
+
+        Version(long number, FrozenGraph<N, E> snapshot) {
+            this.number = number;
+            this.snapshot = snapshot;
+        }
+    }
+}
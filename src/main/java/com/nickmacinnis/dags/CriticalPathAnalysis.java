@@ -0,0 +1,224 @@
+package com.nickmacinnis.dags;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * Critical-path analysis of a graph in which every node takes a fixed time, starting from the root at time zero.
+ * A node starts once all of its direct parents in the graph have finished. The analysis keeps, for every node,
+ * its earliest start and the length of the longest chain of nodes from it down to a leaf. The latest start and
+ * slack of a node follow from these and from the length of the whole graph.
+ * <p>
+ * Returned by {@link DirectedAcyclicGraph#analyzeCriticalPaths}, it is told of every direct edge attached or
+ * detached afterwards. Before the next query it recomputes earliest starts below the end node of each such edge,
+ * and chain lengths above its start node, in one pass each in topological order, leaving the rest of the graph
+ * alone. Durations are whole numbers, in whatever unit the caller likes, so that comparisons along paths are exact.
+ */
+public final class CriticalPathAnalysis<N extends Node<N, E>, E extends Edge<N, E>> implements AutoCloseable {
+    private final DirectedAcyclicGraph<N, E> graph;
+    private final ToLongFunction<? super N> duration;
+    private final Map<N, Long> durations = new HashMap<>();
+    private final Map<N, Long> earliestStarts = new HashMap<>();
+    /** Time from the start of each node to the end of the longest chain below it, its own duration included. */
+    private final Map<N, Long> remaining = new HashMap<>();
+    /** Nodes whose own earliest start, and that of everything below them, may have changed. */
+    private final Set<N> changedStarts = new LinkedHashSet<>();
+    /** Nodes whose chain length, and that of everything above them, may have changed. */
+    private final Set<N> changedChains = new LinkedHashSet<>();
+    private final DirectEdgeListener<N, E> listener = new DirectEdgeListener<>() {
+        @Override
+        public void directEdgeAttached(E edge) {
+            changedStarts.add(edge.getEndNode());
+            changedChains.add(edge.getStartNode());
+        }
+
+        @Override
+        public void directEdgeDetached(E edge) {
+            changedStarts.add(edge.getEndNode());
+            changedChains.add(edge.getStartNode());
+        }
+    };
+
+    CriticalPathAnalysis(DirectedAcyclicGraph<N, E> graph, ToLongFunction<? super N> duration) {
+        this.graph = graph;
+        this.duration = duration;
+        changedStarts.add(graph.rootNode);
+        graph.addListener(listener);
+    }
+
+    /** Fetch node's duration afresh before the next query, having changed since it was last fetched. */
+    public void durationChanged(N node) {
+        changedStarts.add(node);
+        changedChains.add(node);
+    }
+
+    /** Stop following edits to the graph. */
+    @Override
+    public void close() {
+        graph.removeListener(listener);
+    }
+
+    /** @return the time from the start of the root to the end of the last node to finish */
+    public long getLength() {
+        update();
+        return remaining.get(graph.rootNode);
+    }
+
+    public long getDuration(N node) {
+        update();
+        return durations.get(check(node));
+    }
+
+    /** @return the time at which node can start, once every node above it has finished as early as possible */
+    public long getEarliestStart(N node) {
+        update();
+        return earliestStarts.get(check(node));
+    }
+
+    public long getEarliestFinish(N node) {
+        return getEarliestStart(node) + getDuration(node);
+    }
+
+    /** @return the latest time at which node can start without making the graph as a whole take longer */
+    public long getLatestStart(N node) {
+        update();
+        return remaining.get(graph.rootNode) - remaining.get(check(node));
+    }
+
+    public long getLatestFinish(N node) {
+        return getLatestStart(node) + getDuration(node);
+    }
+
+    /** @return how long node can be put off without making the graph as a whole take longer */
+    public long getSlack(N node) {
+        return getLatestStart(node) - getEarliestStart(node);
+    }
+
+    /** @return true if putting off node at all would make the graph as a whole take longer */
+    public boolean isCritical(N node) {
+        return getSlack(node) == 0;
+    }
+
+    /**
+     * @return the longest chain of nodes from the root to node, which decides node's earliest start; where two
+     *         chains tie, the parent listed first among node's incoming edges is taken
+     */
+    public List<N> getCriticalPath(N node) {
+        update();
+        List<N> path = new ArrayList<>();
+        N current = check(node);
+        path.add(current);
+        while (current != graph.rootNode) {
+            long start = earliestStarts.get(current);
+            N next = null;
+            for (E edge : current.getIncomingEdges()) {
+                N parent = edge.getStartNode();
+                if (edge instanceof DirectEdge<?, ?> && graph.containsNode(parent)
+                        && earliestStarts.get(parent) + durations.get(parent) == start) {
+                    next = parent;
+                    break;
+                }
+            }
+            if (next == null) {
+                // every node below the root has a parent which decides its start, unless the starts are stale
+                throw new IllegalStateException("No parent of a node on the critical path decides its start");
+            }
+            current = next;
+            path.add(current);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * @return the longest chain of nodes from the root to a leaf, which decides the length of the graph; where
+     *         two chains tie, the child listed first among a node's outgoing edges is taken
+     */
+    public List<N> getCriticalPath() {
+        update();
+        List<N> path = new ArrayList<>();
+        N current = graph.rootNode;
+        path.add(current);
+        N next = current;
+        while (next != null) {
+            long below = remaining.get(current) - durations.get(current);
+            next = null;
+            for (E edge : current.getOutgoingEdges()) {
+                if (edge instanceof DirectEdge<?, ?> && remaining.get(edge.getEndNode()) == below) {
+                    next = edge.getEndNode();
+                    break;
+                }
+            }
+            if (next != null) {
+                path.add(next);
+                current = next;
+            }
+        }
+        return path;
+    }
+
+    private N check(N node) {
+        if (!graph.containsNode(node)) {
+            throw new GraphLogicException("This node is not part of the graph");
+        }
+        return node;
+    }
+
+    /**
+     * Recompute earliest starts at and below every changed start, parents first, then chain lengths at and above
+     * every changed chain and everything whose start was recomputed, children first. Nodes met which have left
+     * the graph are forgotten.
+     */
+    private void update() {
+        if (changedStarts.isEmpty() && changedChains.isEmpty()) {
+            return;
+        }
+        Set<N> below = Traversal.alongDirectEdges(changedStarts, false);
+        for (N node : TopologicalSort.sortRegion(below, below::contains, true)) {
+            if (!graph.containsNode(node)) {
+                forget(node);
+                continue;
+            }
+            long start = 0;
+            for (E edge : node.getIncomingEdges()) {
+                N parent = edge.getStartNode();
+                if (edge instanceof DirectEdge<?, ?> && graph.containsNode(parent)) {
+                    start = Math.max(start, earliestStarts.get(parent) + durations.get(parent));
+                }
+            }
+            earliestStarts.put(node, start);
+            durations.put(node, duration.applyAsLong(node));
+        }
+
+        // nodes which have just joined need chain lengths as well as starts
+        Set<N> region = Traversal.alongDirectEdges(changedChains, true);
+        region.addAll(below);
+        for (N node : TopologicalSort.sortRegion(region, region::contains, false)) {
+            if (!graph.containsNode(node)) {
+                forget(node);
+                continue;
+            }
+            long longest = 0;
+            for (E edge : node.getOutgoingEdges()) {
+                if (edge instanceof DirectEdge<?, ?>) {
+                    longest = Math.max(longest, remaining.get(edge.getEndNode()));
+                }
+            }
+            remaining.put(node, durations.get(node) + longest);
+        }
+        changedStarts.clear();
+        changedChains.clear();
+    }
+
+    private void forget(N node) {
+        durations.remove(node);
+        earliestStarts.remove(node);
+        remaining.remove(node);
+    }
+}
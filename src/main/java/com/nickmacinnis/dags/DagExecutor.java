@@ -0,0 +1,175 @@
+package com.nickmacinnis.dags;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Runs a task for every node of a graph, each once all of its direct parents have completed. Readiness is
+ * tracked with a counter of outstanding parents per node, so a node is handed to the executor the moment its
+ * last parent finishes and no thread ever waits on another. A task which fails, and every node below it, is
+ * reported; the descendants of a failed node are skipped rather than run.
+ * <p>
+ * Nodes made ready on a thread are queued and handed over one after another, never from inside the task that
+ * readied them, so an executor which runs tasks inline, such as {@code Runnable::run}, works through chains of any
+ * length without deepening the stack.
+ * <p>
+ * The graph is read once, as a {@link FrozenGraph}, when a run starts; edits made during the run are ignored.
+ */
+public class DagExecutor<N extends Node<N, E>, E extends Edge<N, E>> {
+    private final Executor executor;
+
+    /** Runs each task on a virtual thread of its own. */
+    public DagExecutor() {
+        this(null);
+    }
+
+    /**
+     * @param executor The executor to hand ready tasks to, such as a {@link java.util.concurrent.ForkJoinPool},
+     *                 or null to start a virtual thread per task
+     */
+    public DagExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    /** The work to do for one node. */
+    @FunctionalInterface
+    public interface Task<N> {
+        void run(N node) throws Exception;
+    }
+
+    /**
+     * Run task for every node of graph, parents before children, and wait for the last one to finish.
+     * @return the outcome and timing of every node
+     */
+    public ExecutionReport<N> run(DirectedAcyclicGraph<N, E> graph, Task<? super N> task) throws InterruptedException {
+        Run<N, E> run = new Run<>(graph.freeze(), task);
+        if (executor != null) {
+            run.start(executor);
+            return run.await();
+        }
+        try (ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor()) {
+            run.start(virtualThreads);
+            return run.await();
+        }
+    }
+
+    /** The state of one call to {@link #run}. */
+    private static final class Run<N extends Node<N, E>, E extends Edge<N, E>> {
+        private final FrozenGraph<N, E> snapshot;
+        private final Task<? super N> task;
+        private final AtomicIntegerArray pendingParents;
+        /** Set on a node before its count of pending parents drops, if any parent did not succeed. */
+        private final AtomicIntegerArray blocked;
+        private final ExecutionReport.Status[] statuses;
+        private final long[] starts;
+        private final long[] durations;
+        private final Throwable[] failures;
+        private final CountDownLatch remaining;
+        private final long startTime;
+        /** The nodes waiting to be handed to the executor by the thread already handing nodes over, if any. */
+        private final ThreadLocal<Deque<Integer>> handing = new ThreadLocal<>();
+        private Executor executor;
+
+        Run(FrozenGraph<N, E> snapshot, Task<? super N> task) {
+            this.snapshot = snapshot;
+            this.task = task;
+            int count = snapshot.getNodeCount();
+            pendingParents = new AtomicIntegerArray(count);
+            for (int id = 0; id < count; id++) {
+                pendingParents.set(id, snapshot.getParents(snapshot.getNode(id)).size());
+            }
+            blocked = new AtomicIntegerArray(count);
+            statuses = new ExecutionReport.Status[count];
+            starts = new long[count];
+            durations = new long[count];
+            failures = new Throwable[count];
+            remaining = new CountDownLatch(count);
+            startTime = System.nanoTime();
+        }
+
+        void start(Executor executor) {
+            this.executor = executor;
+            // every node of a snapshot is reachable from the root, so the root is the only node without parents
+            submit(0);
+        }
+
+        ExecutionReport<N> await() throws InterruptedException {
+            remaining.await();
+            return new ExecutionReport<>(snapshot.dft(), statuses, starts, durations, failures,
+                    System.nanoTime() - startTime);
+        }
+
+        private void submit(int id) {
+            Deque<Integer> queue = handing.get();
+            if (queue != null) {
+                // an inline executor would otherwise run id, and everything it readies, one frame deeper
+                queue.add(id);
+                return;
+            }
+            queue = new ArrayDeque<>();
+            queue.add(id);
+            handing.set(queue);
+            try {
+                while (!queue.isEmpty()) {
+                    int next = queue.poll();
+                    try {
+                        executor.execute(() -> execute(next));
+                    } catch (RejectedExecutionException e) {
+                        failures[next] = e;
+                        finish(next, ExecutionReport.Status.FAILED);
+                    }
+                }
+            } finally {
+                handing.remove();
+            }
+        }
+
+        private void execute(int id) {
+            N node = snapshot.getNode(id);
+            long start = System.nanoTime();
+            ExecutionReport.Status status = ExecutionReport.Status.SUCCEEDED;
+            try {
+                task.run(node);
+            } catch (Throwable t) {
+                failures[id] = t;
+                status = ExecutionReport.Status.FAILED;
+            }
+            starts[id] = start - startTime;
+            durations[id] = System.nanoTime() - start;
+            finish(id, status);
+        }
+
+        /** Record the outcome of a node, then release or skip each child whose last parent this was. */
+        private void finish(int id, ExecutionReport.Status status) {
+            Deque<Integer> skipped = new ArrayDeque<>();
+            complete(id, status, skipped);
+            while (!skipped.isEmpty()) {
+                complete(skipped.pop(), ExecutionReport.Status.SKIPPED, skipped);
+            }
+        }
+
+        private void complete(int id, ExecutionReport.Status status, Deque<Integer> skipped) {
+            statuses[id] = status;
+            for (N child : snapshot.getChildren(snapshot.getNode(id))) {
+                int childId = snapshot.idOf(child);
+                if (status != ExecutionReport.Status.SUCCEEDED) {
+                    blocked.set(childId, 1);
+                }
+                if (pendingParents.decrementAndGet(childId) == 0) {
+                    if (blocked.get(childId) == 0) {
+                        submit(childId);
+                    } else {
+                        skipped.push(childId);
+                    }
+                }
+            }
+            remaining.countDown();
+        }
+    }
+}
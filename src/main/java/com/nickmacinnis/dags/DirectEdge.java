@@ -12,11 +12,7 @@ public abstract non-sealed class DirectEdge<N extends Node<N, E>, E extends Edge
         this.entryEdge = getThis();
         this.directEdge = getThis();
         this.exitEdge = getThis();
-    }
-
-    @Override
-    public int hashCode() {
-        return Objects.hash(endNode, hops, startNode);
+        this.hash = Objects.hash(endNode, hops, startNode);
     }
 
     @Override
@@ -24,7 +20,8 @@ public abstract non-sealed class DirectEdge<N extends Node<N, E>, E extends Edge
         if (this == obj) return true;
         if (obj == null || getClass() != obj.getClass()) return false;
         DirectEdge<?, ?> other = (DirectEdge<?, ?>) obj;
-        return Objects.equals(endNode, other.endNode)
+        return hash == other.hash
+                && Objects.equals(endNode, other.endNode)
                 && Objects.equals(startNode, other.startNode);
     }
 }
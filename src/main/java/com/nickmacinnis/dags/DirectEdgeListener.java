@@ -0,0 +1,15 @@
+package com.nickmacinnis.dags;
+
+/**
+ * Told by a {@link DirectedAcyclicGraph} about each direct edge attached to or detached from one of its nodes.
+ * Nodes which join or leave the graph along with an edge are not reported separately; they are found below the
+ * edge's end node.
+ */
+interface DirectEdgeListener<N extends Node<N, E>, E extends Edge<N, E>> {
+
+    /** Called once a direct edge starting at a node of the graph has been registered. */
+    void directEdgeAttached(E edge);
+
+    /** Called once a direct edge starting at a node of the graph has been unregistered. */
+    void directEdgeDetached(E edge);
+}
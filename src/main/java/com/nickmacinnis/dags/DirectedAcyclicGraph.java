@@ -1,24 +1,60 @@
 package com.nickmacinnis.dags;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToLongFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * The root node of the graph, which has only outgoing edges.
- * The root node additionally tracks the contents of the graph as a whole.
+ * The root node additionally tracks the contents of the graph as a whole: every node reachable from the root
+ * belongs to the graph, and the graph keeps a registry of those nodes and of their outgoing edges which is
+ * updated as edges attach and detach.
  */
 public abstract class DirectedAcyclicGraph<N extends Node<N, E>, E extends Edge<N, E>> implements Iterable<N> {
     protected N rootNode;
+    private final Set<N> nodes = new LinkedHashSet<>();
+    private final Set<E> edges = new LinkedHashSet<>();
+    private final Set<E> directEdges = new LinkedHashSet<>();
+    /** Collects nodes which leave the graph while non-null. */
+    private List<N> departedNodes;
+    /** Collects the end nodes of detached direct edges while non-null, in place of releasing them at once. */
+    private Set<N> pendingReleases;
+    private final List<DirectEdgeListener<N, E>> listeners = new ArrayList<>();
+    /** Null unless metrics are set, so that graphs without them only check for null. */
+    private MetricsRecorder recorder;
 
+    /**
+     * @param rootNode The root, along with any nodes already below it; none of them may belong to another graph
+     * @throws GraphLogicException if the root already belongs to a graph
+     */
+    // the root and the nodes below it only record the graph they join, and call nothing of it while they do
+    @SuppressWarnings("this-escape")
     public DirectedAcyclicGraph(N rootNode) {
+        if (rootNode.getGraph() != null) {
+            throw new GraphLogicException("This node already belongs to a graph");
+        }
         this.rootNode = rootNode;
+        setGraph(rootNode, this);
+        for (E edge : rootNode.getOutgoingEdges()) {
+            register(edge);
+        }
     }
 
     /**
@@ -29,6 +65,151 @@ public abstract class DirectedAcyclicGraph<N extends Node<N, E>, E extends Edge<
         return rootNode.addChild(endNode);
     }
 
+    /**
+     * Adds a direct edge for each entry, from its key to its value, with the same result as calling
+     * {@link Node#addChild} for each in turn. The batch is checked as a whole before anything changes, so
+     * a batch which would create a cycle or join another graph adds no edges at all; closures bring themselves
+     * up to date once, after the last edge. Nodes without a closure gain no such saving: each edge still attaches
+     * its implicit edges as it is added, as {@link Node#addChild} would.
+     * @param edges Pairs of start node and end node, each starting at the root, a node of this graph or a node
+     *              of no graph
+     * @return number of edges added, not counting those already present
+     */
+    public int addEdges(Collection<? extends Map.Entry<N, N>> edges) {
+        checkBatch(edges);
+        Set<Closure<N, E>> closures = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Map.Entry<N, N> edge : edges) {
+            if (edge.getKey().getClosure() != null) {
+                closures.add(edge.getKey().getClosure());
+            }
+        }
+        for (Closure<N, E> closure : closures) {
+            closure.beginBatch();
+        }
+        int added = 0;
+        try {
+            for (Map.Entry<N, N> edge : edges) {
+                if (edge.getKey().addChild(edge.getValue())) {
+                    added++;
+                }
+            }
+        } finally {
+            for (Closure<N, E> closure : closures) {
+                closure.endBatch();
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Check every edge of a batch as {@link AbstractNode#addDirectEdge} would, and check that the edges together
+     * with those already present form no cycle.
+     * @throws GraphLogicException if any check fails
+     */
+    private void checkBatch(Collection<? extends Map.Entry<N, N>> edges) {
+        Map<N, List<N>> batchChildren = new HashMap<>();
+        for (Map.Entry<N, N> edge : edges) {
+            N startNode = edge.getKey();
+            N endNode = edge.getValue();
+            if (startNode == null || endNode == null) {
+                throw new GraphLogicException("Cannot create an edge to nowhere");
+            }
+            if (startNode.equals(endNode)) {
+                throw new GraphLogicException("This direct edge would create a self-referent cycle in the graph");
+            }
+            if (startNode.getClosure() != endNode.getClosure()) {
+                throw new GraphLogicException("Cannot join nodes whose reachability is maintained by different closures");
+            }
+            if (startNode.getGraph() != null && startNode.getGraph() != this) {
+                throw new GraphLogicException("Cannot add an edge from a node belonging to a different graph");
+            }
+            batchChildren.computeIfAbsent(startNode, key -> new ArrayList<>()).add(endNode);
+        }
+        checkBatchJoins(batchChildren);
+
+        // depth first from every start node along existing direct edges and the batch, looking for a node
+        // which is met again while still being expanded
+        Set<N> finished = new HashSet<>();
+        Set<N> expanding = new HashSet<>();
+        Deque<N> nodes = new ArrayDeque<>();
+        Deque<Iterator<N>> children = new ArrayDeque<>();
+        for (N start : batchChildren.keySet()) {
+            if (finished.contains(start)) {
+                continue;
+            }
+            expanding.add(start);
+            nodes.push(start);
+            children.push(batchChildrenOf(start, batchChildren));
+            while (!nodes.isEmpty()) {
+                Iterator<N> iterator = children.peek();
+                if (!iterator.hasNext()) {
+                    children.pop();
+                    N node = nodes.pop();
+                    expanding.remove(node);
+                    finished.add(node);
+                    continue;
+                }
+                N next = iterator.next();
+                if (expanding.contains(next)) {
+                    throw new GraphLogicException("These direct edges would create a cycle in the graph");
+                }
+                if (!finished.contains(next)) {
+                    expanding.add(next);
+                    nodes.push(next);
+                    children.push(batchChildrenOf(next, batchChildren));
+                }
+            }
+        }
+    }
+
+    /**
+     * Check, as {@link #checkJoin} does for one edge, that no node which the batch brings into this graph, along
+     * existing edges or edges of the batch, belongs to another graph.
+     * @throws GraphLogicException if one does
+     */
+    private void checkBatchJoins(Map<N, List<N>> batchChildren) {
+        Set<N> joining = new HashSet<>();
+        Deque<N> stack = new ArrayDeque<>();
+        for (Map.Entry<N, List<N>> entry : batchChildren.entrySet()) {
+            if (entry.getKey().getGraph() == this) {
+                for (N endNode : entry.getValue()) {
+                    visitJoining(endNode, joining, stack);
+                }
+            }
+        }
+        while (!stack.isEmpty()) {
+            N node = stack.pop();
+            for (E edge : node.getOutgoingEdges()) {
+                visitJoining(edge.getEndNode(), joining, stack);
+            }
+            for (N child : batchChildren.getOrDefault(node, Collections.emptyList())) {
+                visitJoining(child, joining, stack);
+            }
+        }
+    }
+
+    private void visitJoining(N node, Set<N> joining, Deque<N> stack) {
+        DirectedAcyclicGraph<N, E> graph = node.getGraph();
+        if (graph != null && graph != this) {
+            throw new GraphLogicException("Cannot join nodes belonging to different graphs");
+        }
+        if (graph == null && joining.add(node)) {
+            stack.push(node);
+        }
+    }
+
+    /** @return the direct children of node, followed by its children in the batch */
+    private Iterator<N> batchChildrenOf(N node, Map<N, List<N>> batchChildren) {
+        List<N> children = new ArrayList<>();
+        for (E edge : node.getOutgoingEdges()) {
+            if (edge instanceof DirectEdge<?, ?>) {
+                children.add(edge.getEndNode());
+            }
+        }
+        children.addAll(batchChildren.getOrDefault(node, Collections.emptyList()));
+        return children.iterator();
+    }
+
     /**
      * Removes the node from the root node's children.
      * @return true if removal was successful
@@ -41,12 +222,56 @@ public abstract class DirectedAcyclicGraph<N extends Node<N, E>, E extends Edge<
      * Removes the node from the graph, cleaning up any nodes that become unreachable.
      */
     public void removeNode(N node) {
-        Set<N> allNodes = collectChildren();
-        detachSingleNode(node);
-        Set<N> remainingNodes = collectChildren();
-        allNodes.removeAll(remainingNodes);
+        removeNodes(List.of(node));
+    }
+
+    /**
+     * Removes the nodes from the graph, cleaning up any nodes that become unreachable.
+     * All the nodes are detached before the graph looks for unreachable nodes, so that it does so only once.
+     */
+    public void removeNodes(Collection<? extends N> targets) {
+        if (recorder == null) {
+            detachNodes(targets);
+            return;
+        }
+        recorder.begin();
+        try {
+            detachNodes(targets);
+        } finally {
+            recorder.end(GraphMetrics.Operation.REMOVE_NODES);
+        }
+    }
+
+    private void detachNodes(Collection<? extends N> targets) {
+        List<N> orphans = new ArrayList<>();
+        departedNodes = orphans;
+        pendingReleases = new LinkedHashSet<>();
+        try {
+            for (N node : targets) {
+                detachSingleNode(node);
+            }
+            Set<N> candidates = pendingReleases;
+            pendingReleases = null;
+            release(candidates);
+        } finally {
+            departedNodes = null;
+            pendingReleases = null;
+        }
+        if (recorder != null) {
+            // orphans have left the graph, so their edges no longer report to it as they detach; every implicit
+            // edge still attached to an orphan starts at one, since the nodes left in the graph cannot reach it
+            long implicitEdges = 0;
+            for (N orphan : orphans) {
+                for (E edge : orphan.getOutgoingEdges()) {
+                    if (edge instanceof ImplicitEdge<?, ?>) {
+                        implicitEdges++;
+                    }
+                }
+            }
+            recorder.implicitEdgesDestroyed(implicitEdges);
+        }
         // "deorphanize"
-        for (N orphan : allNodes) {
+        for (N orphan : orphans) {
             detachSingleNode(orphan);
         }
     }
@@ -55,22 +280,38 @@ public abstract class DirectedAcyclicGraph<N extends Node<N, E>, E extends Edge<
      * Clean up a single node by detaching all edges from it
      */
     private void detachSingleNode(N node) {
-        for (E edge : new LinkedHashSet<>(node.getIncomingEdges())) {
+        // detaching one edge can cascade to others in the same list; those are already gone when reached
+        for (E edge : new ArrayList<>(node.getIncomingEdges())) {
             edge.detach();
         }
-        for (E edge : new LinkedHashSet<>(node.getOutgoingEdges())) {
+        for (E edge : new ArrayList<>(node.getOutgoingEdges())) {
             edge.detach();
         }
     }
 
     /** @return number of nodes in the graph */
     public int getNodeCount() {
-        return rootNode.collectChildren().size() + 1;
+        return nodes.size() + 1;
     }
 
     /** @return number of edges in the graph */
     public int getEdgeCount() {
-        return rootNode.collectEdges().size();
+        return edges.size();
+    }
+
+    /** @return true if node is the root or reachable from it */
+    public boolean containsNode(N node) {
+        return node == rootNode || nodes.contains(node);
+    }
+
+    /** @return true if edge starts at a node of the graph */
+    public boolean containsEdge(E edge) {
+        return edges.contains(edge);
+    }
+
+    /** @return an immutable snapshot of the graph as it stands, for lock-free reads */
+    public FrozenGraph<N, E> freeze() {
+        return new FrozenGraph<>(rootNode);
     }
 
     @Override
@@ -78,71 +319,263 @@ public abstract class DirectedAcyclicGraph<N extends Node<N, E>, E extends Edge<
         return rootNode.iterator();
     }
 
-    /** @return the unique set of all non-root nodes in the graph */
+    /** @return a live, unmodifiable view of all non-root nodes in the graph */
     public Set<N> collectChildren() {
-        return rootNode.collectChildren();
+        return Collections.unmodifiableSet(nodes);
     }
 
-    /** @return the unique set of all direct edges in the graph */
+    /** @return a live, unmodifiable view of all direct edges in the graph */
     public Set<E> collectDirectEdges() {
-        return rootNode.collectDirectEdges();
+        return Collections.unmodifiableSet(directEdges);
     }
 
-    /** @return the unique set of all edges in the graph */
+    /** @return a live, unmodifiable view of all edges in the graph */
     public Set<E> collectEdges() {
-        return rootNode.collectEdges();
+        return Collections.unmodifiableSet(edges);
     }
 
     /**
-     * Rearrange the graph to remove most unnecessary edge crossings, then
-     * generate coordinates for each node.
+     * @return the root and then every other node of the graph, in the order of {@link #collectChildren()}, read
+     *         from the registry in place rather than copied; the stream is sized and splits for parallel use
      */
-    public void calculateNodeCoordinates() {
-        for (N node : rootNode.collectChildren()) {
-            node.setY(node.calculateDepth());
-        }
-        untangle();
-        List<List<N>> rootGrid = rootNode.generateGrid();
-        Map<N, Integer> nodeOccurrences = new HashMap<>();
-        for (int i = 0; i < rootGrid.size(); i++) {
-            List<N> row = rootGrid.get(i);
-            for (int j = 0; j < row.size(); j++) {
-                N node = row.get(j);
-                int occurrences = 1;
-                if (nodeOccurrences.containsKey(node)) {
-                    occurrences = nodeOccurrences.get(node) + 1;
+    public Stream<N> nodes() {
+        return StreamSupport.stream(new RegistrySpliterator<>(rootNode, nodes), false);
+    }
+
+    /** @return every edge of the graph, direct and implicit, as {@link #nodes()} streams nodes */
+    public Stream<E> edges() {
+        return StreamSupport.stream(new RegistrySpliterator<>(null, edges), false);
+    }
+
+    /** @return every direct edge of the graph, as {@link #nodes()} streams nodes */
+    public Stream<E> directEdges() {
+        return StreamSupport.stream(new RegistrySpliterator<>(null, directEdges), false);
+    }
+
+    /**
+     * Check that an edge from a node of this graph to endNode would not pull in nodes of another graph.
+     * @throws GraphLogicException if it would
+     */
+    void checkJoin(N endNode) {
+        DirectedAcyclicGraph<N, E> endGraph = endNode.getGraph();
+        if (endGraph == this) {
+            return;
+        }
+        if (endGraph != null) {
+            throw new GraphLogicException("Cannot join nodes belonging to different graphs");
+        }
+        Set<N> visited = new HashSet<>();
+        Deque<N> stack = new ArrayDeque<>();
+        stack.push(endNode);
+        visited.add(endNode);
+        while (!stack.isEmpty()) {
+            for (E edge : stack.pop().getOutgoingEdges()) {
+                N next = edge.getEndNode();
+                DirectedAcyclicGraph<N, E> nextGraph = next.getGraph();
+                if (nextGraph != null && nextGraph != this) {
+                    throw new GraphLogicException("Cannot join nodes belonging to different graphs");
+                }
+                if (nextGraph == null && visited.add(next)) {
+                    stack.push(next);
                 }
-                nodeOccurrences.put(node, occurrences);
-                double oldX = node.getX();
-                node.setX(oldX + (i - oldX) / occurrences);
             }
         }
-        Set<N> positionedNodes = new LinkedHashSet<>();
-        //remove collisions
-        for (N node : rootNode.collectChildren()) {
-            N overlappingNode = findOverlappingNode(node, positionedNodes);
-            while (overlappingNode != null) {
-                node.setX(overlappingNode.getX() + 1);
-                overlappingNode = findOverlappingNode(node, positionedNodes);
+    }
+
+    /**
+     * Keep a weighted critical-path analysis of the graph, with each node taking the time given by duration. The
+     * analysis follows later edits, redoing only the part of the graph each edit affects, until it is closed.
+     */
+    public CriticalPathAnalysis<N, E> analyzeCriticalPaths(ToLongFunction<? super N> duration) {
+        return new CriticalPathAnalysis<>(this, duration);
+    }
+
+    /**
+     * Lay the graph out as {@link #calculateNodeCoordinates()} does, and keep the coordinates up to date with later
+     * edits, redoing only the part of the layout each edit affects, until the layout is closed.
+     */
+    public IncrementalLayout<N, E> layOutIncrementally() {
+        return new IncrementalLayout<>(this);
+    }
+
+    /**
+     * Report every later edit and layout of this graph to metrics, or stop reporting if it is null. Metrics only
+     * see operations started on a node of this graph, or on this graph itself.
+     */
+    public void setMetrics(GraphMetrics metrics) {
+        recorder = metrics != null ? new MetricsRecorder(metrics) : null;
+    }
+
+    /** @return the metrics set on this graph, or null */
+    public GraphMetrics getMetrics() {
+        return recorder != null ? recorder.getMetrics() : null;
+    }
+
+    MetricsRecorder getRecorder() {
+        return recorder;
+    }
+
+    void addListener(DirectEdgeListener<N, E> listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(DirectEdgeListener<N, E> listener) {
+        listeners.remove(listener);
+    }
+
+    /** Called by an edge starting at a node of this graph once it has attached. */
+    void edgeAttached(E edge) {
+        register(edge);
+        if (recorder != null && edge instanceof ImplicitEdge<?, ?>) {
+            recorder.implicitEdgesCreated(1);
+        }
+        if (edge instanceof DirectEdge<?, ?>) {
+            for (DirectEdgeListener<N, E> listener : listeners) {
+                listener.directEdgeAttached(edge);
+            }
+        }
+    }
+
+    /** Called by an edge starting at a node of this graph once it and its dependent edges have detached. */
+    void edgeDetached(E edge) {
+        edges.remove(edge);
+        if (recorder != null && edge instanceof ImplicitEdge<?, ?>) {
+            recorder.implicitEdgesDestroyed(1);
+        }
+        if (directEdges.remove(edge)) {
+            for (DirectEdgeListener<N, E> listener : listeners) {
+                listener.directEdgeDetached(edge);
+            }
+            if (pendingReleases != null) {
+                pendingReleases.add(edge.getEndNode());
+            } else {
+                release(List.of(edge.getEndNode()));
+            }
+        }
+    }
+
+    /** Register an edge, along with its end node and everything below it if they are new to the graph. */
+    private void register(E edge) {
+        edges.add(edge);
+        if (edge instanceof DirectEdge<?, ?>) {
+            directEdges.add(edge);
+        }
+        N endNode = edge.getEndNode();
+        if (endNode.getGraph() != null) {
+            return;
+        }
+        Deque<N> stack = new ArrayDeque<>();
+        setGraph(endNode, this);
+        stack.push(endNode);
+        while (!stack.isEmpty()) {
+            N node = stack.pop();
+            nodes.add(node);
+            for (E outgoingEdge : node.getOutgoingEdges()) {
+                edges.add(outgoingEdge);
+                if (outgoingEdge instanceof DirectEdge<?, ?>) {
+                    directEdges.add(outgoingEdge);
+                }
+                N next = outgoingEdge.getEndNode();
+                if (next.getGraph() == null) {
+                    setGraph(next, this);
+                    stack.push(next);
+                }
             }
-            positionedNodes.add(node);
         }
     }
 
     /**
-     * Identify a node in the set of already positioned nodes which has the same
-     * Y coordinate as the candidate node and which has X coordinate within 1 of the
-     * candidate node.
-     * @return The first node found which overlaps, or null if none found
+     * Remove each candidate from the graph if it has lost its last direct edge from a node of the graph, along
+     * with every node below it which is left unreachable in turn.
      */
-    private N findOverlappingNode(N candidateNode, Set<N> positionedNodes) {
-        for (N positionedNode : positionedNodes) {
-            if (candidateNode.getY() == positionedNode.getY() &&
-                    Math.abs(candidateNode.getX() - positionedNode.getX()) < 1) {
-                return positionedNode;
+    private void release(Collection<N> candidates) {
+        // a candidate with a parent left in the graph can only go if that parent goes, so it is found below
+        // one of the candidates which go outright
+        Set<N> region = new HashSet<>();
+        Deque<N> stack = new ArrayDeque<>();
+        for (N candidate : candidates) {
+            if (nodes.contains(candidate) && !hasParentInGraph(candidate) && region.add(candidate)) {
+                stack.push(candidate);
+            }
+        }
+        while (!stack.isEmpty()) {
+            for (E edge : stack.pop().getOutgoingEdges()) {
+                N next = edge.getEndNode();
+                if (edge instanceof DirectEdge<?, ?> && nodes.contains(next) && region.add(next)) {
+                    stack.push(next);
+                }
+            }
+        }
+        // parents first, so that each node is judged after every parent it has within the region
+        for (N candidate : TopologicalSort.sortRegion(region, region::contains, true)) {
+            if (!hasParentInGraph(candidate)) {
+                nodes.remove(candidate);
+                setGraph(candidate, null);
+                for (E outgoingEdge : candidate.getOutgoingEdges()) {
+                    edges.remove(outgoingEdge);
+                    directEdges.remove(outgoingEdge);
+                }
+                if (departedNodes != null) {
+                    departedNodes.add(candidate);
+                }
+            }
+        }
+    }
+
+    /** Record on node the graph it has joined, or null once it has left. */
+    private static <N extends Node<N, E>, E extends Edge<N, E>> void setGraph(N node,
+            DirectedAcyclicGraph<N, E> graph) {
+        ((AbstractNode<N, E>) node).setGraph(graph);
+    }
+
+    private boolean hasParentInGraph(N node) {
+        for (E edge : node.getIncomingEdges()) {
+            if (edge instanceof DirectEdge<?, ?> && edge.getStartNode().getGraph() == this) {
+                return true;
             }
         }
-        return null;
+        return false;
+    }
+
+    /**
+     * Rearrange the graph to remove most unnecessary edge crossings, then
+     * generate coordinates for each node, using the common fork-join pool.
+     */
+    public void calculateNodeCoordinates() {
+        calculateNodeCoordinates(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * As {@link #calculateNodeCoordinates()}, with the nodes of each level of the graph handled in parallel on
+     * pool. The coordinates do not depend on the pool.
+     */
+    public void calculateNodeCoordinates(ForkJoinPool pool) {
+        if (recorder == null) {
+            layOut(pool, true);
+            return;
+        }
+        recorder.begin();
+        try {
+            layOut(pool, true);
+        } finally {
+            recorder.end(GraphMetrics.Operation.CALCULATE_NODE_COORDINATES);
+        }
+    }
+
+    /** Generate coordinates for each node, first untangling the graph if asked to. */
+    void layOut(ForkJoinPool pool, boolean untangle) {
+        Set<N> children = rootNode.collectChildren();
+        List<N> nodes = new ArrayList<>(children.size() + 1);
+        nodes.add(rootNode);
+        nodes.addAll(children);
+        List<List<N>> levels = Layout.levels(nodes);
+        Layout.assignDepths(levels, children, pool);
+        if (untangle) {
+            untangle();
+        }
+        Layout.assignColumns(rootNode, levels, pool);
+        //remove collisions
+        Layout.removeCollisions(rootNode.collectChildren(), pool);
     }
 
     /**
@@ -176,142 +609,149 @@ public abstract class DirectedAcyclicGraph<N extends Node<N, E>, E extends Edge<
             nodeChildren.put(node, children);
         }
 
-        final List<N> firstPassSortedNodes = new ArrayList<>();
+        List<N> firstPassSortedNodes = orderByMostRecentNeighbour(initialList, nodeParents);
+        Collections.reverse(firstPassSortedNodes);
+        List<N> secondPassSortedNodes = orderByMostRecentNeighbour(firstPassSortedNodes, nodeChildren);
+        Collections.reverse(secondPassSortedNodes);
+
+        //now each node sorts its edges in the order of the nodes in this list
+        Map<N, Integer> secondPassIndices = indices(secondPassSortedNodes);
+        Comparator<E> outgoingEdgeComparator = Comparator.comparingInt(
+                edge -> secondPassIndices.getOrDefault(edge.getEndNode(), -1));
+
+        Set<N> nodes = new LinkedHashSet<>();
+        for (N node : this) {
+            nodes.add(node);
+        }
+        for (N node : nodes) {
+            node.getOutgoingEdges().sort(outgoingEdgeComparator);
+        }
+
+        //now finally regenerate the node ordering based on traversal so that pass-through edges
+        // won't distort everything.
+        Map<N, Integer> traversalIndices = indices(rootNode.dft());
+
+        //and reorder all the edges according to this list
+        Comparator<E> incomingEdgeComparator = Comparator.comparingInt(
+                edge -> traversalIndices.getOrDefault(edge.getStartNode(), -1));
+        outgoingEdgeComparator = Comparator.comparingInt(
+                edge -> traversalIndices.getOrDefault(edge.getEndNode(), -1));
 
-        final Comparator<N> firstPassComparator = (n1, n2) -> {
-            List<N> n1Parents = nodeParents.get(n1);
-            for (N parent : n1Parents) {
-                if (!firstPassSortedNodes.contains(parent)) {
-                    return 1;
+        nodes.clear();
+        for (N node : this) {
+            nodes.add(node);
+        }
+        for (N node : nodes) {
+            node.getIncomingEdges().sort(incomingEdgeComparator);
+            node.getOutgoingEdges().sort(outgoingEdgeComparator);
+        }
+    }
+
+    /**
+     * One pass of {@link #untangle()}: repeatedly take, of the nodes whose neighbours have all been taken, the one
+     * whose most recently taken neighbour was taken earliest. Ties go to the node whose next most recent
+     * neighbour was taken earliest, and so on; a node which runs out of neighbours first loses the tie, and a tie
+     * which remains goes to the node earlier in the list. A node with no neighbours at all comes after any node
+     * whose neighbours were taken before the last node taken, but before any node neighbouring the last one. If
+     * no node is ready, the earliest node in the list is taken regardless.
+     * @param nodes The nodes to order
+     * @param neighbours The neighbours of each node which must be taken before it
+     * @return the nodes in the order taken
+     */
+    private List<N> orderByMostRecentNeighbour(List<N> nodes, Map<N, List<N>> neighbours) {
+        Map<N, Integer> listIndices = indices(nodes);
+        int[] pending = new int[nodes.size()];
+        List<List<Integer>> dependents = new ArrayList<>(nodes.size());
+        for (int i = 0; i < nodes.size(); i++) {
+            dependents.add(new ArrayList<>());
+        }
+        for (int i = 0; i < nodes.size(); i++) {
+            for (N neighbour : neighbours.get(nodes.get(i))) {
+                Integer neighbourIndex = listIndices.get(neighbour);
+                pending[i]++;
+                if (neighbourIndex != null) {
+                    dependents.get(neighbourIndex).add(i);
                 }
             }
-            List<N> n2Parents = nodeParents.get(n2);
-            for (N parent : n2Parents) {
-                if (!firstPassSortedNodes.contains(parent)) {
-                    return -1;
+        }
+
+        // a node's neighbours are all taken when it becomes ready, so its key never changes afterwards
+        int[][] keys = new int[nodes.size()][];
+        PriorityQueue<Integer> ready = new PriorityQueue<>((i1, i2) -> {
+            int[] key1 = keys[i1];
+            int[] key2 = keys[i2];
+            for (int k = 0; k < key1.length || k < key2.length; k++) {
+                // running out of neighbours counts as later than any neighbour
+                int position1 = k < key1.length ? key1[k] : Integer.MAX_VALUE;
+                int position2 = k < key2.length ? key2[k] : Integer.MAX_VALUE;
+                if (position1 != position2) {
+                    return Integer.compare(position1, position2);
                 }
             }
-            int n1UnmarkedParents = n1Parents.size();
-            int n2UnmarkedParents = n2Parents.size();
-            for (int i = firstPassSortedNodes.size(); i > 0; i--) {
-                N recentNode = firstPassSortedNodes.get(i - 1);
-                boolean n1HasMostRecentNode = n1Parents.contains(recentNode);
-                if (n1HasMostRecentNode) {
-                    n1UnmarkedParents--;
-                }
-                boolean n2HasMostRecentNode = n2Parents.contains(recentNode);
-                if (n2HasMostRecentNode) {
-                    n2UnmarkedParents--;
-                }
-                if (n1HasMostRecentNode && !n2HasMostRecentNode) {
-                    return 1;
-                } else if (n2HasMostRecentNode && !n1HasMostRecentNode) {
-                    return -1;
-                } else if (n1UnmarkedParents == 0 && n2UnmarkedParents == 0) {
-                    return 0;
-                } else if (n1UnmarkedParents == 0) {
-                    return 1;
-                } else if (n2UnmarkedParents == 0) {
-                    return -1;
-                }
+            return Integer.compare(i1, i2);
+        });
+        Map<N, Integer> positions = new HashMap<>();
+        // nodes without neighbours rank against the others by the last node taken, so are kept apart in list order
+        PriorityQueue<Integer> unconstrained = new PriorityQueue<>();
+        boolean[] taken = new boolean[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            if (neighbours.get(nodes.get(i)).isEmpty()) {
+                unconstrained.add(i);
             }
-            return 0;
-        };
-
-        while (!initialList.isEmpty()) {
-            N nextNode = Collections.min(initialList, firstPassComparator);
-            firstPassSortedNodes.add(nextNode);
-            initialList.remove(nextNode);
         }
-        Collections.reverse(firstPassSortedNodes);
-
-        final List<N> secondPassSortedNodes = new ArrayList<>();
 
-        Comparator<N> secondPassComparator = (n1, n2) -> {
-            List<N> n1Children = nodeChildren.get(n1);
-            for (N child : n1Children) {
-                if (!secondPassSortedNodes.contains(child)) {
-                    return 1;
-                }
+        List<N> sortedNodes = new ArrayList<>(nodes.size());
+        int firstUntaken = 0;
+        while (sortedNodes.size() < nodes.size()) {
+            while (!ready.isEmpty() && taken[ready.peek()]) {
+                ready.poll();
             }
-            List<N> n2Children = nodeChildren.get(n2);
-            for (N child : n2Children) {
-                if (!secondPassSortedNodes.contains(child)) {
-                    return -1;
-                }
+            Integer next;
+            if (!unconstrained.isEmpty()
+                    && (ready.isEmpty() || keys[ready.peek()][0] == sortedNodes.size() - 1)) {
+                next = unconstrained.poll();
+            } else {
+                next = ready.poll();
             }
-            int n1UnmarkedChildren = n1Children.size();
-            int n2UnmarkedChildren = n2Children.size();
-            for (int i = secondPassSortedNodes.size(); i > 0; i--) {
-                N recentNode = secondPassSortedNodes.get(i - 1);
-                boolean n1HasMostRecentNode = n1Children.contains(recentNode);
-                if (n1HasMostRecentNode) {
-                    n1UnmarkedChildren--;
-                }
-                boolean n2HasMostRecentNode = n2Children.contains(recentNode);
-                if (n2HasMostRecentNode) {
-                    n2UnmarkedChildren--;
-                }
-                if (n1HasMostRecentNode && !n2HasMostRecentNode) {
-                    return 1;
-                } else if (n2HasMostRecentNode && !n1HasMostRecentNode) {
-                    return -1;
-                } else if (n1UnmarkedChildren == 0 && n2UnmarkedChildren == 0) {
-                    return 0;
-                } else if (n1UnmarkedChildren == 0) {
-                    return 1;
-                } else if (n2UnmarkedChildren == 0) {
-                    return -1;
+            if (next == null) {
+                while (taken[firstUntaken]) {
+                    firstUntaken++;
                 }
+                next = firstUntaken;
             }
-            return 0;
-        };
-
-        while (!firstPassSortedNodes.isEmpty()) {
-            N nextNode = Collections.min(firstPassSortedNodes, secondPassComparator);
-            secondPassSortedNodes.add(nextNode);
-            firstPassSortedNodes.remove(nextNode);
-        }
-        Collections.reverse(secondPassSortedNodes);
-
-        //now each node sorts its edges in the order of the nodes in this list
-
-        Comparator<E> outgoingEdgeComparator = (o1, o2) -> {
-            Integer o1Index = secondPassSortedNodes.indexOf(o1.getEndNode());
-            Integer o2Index = secondPassSortedNodes.indexOf(o2.getEndNode());
-            return o1Index.compareTo(o2Index);
-        };
-
-        for (N node : this) {
-            Collections.sort(node.getOutgoingEdges(), outgoingEdgeComparator);
-        }
-
-        //now finally regenerate the node ordering based on traversal so that pass-through edges
-        // won't distort everything.
-        final List<N> nodesOrderedByTraversal = new ArrayList<>();
-        for (N node : rootNode.dft()) {
-            if (!nodesOrderedByTraversal.contains(node)) {
-                nodesOrderedByTraversal.add(node);
+            taken[next] = true;
+            N node = nodes.get(next);
+            positions.put(node, sortedNodes.size());
+            sortedNodes.add(node);
+            for (int dependent : dependents.get(next)) {
+                if (--pending[dependent] == 0 && !taken[dependent]) {
+                    List<N> dependentNeighbours = neighbours.get(nodes.get(dependent));
+                    int[] key = new int[dependentNeighbours.size()];
+                    for (int k = 0; k < key.length; k++) {
+                        key[k] = positions.get(dependentNeighbours.get(k));
+                    }
+                    Arrays.sort(key);
+                    // most recent first
+                    for (int low = 0, high = key.length - 1; low < high; low++, high--) {
+                        int swap = key[low];
+                        key[low] = key[high];
+                        key[high] = swap;
+                    }
+                    keys[dependent] = key;
+                    ready.add(dependent);
+                }
             }
         }
+        return sortedNodes;
+    }
 
-        //and reorder all the edges according to this list
-        Comparator<E> incomingEdgeComparator = (o1, o2) -> {
-            Integer o1Index = nodesOrderedByTraversal.indexOf(o1.getStartNode());
-            Integer o2Index = nodesOrderedByTraversal.indexOf(o2.getStartNode());
-            return o1Index.compareTo(o2Index);
-        };
-
-        outgoingEdgeComparator = (o1, o2) -> {
-            Integer o1Index = nodesOrderedByTraversal.indexOf(o1.getEndNode());
-            Integer o2Index = nodesOrderedByTraversal.indexOf(o2.getEndNode());
-            return o1Index.compareTo(o2Index);
-        };
-
-        for (N node : this) {
-            Collections.sort(node.getIncomingEdges(), incomingEdgeComparator);
-            Collections.sort(node.getOutgoingEdges(), outgoingEdgeComparator);
+    private static <T> Map<T, Integer> indices(List<T> list) {
+        Map<T, Integer> indices = new HashMap<>();
+        for (int i = list.size() - 1; i >= 0; i--) {
+            // the first occurrence wins, as for indexOf
+            indices.put(list.get(i), i);
         }
+        return indices;
     }
 
     /** @return this */
@@ -38,6 +38,9 @@ public interface Edge<N extends Node<N, E>, E extends Edge<N, E>> {
     /** Register this edge with its start and end nodes. */
     boolean attach();
 
-    /** Unregister this edge and cascade-detach all dependent implicit edges. */
+    /**
+     * Unregister this edge and cascade-detach all dependent implicit edges.
+     * @return false if the edge was not attached
+     */
     boolean detach();
 }
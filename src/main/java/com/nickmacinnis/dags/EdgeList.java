@@ -0,0 +1,327 @@
+package com.nickmacinnis.dags;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.function.Function;
+
+/**
+ * The incoming or outgoing edges of a node, in insertion order (or whatever order they were last sorted into).
+ * Once the list grows past a handful of edges it is indexed by edge and by the node at the far end of each edge,
+ * so that membership, removal and lookup of the direct edge to a given node take constant time.
+ * Removal leaves a hole which is compacted away lazily, by the next edit which needs positions. Reads never
+ * compact, so they change nothing under an iterator or another reader; a positional read while holes remain
+ * counts its way past them.
+ * An edge equal to one already present is not added again.
+ */
+public final class EdgeList<N extends Node<N, E>, E extends Edge<N, E>> extends AbstractList<E> implements RandomAccess {
+    /** Lists this short are scanned instead of indexed. */
+    private static final int INDEX_THRESHOLD = 8;
+
+    private final Function<E, N> endpoint;
+    private Object[] elements;
+    /** Number of slots in use, holes included. */
+    private int end;
+    private int size;
+    private Map<E, Integer> slots;
+    private Map<N, Integer> endpointCounts;
+    private Map<N, E> directEdges;
+
+    /**
+     * @param endpoint Selects the node at the far end of an edge: the end node for outgoing edges, the start node
+     *                 for incoming edges
+     */
+    public EdgeList(Function<E, N> endpoint) {
+        this.endpoint = endpoint;
+        this.elements = new Object[4];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return slotOf(o) >= 0;
+    }
+
+    @Override
+    public boolean add(E edge) {
+        if (contains(edge)) {
+            return false;
+        }
+        if (end == elements.length) {
+            if (end - size > size / 2) {
+                compact();
+            } else {
+                elements = Arrays.copyOf(elements, end * 2);
+            }
+        }
+        elements[end] = edge;
+        if (slots != null) {
+            index(edge, end);
+        }
+        end++;
+        size++;
+        modCount++;
+        if (slots == null && size > INDEX_THRESHOLD) {
+            buildIndex();
+        }
+        return true;
+    }
+
+    @Override
+    public void add(int position, E edge) {
+        if (position < 0 || position > size) {
+            throw new IndexOutOfBoundsException(position);
+        }
+        if (!add(edge)) {
+            return;
+        }
+        compact();
+        System.arraycopy(elements, position, elements, position + 1, size - 1 - position);
+        elements[position] = edge;
+        reindex(position);
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        int slot = slotOf(o);
+        if (slot < 0) {
+            return false;
+        }
+        E removed = elementAt(slot);
+        elements[slot] = null;
+        size--;
+        if (slots != null) {
+            unindex(removed);
+        }
+        if (slot == end - 1) {
+            end--;
+        }
+        if (size == 0) {
+            end = 0;
+        }
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public E remove(int position) {
+        E edge = get(position);
+        remove(edge);
+        return edge;
+    }
+
+    @Override
+    public E get(int position) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException(position);
+        }
+        if (end == size) {
+            return elementAt(position);
+        }
+        int seen = 0;
+        for (int slot = 0; ; slot++) {
+            if (elements[slot] != null && seen++ == position) {
+                return elementAt(slot);
+            }
+        }
+    }
+
+    @Override
+    public E set(int position, E edge) {
+        if (position < 0 || position >= size) {
+            throw new IndexOutOfBoundsException(position);
+        }
+        compact();
+        E previous = elementAt(position);
+        if (slots != null) {
+            unindex(previous);
+            index(edge, position);
+        }
+        elements[position] = edge;
+        return previous;
+    }
+
+    @Override
+    public void sort(Comparator<? super E> comparator) {
+        compact();
+        @SuppressWarnings("unchecked")
+        Comparator<Object> elementComparator = (Comparator<Object>) comparator;
+        Arrays.sort(elements, 0, size, elementComparator);
+        reindex(0);
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        elements = new Object[4];
+        end = 0;
+        size = 0;
+        if (slots != null) {
+            slots.clear();
+            endpointCounts.clear();
+            directEdges.clear();
+        }
+        modCount++;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private int cursor = advance(0);
+            private int last = -1;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < end;
+            }
+
+            @Override
+            public E next() {
+                checkForComodification();
+                if (cursor >= end) {
+                    throw new NoSuchElementException();
+                }
+                last = cursor;
+                cursor = advance(cursor + 1);
+                return elementAt(last);
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                checkForComodification();
+                EdgeList.this.remove(elementAt(last));
+                last = -1;
+                expectedModCount = modCount;
+            }
+
+            private int advance(int from) {
+                while (from < end && elements[from] == null) {
+                    from++;
+                }
+                return from;
+            }
+
+            private void checkForComodification() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+            }
+        };
+    }
+
+    /** @return the direct edge whose far end is node, or null if there is none */
+    public E findDirect(N node) {
+        if (directEdges != null) {
+            return directEdges.get(node);
+        }
+        for (int i = 0; i < end; i++) {
+            E edge = elementAt(i);
+            if (edge instanceof DirectEdge<?, ?> && Objects.equals(node, endpoint.apply(edge))) {
+                return edge;
+            }
+        }
+        return null;
+    }
+
+    /** @return true if any edge, direct or implicit, has node at its far end */
+    public boolean hasEndpoint(N node) {
+        if (endpointCounts != null) {
+            return endpointCounts.containsKey(node);
+        }
+        for (int i = 0; i < end; i++) {
+            E edge = elementAt(i);
+            if (edge != null && Objects.equals(node, endpoint.apply(edge))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E elementAt(int slot) {
+        return (E) elements[slot];
+    }
+
+    private int slotOf(Object o) {
+        if (slots != null) {
+            Integer slot = slots.get(o);
+            return slot == null ? -1 : slot;
+        }
+        for (int i = 0; i < end; i++) {
+            if (elements[i] != null && elements[i].equals(o)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Close up the holes left by removals, keeping the remaining edges in order; only ever called by edits. */
+    private void compact() {
+        if (end == size) {
+            return;
+        }
+        modCount++;
+        int live = 0;
+        for (int i = 0; i < end; i++) {
+            if (elements[i] != null) {
+                elements[live++] = elements[i];
+            }
+        }
+        Arrays.fill(elements, live, end, null);
+        end = live;
+        reindex(0);
+    }
+
+    private void reindex(int from) {
+        if (slots == null) {
+            return;
+        }
+        for (int i = from; i < end; i++) {
+            slots.put(elementAt(i), i);
+        }
+    }
+
+    private void buildIndex() {
+        slots = new HashMap<>();
+        endpointCounts = new HashMap<>();
+        directEdges = new HashMap<>();
+        for (int i = 0; i < end; i++) {
+            if (elements[i] != null) {
+                index(elementAt(i), i);
+            }
+        }
+    }
+
+    private void index(E edge, int slot) {
+        slots.put(edge, slot);
+        N node = endpoint.apply(edge);
+        endpointCounts.merge(node, 1, Integer::sum);
+        if (edge instanceof DirectEdge<?, ?>) {
+            directEdges.put(node, edge);
+        }
+    }
+
+    private void unindex(E edge) {
+        slots.remove(edge);
+        N node = endpoint.apply(edge);
+        endpointCounts.computeIfPresent(node, (key, count) -> count == 1 ? null : count - 1);
+        if (edge instanceof DirectEdge<?, ?>) {
+            directEdges.remove(node, edge);
+        }
+    }
+}
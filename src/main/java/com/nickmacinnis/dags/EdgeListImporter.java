@@ -0,0 +1,212 @@
+package com.nickmacinnis.dags;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Builds a graph from a tab-separated edge list, one edge per line: the key of the start node, a tab, the key of
+ * the end node, and any further columns, which are ignored. Blank lines and lines starting with {@code #} are
+ * skipped. Each key is turned into a node once, by a factory the caller gives, and the same node is used for every
+ * later line naming that key; a factory which returns the graph's root for some key joins the edges from that key
+ * to the graph.
+ * <p>
+ * The input is read through a fixed buffer and added with {@link DirectedAcyclicGraph#addEdges} a chunk of lines at
+ * a time, so memory for parsing stays bounded however large the file. A chunk which {@code addEdges} rejects, such
+ * as one which would close a cycle, is added again one edge at a time, and each line which cannot be added is
+ * reported rather than stopping the import.
+ */
+public class EdgeListImporter<N extends Node<N, E>, E extends Edge<N, E>> {
+    /** The number of lines added in one batch unless another chunk size is given. */
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 16;
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    private final Function<String, ? extends N> node;
+    private final int chunkSize;
+
+    public EdgeListImporter(Function<String, ? extends N> node) {
+        this(node, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param node Makes the node for each key, the first time the key is met
+     * @param chunkSize The number of lines to add in one batch
+     */
+    public EdgeListImporter(Function<String, ? extends N> node, int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("A chunk must hold at least one line");
+        }
+        this.node = node;
+        this.chunkSize = chunkSize;
+    }
+
+    /** Told how far an import has got, after each chunk is added. */
+    @FunctionalInterface
+    public interface Progress {
+        void update(long lines, long bytes);
+    }
+
+    /** Import the edge list in a file, as {@link #read(ReadableByteChannel, DirectedAcyclicGraph, Progress)}. */
+    public ImportReport read(Path path, DirectedAcyclicGraph<N, E> graph, Progress progress) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel, graph, progress);
+        }
+    }
+
+    /**
+     * Add every edge listed on channel to graph, reading UTF-8 to the end of the channel.
+     * @param progress Told after each chunk how many lines and bytes have been read, or null
+     * @return the number of lines read and edges added, and every line which could not be added
+     */
+    public ImportReport read(ReadableByteChannel channel, DirectedAcyclicGraph<N, E> graph, Progress progress)
+            throws IOException {
+        Import state = new Import(graph, progress);
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        byte[] line = new byte[256];
+        int length = 0;
+        while (channel.read(buffer) >= 0) {
+            buffer.flip();
+            state.bytes += buffer.limit();
+            byte[] bytes = buffer.array();
+            int start = 0;
+            for (int i = 0; i < buffer.limit(); i++) {
+                if (bytes[i] != '\n') {
+                    continue;
+                }
+                if (length == 0) {
+                    state.line(bytes, start, i - start);
+                } else {
+                    line = append(line, length, bytes, start, i - start);
+                    state.line(line, 0, length + i - start);
+                    length = 0;
+                }
+                start = i + 1;
+            }
+            // keep the start of the last line, which goes on in the next read
+            line = append(line, length, bytes, start, buffer.limit() - start);
+            length += buffer.limit() - start;
+            buffer.clear();
+        }
+        if (length > 0) {
+            state.line(line, 0, length);
+        }
+        state.flush();
+        // malformed lines are rejected as they are read, the others only once their chunk is added
+        state.rejections.sort(Comparator.comparingLong(ImportReport.Rejection::getLine));
+        return new ImportReport(state.lines, state.added, state.rejections);
+    }
+
+    /** @return line, grown if need be, with count bytes from offset in bytes written after its first length */
+    private static byte[] append(byte[] line, int length, byte[] bytes, int offset, int count) {
+        byte[] target = line;
+        if (length + count > line.length) {
+            target = Arrays.copyOf(line, Math.max(2 * line.length, length + count));
+        }
+        System.arraycopy(bytes, offset, target, length, count);
+        return target;
+    }
+
+    /** The state of one call to {@link #read}. */
+    private final class Import {
+        private final DirectedAcyclicGraph<N, E> graph;
+        private final Progress progress;
+        private final Map<String, N> nodes = new HashMap<>();
+        private final List<Map.Entry<N, N>> chunk = new ArrayList<>();
+        /** The number of each line of the chunk. */
+        private final long[] chunkLines = new long[chunkSize];
+        /** The start and end key of each line of the chunk. */
+        private final List<String> chunkKeys = new ArrayList<>();
+        private final List<ImportReport.Rejection> rejections = new ArrayList<>();
+        private long lines;
+        private long bytes;
+        private long added;
+
+        Import(DirectedAcyclicGraph<N, E> graph, Progress progress) {
+            this.graph = graph;
+            this.progress = progress;
+        }
+
+        /** Parse one line, without its line feed, and add the chunk once it is full. */
+        void line(byte[] bytes, int offset, int length) {
+            lines++;
+            if (length > 0 && bytes[offset + length - 1] == '\r') {
+                length--;
+            }
+            if (length == 0 || bytes[offset] == '#') {
+                return;
+            }
+            int tab = indexOf(bytes, offset, offset + length, (byte) '\t');
+            int end = tab < 0 ? -1 : indexOf(bytes, tab + 1, offset + length, (byte) '\t');
+            if (end < 0) {
+                end = offset + length;
+            }
+            if (tab <= offset || end == tab + 1) {
+                rejections.add(new ImportReport.Rejection(lines, new String(bytes, offset, length,
+                        StandardCharsets.UTF_8), "Expected the keys of a start node and an end node"));
+                return;
+            }
+            String startKey = new String(bytes, offset, tab - offset, StandardCharsets.UTF_8);
+            String endKey = new String(bytes, tab + 1, end - tab - 1, StandardCharsets.UTF_8);
+            chunkLines[chunk.size()] = lines;
+            chunkKeys.add(startKey);
+            chunkKeys.add(endKey);
+            chunk.add(Map.entry(intern(startKey), intern(endKey)));
+            if (chunk.size() == chunkSize) {
+                flush();
+            }
+        }
+
+        /**
+         * Add the edges of the chunk, one at a time if the batch as a whole is rejected; a rejected batch adds
+         * nothing, so every edge the retry adds is counted once.
+         */
+        void flush() {
+            if (!chunk.isEmpty()) {
+                try {
+                    added += graph.addEdges(chunk);
+                } catch (GraphLogicException batchRejected) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        Map.Entry<N, N> edge = chunk.get(i);
+                        try {
+                            if (edge.getKey().addChild(edge.getValue())) {
+                                added++;
+                            }
+                        } catch (GraphLogicException e) {
+                            rejections.add(new ImportReport.Rejection(chunkLines[i],
+                                    chunkKeys.get(2 * i) + '\t' + chunkKeys.get(2 * i + 1), e.getMessage()));
+                        }
+                    }
+                }
+                chunk.clear();
+                chunkKeys.clear();
+            }
+            if (progress != null) {
+                progress.update(lines, bytes);
+            }
+        }
+
+        private N intern(String key) {
+            return nodes.computeIfAbsent(key, node);
+        }
+    }
+
+    private static int indexOf(byte[] bytes, int from, int to, byte target) {
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
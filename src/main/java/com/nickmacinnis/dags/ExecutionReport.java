@@ -0,0 +1,103 @@
+package com.nickmacinnis.dags;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The outcome of a {@link DagExecutor} run: whether each node's task succeeded, failed or was skipped because
+ * something above it failed, and when each task started and how long it took.
+ */
+public final class ExecutionReport<N> {
+
+    /** What became of a node's task. */
+    public enum Status {
+        SUCCEEDED,
+        FAILED,
+        /** Not run, because a node above it failed. */
+        SKIPPED
+    }
+
+    private final List<N> nodes;
+    private final Map<N, Integer> ids;
+    private final Status[] statuses;
+    private final long[] starts;
+    private final long[] durations;
+    private final Throwable[] failures;
+    private final long elapsed;
+
+    ExecutionReport(List<N> nodes, Status[] statuses, long[] starts, long[] durations, Throwable[] failures,
+            long elapsed) {
+        this.nodes = List.copyOf(nodes);
+        this.ids = new HashMap<>();
+        for (int id = 0; id < nodes.size(); id++) {
+            ids.put(nodes.get(id), id);
+        }
+        this.statuses = statuses;
+        this.starts = starts;
+        this.durations = durations;
+        this.failures = failures;
+        this.elapsed = elapsed;
+    }
+
+    /** @return every node of the run, in {@link Node#dft()} order */
+    public List<N> getNodes() {
+        return nodes;
+    }
+
+    /** @return true if every task succeeded */
+    public boolean isSuccessful() {
+        for (Status status : statuses) {
+            if (status != Status.SUCCEEDED) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public Status getStatus(N node) {
+        return statuses[idOf(node)];
+    }
+
+    /** @return the exception thrown by node's task, or null if it did not fail */
+    public Throwable getFailure(N node) {
+        return failures[idOf(node)];
+    }
+
+    /** @return the exception thrown by each failed task, in {@link Node#dft()} order */
+    public Map<N, Throwable> getFailures() {
+        Map<N, Throwable> failed = new LinkedHashMap<>();
+        for (int id = 0; id < statuses.length; id++) {
+            if (statuses[id] == Status.FAILED) {
+                failed.put(nodes.get(id), failures[id]);
+            }
+        }
+        return Collections.unmodifiableMap(failed);
+    }
+
+    /** @return how long after the run began node's task started, or zero if it was not run */
+    public Duration getStartOffset(N node) {
+        return Duration.ofNanos(starts[idOf(node)]);
+    }
+
+    /** @return how long node's task ran for, or zero if it was not run */
+    public Duration getDuration(N node) {
+        return Duration.ofNanos(durations[idOf(node)]);
+    }
+
+    /** @return how long the whole run took */
+    public Duration getElapsed() {
+        return Duration.ofNanos(elapsed);
+    }
+
+    private int idOf(N node) {
+        Integer id = ids.get(node);
+        if (id == null) {
+            throw new GraphLogicException("This node was not part of the run");
+        }
+        return id;
+    }
+}
@@ -0,0 +1,288 @@
+package com.nickmacinnis.dags;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+/**
+ * An immutable snapshot of a {@link DirectedAcyclicGraph}, taken by {@link DirectedAcyclicGraph#freeze()}.
+ * Nodes are numbered densely in depth-first order from the root, and direct children, direct parents,
+ * descendants and ancestors are each held as one compressed-sparse-row pair of int arrays, so queries read
+ * arrays rather than walking edge objects. Nothing is written after construction, so a snapshot may be shared
+ * between threads without locking. Later edits to the graph are not reflected.
+ */
+public final class FrozenGraph<N extends Node<N, E>, E extends Edge<N, E>> {
+    private final Object[] nodes;
+    private final Map<N, Integer> ids;
+    private final int[] childOffsets;
+    private final int[] children;
+    private final int[] parentOffsets;
+    private final int[] parents;
+    private final int[] descendantOffsets;
+    private final int[] descendants;
+    private final int[] ancestorOffsets;
+    private final int[] ancestors;
+    private final int[] depths;
+
+    FrozenGraph(N rootNode) {
+        List<N> order = rootNode.dft();
+        int count = order.size();
+        nodes = order.toArray();
+        Map<N, Integer> index = new HashMap<>();
+        for (int id = 0; id < count; id++) {
+            index.put(order.get(id), id);
+        }
+        ids = Collections.unmodifiableMap(index);
+
+        childOffsets = new int[count + 1];
+        int[] parentCounts = new int[count];
+        List<int[]> childLists = new ArrayList<>(count);
+        for (int id = 0; id < count; id++) {
+            List<E> edges = order.get(id).getOutgoingEdges();
+            int[] ends = new int[edges.size()];
+            int size = 0;
+            for (E edge : edges) {
+                if (edge instanceof DirectEdge<?, ?>) {
+                    int end = index.get(edge.getEndNode());
+                    ends[size++] = end;
+                    parentCounts[end]++;
+                }
+            }
+            childLists.add(Arrays.copyOf(ends, size));
+            childOffsets[id + 1] = childOffsets[id] + size;
+        }
+        children = new int[childOffsets[count]];
+        for (int id = 0; id < count; id++) {
+            System.arraycopy(childLists.get(id), 0, children, childOffsets[id], childLists.get(id).length);
+        }
+        parentOffsets = offsets(parentCounts);
+        parents = transpose(childOffsets, children, parentOffsets);
+
+        int[] topological = topologicalOrder();
+        depths = new int[count];
+        int[] longest = new int[count];
+        for (int id : topological) {
+            for (int i = parentOffsets[id]; i < parentOffsets[id + 1]; i++) {
+                longest[id] = Math.max(longest[id], longest[parents[i]] + 1);
+            }
+            // as Node#calculateDepth: the hops of the longest path in, where a direct edge counts as zero
+            depths[id] = Math.max(0, longest[id] - 1);
+        }
+
+        // descendants children first, each node's the sorted union of its children and their descendants
+        int[][] reachable = new int[count][];
+        int[] stamps = new int[count];
+        int[] scratch = new int[count];
+        int total = 0;
+        for (int t = count - 1; t >= 0; t--) {
+            int id = topological[t];
+            int size = 0;
+            for (int i = childOffsets[id]; i < childOffsets[id + 1]; i++) {
+                int child = children[i];
+                if (stamps[child] != id + 1) {
+                    stamps[child] = id + 1;
+                    scratch[size++] = child;
+                }
+                for (int descendant : reachable[child]) {
+                    if (stamps[descendant] != id + 1) {
+                        stamps[descendant] = id + 1;
+                        scratch[size++] = descendant;
+                    }
+                }
+            }
+            reachable[id] = Arrays.copyOf(scratch, size);
+            Arrays.sort(reachable[id]);
+            total += size;
+        }
+        descendantOffsets = new int[count + 1];
+        descendants = new int[total];
+        int[] ancestorCounts = new int[count];
+        for (int id = 0; id < count; id++) {
+            System.arraycopy(reachable[id], 0, descendants, descendantOffsets[id], reachable[id].length);
+            descendantOffsets[id + 1] = descendantOffsets[id] + reachable[id].length;
+            for (int descendant : reachable[id]) {
+                ancestorCounts[descendant]++;
+            }
+        }
+        ancestorOffsets = offsets(ancestorCounts);
+        ancestors = transpose(descendantOffsets, descendants, ancestorOffsets);
+    }
+
+    /** @return the root node of the graph the snapshot was taken of */
+    public N getRootNode() {
+        return nodeAt(0);
+    }
+
+    /** @return number of nodes in the snapshot, the root included */
+    public int getNodeCount() {
+        return nodes.length;
+    }
+
+    /** @return number of direct edges in the snapshot */
+    public int getDirectEdgeCount() {
+        return children.length;
+    }
+
+    /** @return true if node was part of the graph when the snapshot was taken */
+    public boolean containsNode(N node) {
+        return ids.containsKey(node);
+    }
+
+    /** @return the dense id of node: its position in {@link #dft()} */
+    public int idOf(N node) {
+        Integer id = ids.get(node);
+        if (id == null) {
+            throw new GraphLogicException("This node is not part of the snapshot");
+        }
+        return id;
+    }
+
+    /** @return the node with the given dense id */
+    public N getNode(int id) {
+        return nodeAt(id);
+    }
+
+    /** @return the direct children of node, in the order of its outgoing edges */
+    public List<N> getChildren(N node) {
+        int id = idOf(node);
+        return view(children, childOffsets[id], childOffsets[id + 1]);
+    }
+
+    /** @return the direct parents of node within the snapshot */
+    public List<N> getParents(N node) {
+        int id = idOf(node);
+        return view(parents, parentOffsets[id], parentOffsets[id + 1]);
+    }
+
+    /** @return every node reachable from node, in id order */
+    public List<N> collectDescendants(N node) {
+        int id = idOf(node);
+        return view(descendants, descendantOffsets[id], descendantOffsets[id + 1]);
+    }
+
+    /** @return every node from which node is reachable, in id order */
+    public List<N> collectAncestors(N node) {
+        int id = idOf(node);
+        return view(ancestors, ancestorOffsets[id], ancestorOffsets[id + 1]);
+    }
+
+    /** @return true if endNode can be reached from startNode by one or more direct edges */
+    public boolean canReach(N startNode, N endNode) {
+        int start = idOf(startNode);
+        Integer end = ids.get(endNode);
+        return end != null
+                && Arrays.binarySearch(descendants, descendantOffsets[start], descendantOffsets[start + 1], end) >= 0;
+    }
+
+    /** @return the depth of node as {@link Node#calculateDepth()}, counting only edges within the snapshot */
+    public int calculateDepth(N node) {
+        return depths[idOf(node)];
+    }
+
+    /** @return every node in depth-first order from the root, each once, as {@link Node#dft()} */
+    public List<N> dft() {
+        return new AbstractNodeList(nodes.length) {
+            @Override
+            public N get(int index) {
+                return nodeAt(Objects.checkIndex(index, nodes.length));
+            }
+        };
+    }
+
+    /** @return every node in breadth-first order from the root, each once, as {@link Node#bft()} */
+    public List<N> bft() {
+        int[] order = new int[nodes.length];
+        boolean[] visited = new boolean[nodes.length];
+        int size = 1;
+        visited[0] = true;
+        for (int head = 0; head < size; head++) {
+            int id = order[head];
+            for (int i = childOffsets[id]; i < childOffsets[id + 1]; i++) {
+                if (!visited[children[i]]) {
+                    visited[children[i]] = true;
+                    order[size++] = children[i];
+                }
+            }
+        }
+        return view(order, 0, size);
+    }
+
+    /** Kahn's algorithm over the child rows: parents before children. */
+    private int[] topologicalOrder() {
+        int count = nodes.length;
+        int[] pending = new int[count];
+        for (int id = 0; id < count; id++) {
+            pending[id] = parentOffsets[id + 1] - parentOffsets[id];
+        }
+        int[] order = new int[count];
+        int size = 0;
+        for (int id = 0; id < count; id++) {
+            if (pending[id] == 0) {
+                order[size++] = id;
+            }
+        }
+        for (int head = 0; head < size; head++) {
+            int id = order[head];
+            for (int i = childOffsets[id]; i < childOffsets[id + 1]; i++) {
+                if (--pending[children[i]] == 0) {
+                    order[size++] = children[i];
+                }
+            }
+        }
+        return order;
+    }
+
+    private static int[] offsets(int[] counts) {
+        int[] offsets = new int[counts.length + 1];
+        for (int id = 0; id < counts.length; id++) {
+            offsets[id + 1] = offsets[id] + counts[id];
+        }
+        return offsets;
+    }
+
+    /** @return the column array of the transposed relation, its rows in ascending order */
+    private static int[] transpose(int[] rowOffsets, int[] columns, int[] transposedOffsets) {
+        int[] transposed = new int[columns.length];
+        int[] fill = Arrays.copyOf(transposedOffsets, transposedOffsets.length - 1);
+        for (int row = 0; row < rowOffsets.length - 1; row++) {
+            for (int i = rowOffsets[row]; i < rowOffsets[row + 1]; i++) {
+                transposed[fill[columns[i]]++] = row;
+            }
+        }
+        return transposed;
+    }
+
+    @SuppressWarnings("unchecked")
+    private N nodeAt(int id) {
+        return (N) nodes[id];
+    }
+
+    private List<N> view(int[] array, int from, int to) {
+        return new AbstractNodeList(to - from) {
+            @Override
+            public N get(int index) {
+                return nodeAt(array[from + Objects.checkIndex(index, to - from)]);
+            }
+        };
+    }
+
+    /** An unmodifiable list of nodes read through from the snapshot's arrays. */
+    private abstract class AbstractNodeList extends AbstractList<N> implements RandomAccess {
+        private final int size;
+
+        AbstractNodeList(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.nickmacinnis.dags;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.function.Function;
+
+/**
+ * Writes a graph's nodes, with their coordinates, and its edges as Graphviz DOT or as JSON. Nodes are read from
+ * the graph's live registry and edges from each node's own list, so nothing is copied: memory use does not grow
+ * with the graph. Coordinates are written as they stand; lay the graph out first with
+ * {@link DirectedAcyclicGraph#calculateNodeCoordinates()} or {@link DirectedAcyclicGraph#layOutIncrementally()}.
+ * <p>
+ * Nodes are named by a function the caller gives, which should give each node of the graph a different name.
+ * Direct edges are always written; implicit edges, if asked for, are written after the direct edges of the same
+ * start node, dashed in DOT and with their hop count in JSON.
+ */
+public final class GraphExporter {
+
+    private GraphExporter() {
+    }
+
+    /**
+     * Write graph as a DOT digraph, each node with its position and followed by its outgoing edges.
+     * @param name The name of each node
+     * @param implicitEdges Whether to write implicit edges as well as direct edges
+     */
+    public static <N extends Node<N, E>, E extends Edge<N, E>> void writeDot(DirectedAcyclicGraph<N, E> graph,
+            Function<? super N, String> name, boolean implicitEdges, Writer writer) throws IOException {
+        writer.write("digraph {\n");
+        for (Iterator<N> nodes = nodes(graph); nodes.hasNext();) {
+            N node = nodes.next();
+            writer.write("  ");
+            writeDotId(name.apply(node), writer);
+            writer.write(" [pos=\"");
+            writer.write(Double.toString(node.getX()));
+            writer.write(',');
+            writer.write(Double.toString(node.getY()));
+            writer.write("!\"];\n");
+            for (E edge : node.getOutgoingEdges()) {
+                boolean direct = edge instanceof DirectEdge<?, ?>;
+                if (!direct && !implicitEdges) {
+                    continue;
+                }
+                writer.write("  ");
+                writeDotId(name.apply(node), writer);
+                writer.write(" -> ");
+                writeDotId(name.apply(edge.getEndNode()), writer);
+                writer.write(direct ? ";\n" : " [style=dashed];\n");
+            }
+        }
+        writer.write("}\n");
+        writer.flush();
+    }
+
+    /** As {@link #writeDot(DirectedAcyclicGraph, Function, boolean, Writer)}, in UTF-8 to a channel left open. */
+    public static <N extends Node<N, E>, E extends Edge<N, E>> void writeDot(DirectedAcyclicGraph<N, E> graph,
+            Function<? super N, String> name, boolean implicitEdges, WritableByteChannel channel) throws IOException {
+        writeDot(graph, name, implicitEdges, Channels.newWriter(channel, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Write graph as a JSON object holding a {@code nodes} array, of objects with an {@code id}, {@code x} and
+     * {@code y}, and an {@code edges} array, of objects with a {@code from}, {@code to} and {@code hops}, the
+     * last 0 for direct edges. Coordinates which are not finite are written as null.
+     * @param name The name of each node, written as its id
+     * @param implicitEdges Whether to write implicit edges as well as direct edges
+     */
+    public static <N extends Node<N, E>, E extends Edge<N, E>> void writeJson(DirectedAcyclicGraph<N, E> graph,
+            Function<? super N, String> name, boolean implicitEdges, Writer writer) throws IOException {
+        writer.write("{\"nodes\":[");
+        boolean first = true;
+        for (Iterator<N> nodes = nodes(graph); nodes.hasNext();) {
+            N node = nodes.next();
+            writer.write(first ? "\n{\"id\":" : ",\n{\"id\":");
+            first = false;
+            writeJsonString(name.apply(node), writer);
+            writer.write(",\"x\":");
+            writeJsonNumber(node.getX(), writer);
+            writer.write(",\"y\":");
+            writeJsonNumber(node.getY(), writer);
+            writer.write('}');
+        }
+        writer.write("\n],\"edges\":[");
+        first = true;
+        for (Iterator<N> nodes = nodes(graph); nodes.hasNext();) {
+            N node = nodes.next();
+            for (E edge : node.getOutgoingEdges()) {
+                if (!(edge instanceof DirectEdge<?, ?>) && !implicitEdges) {
+                    continue;
+                }
+                writer.write(first ? "\n{\"from\":" : ",\n{\"from\":");
+                first = false;
+                writeJsonString(name.apply(node), writer);
+                writer.write(",\"to\":");
+                writeJsonString(name.apply(edge.getEndNode()), writer);
+                writer.write(",\"hops\":");
+                writer.write(Integer.toString(edge.getHops()));
+                writer.write('}');
+            }
+        }
+        writer.write("\n]}\n");
+        writer.flush();
+    }
+
+    /** As {@link #writeJson(DirectedAcyclicGraph, Function, boolean, Writer)}, in UTF-8 to a channel left open. */
+    public static <N extends Node<N, E>, E extends Edge<N, E>> void writeJson(DirectedAcyclicGraph<N, E> graph,
+            Function<? super N, String> name, boolean implicitEdges, WritableByteChannel channel) throws IOException {
+        writeJson(graph, name, implicitEdges, Channels.newWriter(channel, StandardCharsets.UTF_8));
+    }
+
+    /** @return the root, then every other node of graph in registry order */
+    private static <N extends Node<N, E>, E extends Edge<N, E>> Iterator<N> nodes(DirectedAcyclicGraph<N, E> graph) {
+        Iterator<N> children = graph.collectChildren().iterator();
+        return new Iterator<>() {
+            private boolean rootDone;
+
+            @Override
+            public boolean hasNext() {
+                return !rootDone || children.hasNext();
+            }
+
+            @Override
+            public N next() {
+                if (!rootDone) {
+                    rootDone = true;
+                    return graph.rootNode;
+                }
+                return children.next();
+            }
+        };
+    }
+
+    private static void writeDotId(String id, Writer writer) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private static void writeJsonString(String value, Writer writer) throws IOException {
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> writer.write("\\\"");
+                case '\\' -> writer.write("\\\\");
+                case '\n' -> writer.write("\\n");
+                case '\r' -> writer.write("\\r");
+                case '\t' -> writer.write("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+                }
+            }
+        }
+        writer.write('"');
+    }
+
+    private static void writeJsonNumber(double value, Writer writer) throws IOException {
+        writer.write(Double.isFinite(value) ? Double.toString(value) : "null");
+    }
+}
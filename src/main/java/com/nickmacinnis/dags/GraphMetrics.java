@@ -0,0 +1,38 @@
+package com.nickmacinnis.dags;
+
+/**
+ * Told by a {@link DirectedAcyclicGraph} about each edit and layout it makes while set with
+ * {@link DirectedAcyclicGraph#setMetrics(GraphMetrics)}: how long it took, how many implicit edges it created and
+ * destroyed, and how far and how wide the detachment of edges cascaded. Only the outermost operation is reported;
+ * the edges a node removal detaches are counted as part of the removal, not reported one by one. Graphs without
+ * metrics pay for a null check per operation and nothing more.
+ * <p>
+ * Calls are made on the thread editing the graph, after the operation has finished or thrown, so they should be
+ * quick; {@link HistogramMetrics} only adds to counters.
+ */
+public interface GraphMetrics {
+
+    /** The operations reported. */
+    enum Operation {
+        /** {@link Node#addDirectEdge}, and so {@link Node#addChild} */
+        ADD_DIRECT_EDGE,
+        /** {@link Edge#detach()} of an edge of the graph, and so {@link Node#removeChild} */
+        DETACH_EDGE,
+        /** {@link DirectedAcyclicGraph#removeNode} and {@link DirectedAcyclicGraph#removeNodes} */
+        REMOVE_NODES,
+        /** {@link DirectedAcyclicGraph#calculateNodeCoordinates()} on any pool */
+        CALCULATE_NODE_COORDINATES
+    }
+
+    /**
+     * Called once an operation has finished, whether or not it changed anything.
+     * @param nanos The time taken, by {@link System#nanoTime()}
+     * @param implicitEdgesCreated The implicit edges attached; always 0 for nodes with a {@link Closure}
+     * @param implicitEdgesDestroyed The implicit edges detached, including those of nodes left unreachable
+     * @param cascadeDepth How many levels of implicit edges, below the edges the operation detached itself, were
+     *                     detached because the level above was
+     * @param cascadeFanOut The most implicit edges any one edge detached along with itself
+     */
+    void operationCompleted(Operation operation, long nanos, long implicitEdgesCreated, long implicitEdgesDestroyed,
+            int cascadeDepth, int cascadeFanOut);
+}
@@ -0,0 +1,387 @@
+package com.nickmacinnis.dags;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Saves a {@link DirectedAcyclicGraph} to a compact binary file, and restores it by mapping the file into memory.
+ * <p>
+ * The file holds a header, a table of nodes and a table of direct edges, and optionally the graph's implicit
+ * edges and node coordinates, all as big-endian fixed-width records:
+ * <ul>
+ * <li>header: magic, version, flags, node count, direct edge count and implicit edge count, each an int;</li>
+ * <li>nodes, the root first and every node after its direct parents: a long key, then X and Y as doubles if
+ * coordinates were saved;</li>
+ * <li>direct edges, grouped by start node in node order and each node's in the order of its children: the
+ * start and end node, as indices into the node table;</li>
+ * <li>implicit edges, each after those it was implied by: the start and end node, the entry, direct and exit
+ * edges, as indices into the direct edges followed by the implicit edges, and the hop count.</li>
+ * </ul>
+ * Nodes are saved as keys, for the caller to map to and from its own nodes, typically by database id. Since every
+ * edge runs forward in the node table, no cycle check is needed on loading, and the saved implicit edges are
+ * attached as they stand rather than implied afresh by each direct edge.
+ */
+public final class GraphSnapshot {
+    /** "DAGS" */
+    static final int MAGIC = 0x44414753;
+    static final int VERSION = 1;
+    static final int IMPLICIT_EDGES = 1;
+    static final int COORDINATES = 2;
+    private static final int HEADER_BYTES = 6 * Integer.BYTES;
+    private static final int BUFFER_BYTES = 1 << 16;
+    /** The most edges restored, as many as a list can hold. */
+    private static final long MAX_EDGES = Integer.MAX_VALUE - 8;
+    /** The most of a file mapped at once; a mapping cannot exceed 2GB. */
+    static final long WINDOW_BYTES = Integer.MAX_VALUE;
+
+    private GraphSnapshot() {
+    }
+
+    /**
+     * Save graph to a file, replacing any file already there.
+     * @param key The key to save for each node, from which {@link #read} is to make the node again
+     * @param implicitEdges Whether to save the graph's implicit edges, if it has any, so that loading need not
+     *                      imply them again
+     * @param coordinates Whether to save the X and Y of each node
+     */
+    public static <N extends Node<N, E>, E extends Edge<N, E>> void write(DirectedAcyclicGraph<N, E> graph,
+            ToLongFunction<? super N> key, boolean implicitEdges, boolean coordinates, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(graph, key, implicitEdges, coordinates, channel);
+        }
+    }
+
+    /** As {@link #write(DirectedAcyclicGraph, ToLongFunction, boolean, boolean, Path)}, to any channel. */
+    public static <N extends Node<N, E>, E extends Edge<N, E>> void write(DirectedAcyclicGraph<N, E> graph,
+            ToLongFunction<? super N> key, boolean implicitEdges, boolean coordinates, WritableByteChannel channel)
+            throws IOException {
+        N rootNode = graph.rootNode;
+        List<N> members = new ArrayList<>(graph.getNodeCount());
+        members.add(rootNode);
+        members.addAll(graph.collectChildren());
+        List<N> nodes = TopologicalSort.sortRegion(members, graph::containsNode, true);
+        Map<N, Integer> nodeIds = new HashMap<>();
+        for (N node : nodes) {
+            nodeIds.put(node, nodeIds.size());
+        }
+        Map<E, Integer> edgeIds = new HashMap<>();
+        List<E> directEdges = new ArrayList<>();
+        for (N node : nodes) {
+            for (E edge : node.getOutgoingEdges()) {
+                if (edge instanceof DirectEdge<?, ?>) {
+                    edgeIds.put(edge, edgeIds.size());
+                    directEdges.add(edge);
+                }
+            }
+        }
+        // a graph kept by a closure has no implicit edges to save
+        boolean saveImplied = implicitEdges && rootNode.getClosure() == null;
+        List<E> implied = saveImplied ? implicitEdges(graph, edgeIds) : List.of();
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt((saveImplied ? IMPLICIT_EDGES : 0) | (coordinates ? COORDINATES : 0))
+                .putInt(nodes.size())
+                .putInt(directEdges.size())
+                .putInt(implied.size());
+        for (N node : nodes) {
+            makeRoom(buffer, channel, 3 * Long.BYTES);
+            buffer.putLong(key.applyAsLong(node));
+            if (coordinates) {
+                buffer.putDouble(node.getX()).putDouble(node.getY());
+            }
+        }
+        for (E edge : directEdges) {
+            makeRoom(buffer, channel, 2 * Integer.BYTES);
+            buffer.putInt(nodeIds.get(edge.getStartNode())).putInt(nodeIds.get(edge.getEndNode()));
+        }
+        for (E edge : implied) {
+            makeRoom(buffer, channel, 6 * Integer.BYTES);
+            buffer.putInt(nodeIds.get(edge.getStartNode()))
+                    .putInt(nodeIds.get(edge.getEndNode()))
+                    .putInt(edgeIds.get(edge.getEntryEdge()))
+                    .putInt(edgeIds.get(edge.getDirectEdge()))
+                    .putInt(edgeIds.get(edge.getExitEdge()))
+                    .putInt(edge.getHops());
+        }
+        drain(buffer, channel);
+    }
+
+    /**
+     * Restore a saved graph into graph, which must have no nodes but its root. The saved root's key is not used,
+     * graph's own root taking its place. The edges are attached directly, a closure bringing itself up to date
+     * once at the end; implicit edges are attached as saved if the file holds them, or else implied from the
+     * direct edges as {@link DirectedAcyclicGraph#addEdges} would.
+     * @param node Makes a new node, joined to no other, for each saved key
+     * @return graph
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     * @throws GraphLogicException if graph is not empty, or a node made is already joined to others or has a
+     *                             closure other than the root's
+     */
+    public static <N extends Node<N, E>, E extends Edge<N, E>> DirectedAcyclicGraph<N, E> read(Path path,
+            DirectedAcyclicGraph<N, E> graph, LongFunction<? extends N> node) throws IOException {
+        return read(path, graph, node, WINDOW_BYTES);
+    }
+
+    static <N extends Node<N, E>, E extends Edge<N, E>> DirectedAcyclicGraph<N, E> read(Path path,
+            DirectedAcyclicGraph<N, E> graph, LongFunction<? extends N> node, long window) throws IOException {
+        if (graph.getNodeCount() != 1) {
+            throw new GraphLogicException("Cannot restore a snapshot into a graph which already has nodes");
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedInput input = new MappedInput(channel, window);
+            input.require(HEADER_BYTES);
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Not a graph snapshot");
+            }
+            int version = input.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported graph snapshot version " + version);
+            }
+            int flags = input.readInt();
+            int nodeCount = input.readInt();
+            int directCount = input.readInt();
+            int implicitCount = input.readInt();
+            if (nodeCount < 1 || directCount < 0 || implicitCount < 0) {
+                throw new IOException("Corrupt graph snapshot: negative table size");
+            }
+            if ((flags & IMPLICIT_EDGES) == 0 && implicitCount != 0) {
+                throw new IOException("Corrupt graph snapshot: implicit edges counted but not saved");
+            }
+            boolean coordinates = (flags & COORDINATES) != 0;
+            // check the counts against the file before they size anything, so a corrupt header cannot exhaust memory
+            long tableBytes = (long) nodeCount * (coordinates ? 3 * Long.BYTES : Long.BYTES)
+                    + (long) directCount * 2 * Integer.BYTES + (long) implicitCount * 6 * Integer.BYTES;
+            if (tableBytes != input.remaining()) {
+                throw new IOException("Corrupt graph snapshot: the header counts " + tableBytes
+                        + " bytes of tables but " + input.remaining() + " bytes follow it");
+            }
+            if ((long) directCount + implicitCount > MAX_EDGES) {
+                throw new IOException("Graph snapshot has too many edges to restore");
+            }
+
+            List<N> nodes = readNodes(input, graph.rootNode, node, nodeCount, coordinates);
+            List<Map.Entry<N, N>> directEdges = new ArrayList<>(directCount);
+            for (int i = 0; i < directCount; i++) {
+                input.require(2 * Integer.BYTES);
+                int start = input.readInt();
+                int end = input.readInt();
+                if (start < 0 || end <= start || end >= nodeCount) {
+                    throw new IOException("Corrupt graph snapshot: direct edge " + i + " does not run forward");
+                }
+                directEdges.add(Map.entry(nodes.get(start), nodes.get(end)));
+            }
+
+            if (!(graph.rootNode instanceof AbstractNode<N, E>)
+                    || graph.rootNode.getClosure() == null && (flags & IMPLICIT_EDGES) == 0) {
+                // nothing to build edges with, or no implicit edges saved: imply them as adding the edges would
+                graph.addEdges(directEdges);
+                return graph;
+            }
+            List<E> edges = new ArrayList<>(directCount + implicitCount);
+            for (Map.Entry<N, N> edge : directEdges) {
+                edges.add(((AbstractNode<N, E>) edge.getKey()).buildDirectEdge(edge.getKey(), edge.getValue()));
+            }
+            Closure<N, E> closure = graph.rootNode.getClosure();
+            if (closure != null) {
+                closure.beginBatch();
+            }
+            try {
+                for (E edge : edges) {
+                    edge.attach();
+                }
+            } finally {
+                if (closure != null) {
+                    closure.endBatch();
+                }
+            }
+            if (closure == null) {
+                for (int i = 0; i < implicitCount; i++) {
+                    E edge = readImplicitEdge(input, nodes, edges, directCount);
+                    edges.add(edge);
+                    edge.attach();
+                }
+            }
+            return graph;
+        }
+    }
+
+    /**
+     * @return the implicit edges of graph, each after the edges it was implied by, numbered in edgeIds after the
+     *         direct edges already there
+     */
+    private static <N extends Node<N, E>, E extends Edge<N, E>> List<E> implicitEdges(DirectedAcyclicGraph<N, E> graph,
+            Map<E, Integer> edgeIds) {
+        List<E> ordered = new ArrayList<>();
+        Deque<E> stack = new ArrayDeque<>();
+        for (E edge : graph.collectEdges()) {
+            if (edgeIds.containsKey(edge)) {
+                continue;
+            }
+            stack.push(edge);
+            while (!stack.isEmpty()) {
+                E top = stack.peek();
+                if (edgeIds.containsKey(top)) {
+                    stack.pop();
+                    continue;
+                }
+                // the direct edge is always numbered already
+                if (!edgeIds.containsKey(top.getEntryEdge())) {
+                    stack.push(top.getEntryEdge());
+                } else if (!edgeIds.containsKey(top.getExitEdge())) {
+                    stack.push(top.getExitEdge());
+                } else {
+                    stack.pop();
+                    edgeIds.put(top, edgeIds.size());
+                    ordered.add(top);
+                }
+            }
+        }
+        return ordered;
+    }
+
+    private static <N extends Node<N, E>, E extends Edge<N, E>> List<N> readNodes(MappedInput input, N rootNode,
+            LongFunction<? extends N> node, int nodeCount, boolean coordinates) throws IOException {
+        int recordBytes = coordinates ? 3 * Long.BYTES : Long.BYTES;
+        List<N> nodes = new ArrayList<>(nodeCount);
+        for (int i = 0; i < nodeCount; i++) {
+            input.require(recordBytes);
+            long key = input.readLong();
+            N made = i == 0 ? rootNode : node.apply(key);
+            if (i > 0) {
+                if (made.getGraph() != null || !made.getIncomingEdges().isEmpty()
+                        || !made.getOutgoingEdges().isEmpty()) {
+                    throw new GraphLogicException("This node is already joined to others");
+                }
+                if (made.getClosure() != rootNode.getClosure()) {
+                    throw new GraphLogicException(
+                            "Cannot join nodes whose reachability is maintained by different closures");
+                }
+            }
+            if (coordinates) {
+                made.setX(input.readDouble());
+                made.setY(input.readDouble());
+            }
+            nodes.add(made);
+        }
+        return nodes;
+    }
+
+    /**
+     * Read an implicit edge, checking that it is implied by edges read before it: a direct edge, reached from its
+     * start node by the entry edge unless the entry edge is the direct edge itself, and leaving through the exit
+     * edge to its end node unless the exit edge is the direct edge itself, with the hops of all three.
+     */
+    private static <N extends Node<N, E>, E extends Edge<N, E>> E readImplicitEdge(MappedInput input, List<N> nodes,
+            List<E> edges, int directCount) throws IOException {
+        input.require(6 * Integer.BYTES);
+        int start = input.readInt();
+        int end = input.readInt();
+        int entry = input.readInt();
+        int direct = input.readInt();
+        int exit = input.readInt();
+        int hops = input.readInt();
+        int id = edges.size();
+        if (start < 0 || end <= start || end >= nodes.size() || entry < 0 || entry >= id || direct < 0
+                || direct >= id || exit < 0 || exit >= id || hops < 1) {
+            throw new IOException("Corrupt graph snapshot: implicit edge " + id + " is out of order");
+        }
+        N startNode = nodes.get(start);
+        N endNode = nodes.get(end);
+        E entryEdge = edges.get(entry);
+        E directEdge = edges.get(direct);
+        E exitEdge = edges.get(exit);
+        boolean entered = entryEdge != directEdge;
+        boolean exited = exitEdge != directEdge;
+        if (direct >= directCount || !entered && !exited
+                || entryEdge.getStartNode() != startNode || exitEdge.getEndNode() != endNode
+                || entered && entryEdge.getEndNode() != directEdge.getStartNode()
+                || exited && directEdge.getEndNode() != exitEdge.getStartNode()
+                || hops != (entered ? entryEdge.getHops() + 1 : 0) + (exited ? exitEdge.getHops() + 1 : 0)) {
+            throw new IOException("Corrupt graph snapshot: implicit edge " + id + " is not implied by its parts");
+        }
+        return ((AbstractNode<N, E>) startNode).buildImplicitEdge(startNode, endNode, entryEdge, directEdge,
+                exitEdge, hops);
+    }
+
+    /** Write out what buffer holds if it has less than room left. */
+    private static void makeRoom(ByteBuffer buffer, WritableByteChannel channel, int room) throws IOException {
+        if (buffer.remaining() < room) {
+            drain(buffer, channel);
+        }
+    }
+
+    private static void drain(ByteBuffer buffer, WritableByteChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /** Reads a file in order through a window mapped into memory, mapping the next once a record crosses its end. */
+    private static final class MappedInput {
+        private final FileChannel channel;
+        private final long size;
+        private final long window;
+        private long base;
+        private MappedByteBuffer buffer;
+
+        MappedInput(FileChannel channel, long window) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            this.window = window;
+            map(0);
+        }
+
+        private void map(long position) throws IOException {
+            base = position;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(window, size - position));
+        }
+
+        /** @return the number of bytes of the file not yet read */
+        long remaining() {
+            return size - base - buffer.position();
+        }
+
+        /** Make sure the next bytes are mapped. */
+        void require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            long position = base + buffer.position();
+            if (size - position < bytes) {
+                throw new EOFException("Graph snapshot ends early");
+            }
+            map(position);
+        }
+
+        int readInt() {
+            return buffer.getInt();
+        }
+
+        long readLong() {
+            return buffer.getLong();
+        }
+
+        double readDouble() {
+            return buffer.getDouble();
+        }
+    }
+}
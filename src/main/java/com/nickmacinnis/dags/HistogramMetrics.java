@@ -0,0 +1,140 @@
+package com.nickmacinnis.dags;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link GraphMetrics} kept as totals, maxima and latency histograms per operation. Latencies fall into buckets by
+ * power of two, bucket i holding those of at least 2<sup>i-1</sup> and under 2<sup>i</sup> nanoseconds, so
+ * recording costs a few additions and percentiles are good to within a factor of two. Figures may be read from any
+ * thread while graphs report to it, and one instance may serve several graphs.
+ */
+public final class HistogramMetrics implements GraphMetrics {
+    /** One bucket for 0 and one for each bit a latency can have. */
+    static final int BUCKETS = Long.SIZE + 1;
+
+    private static final class Stats {
+        final LongAdder count = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        final LongAdder created = new LongAdder();
+        final LongAdder destroyed = new LongAdder();
+        final LongAccumulator maxCreated = new LongAccumulator(Math::max, 0);
+        final LongAccumulator maxDestroyed = new LongAccumulator(Math::max, 0);
+        final LongAccumulator maxCascadeDepth = new LongAccumulator(Math::max, 0);
+        final LongAccumulator maxCascadeFanOut = new LongAccumulator(Math::max, 0);
+        final AtomicLongArray latencies = new AtomicLongArray(BUCKETS);
+    }
+
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+
+    public HistogramMetrics() {
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+    }
+
+    @Override
+    public void operationCompleted(Operation operation, long nanos, long implicitEdgesCreated,
+            long implicitEdgesDestroyed, int cascadeDepth, int cascadeFanOut) {
+        Stats s = stats.get(operation);
+        s.count.increment();
+        s.nanos.add(nanos);
+        s.latencies.incrementAndGet(bucket(nanos));
+        if (implicitEdgesCreated > 0) {
+            s.created.add(implicitEdgesCreated);
+            s.maxCreated.accumulate(implicitEdgesCreated);
+        }
+        if (implicitEdgesDestroyed > 0) {
+            s.destroyed.add(implicitEdgesDestroyed);
+            s.maxDestroyed.accumulate(implicitEdgesDestroyed);
+            s.maxCascadeDepth.accumulate(cascadeDepth);
+            s.maxCascadeFanOut.accumulate(cascadeFanOut);
+        }
+    }
+
+    /** @return the bucket holding a latency of nanos */
+    static int bucket(long nanos) {
+        return nanos <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(nanos);
+    }
+
+    /** @return how many times operation has been reported */
+    public long getCount(Operation operation) {
+        return stats.get(operation).count.sum();
+    }
+
+    /** @return the time operation has taken in all, in nanoseconds */
+    public long getTotalNanos(Operation operation) {
+        return stats.get(operation).nanos.sum();
+    }
+
+    /** @return the number of times operation took each bucket's latency, {@value #BUCKETS} buckets in all */
+    public long[] getLatencyHistogram(Operation operation) {
+        AtomicLongArray latencies = stats.get(operation).latencies;
+        long[] histogram = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            histogram[i] = latencies.get(i);
+        }
+        return histogram;
+    }
+
+    /**
+     * @param fraction The share of reports to cover, from 0 to 1, such as 0.99
+     * @return the top of the bucket, in nanoseconds, within which at least that share of reports of operation
+     *         took no longer, or 0 if there have been none
+     */
+    public long getLatencyPercentile(Operation operation, double fraction) {
+        if (!(fraction >= 0 && fraction <= 1)) {
+            throw new IllegalArgumentException("The fraction must be between 0 and 1");
+        }
+        long[] histogram = getLatencyHistogram(operation);
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long wanted = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += histogram[i];
+            if (seen >= wanted) {
+                return i == Long.SIZE ? Long.MAX_VALUE : (1L << i) - 1;
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    /** @return the implicit edges all reports of operation created */
+    public long getImplicitEdgesCreated(Operation operation) {
+        return stats.get(operation).created.sum();
+    }
+
+    /** @return the implicit edges all reports of operation destroyed */
+    public long getImplicitEdgesDestroyed(Operation operation) {
+        return stats.get(operation).destroyed.sum();
+    }
+
+    /** @return the most implicit edges any one report of operation created */
+    public long getMaxImplicitEdgesCreated(Operation operation) {
+        return stats.get(operation).maxCreated.get();
+    }
+
+    /** @return the most implicit edges any one report of operation destroyed */
+    public long getMaxImplicitEdgesDestroyed(Operation operation) {
+        return stats.get(operation).maxDestroyed.get();
+    }
+
+    /** @return the deepest cascade of any report of operation */
+    public int getMaxCascadeDepth(Operation operation) {
+        return (int) stats.get(operation).maxCascadeDepth.get();
+    }
+
+    /** @return the widest fan-out of any report of operation */
+    public int getMaxCascadeFanOut(Operation operation) {
+        return (int) stats.get(operation).maxCascadeFanOut.get();
+    }
+}
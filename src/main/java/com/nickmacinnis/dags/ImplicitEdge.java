@@ -1,5 +1,7 @@
 package com.nickmacinnis.dags;
 
+import java.util.Objects;
+
 /**
  * A calculated edge joining a start and end node by way of one direct edge and one direct or implicit edge.
  * @author nmacinnis
@@ -18,6 +20,7 @@ public abstract non-sealed class ImplicitEdge<N extends Node<N, E>, E extends Ed
         this.entryEdge = entryEdge;
         this.directEdge = directEdge;
         this.exitEdge = exitEdge;
+        this.hash = Objects.hash(directEdge, endNode, entryEdge, exitEdge, hops, startNode);
     }
 
     @Override
@@ -0,0 +1,73 @@
+package com.nickmacinnis.dags;
+
+import java.util.List;
+
+/**
+ * The outcome of an {@link EdgeListImporter} run: how many lines were read and edges added, and every line which
+ * could not be added, with the reason.
+ */
+public final class ImportReport {
+
+    /** A line of the edge list which was not added to the graph. */
+    public static final class Rejection {
+        private final long line;
+        private final String text;
+        private final String reason;
+
+        Rejection(long line, String text, String reason) {
+            this.line = line;
+            this.text = text;
+            this.reason = reason;
+        }
+
+        /** @return the number of the line, counting from 1 */
+        public long getLine() {
+            return line;
+        }
+
+        /** @return the line, or for a well-formed line its two keys joined by a tab */
+        public String getText() {
+            return text;
+        }
+
+        /** @return why the line was not added, such as the message of the {@link GraphLogicException} it caused */
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return line + ": " + reason + ": " + text;
+        }
+    }
+
+    private final long lines;
+    private final long edgesAdded;
+    private final List<Rejection> rejections;
+
+    ImportReport(long lines, long edgesAdded, List<Rejection> rejections) {
+        this.lines = lines;
+        this.edgesAdded = edgesAdded;
+        this.rejections = List.copyOf(rejections);
+    }
+
+    /** @return the number of lines read, blank and comment lines included */
+    public long getLines() {
+        return lines;
+    }
+
+    /** @return the number of edges added, not counting those already present */
+    public long getEdgesAdded() {
+        return edgesAdded;
+    }
+
+    /** @return the lines which could not be added, in order */
+    public List<Rejection> getRejections() {
+        return rejections;
+    }
+
+    /** @return true if every line was added or already present */
+    public boolean isSuccessful() {
+        return rejections.isEmpty();
+    }
+}
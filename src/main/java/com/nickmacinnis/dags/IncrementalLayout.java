@@ -0,0 +1,277 @@
+package com.nickmacinnis.dags;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The coordinates of {@link DirectedAcyclicGraph#calculateNodeCoordinates()}, kept up to date as the graph is edited.
+ * Returned by {@link DirectedAcyclicGraph#layOutIncrementally()}, it is told of every direct edge attached or
+ * detached afterwards, and {@link #update()} then redoes only the part of the layout those edges affect:
+ * <ul>
+ * <li>depths, and the number of blocks of grid rows each node appears in with the sum of their first rows, at and
+ * below the end node of each edge, and below any node whose place among its parent's children moved;</li>
+ * <li>the number of paths to a leaf at and above the start node of each edge;</li>
+ * <li>collisions along only those rows of nodes, one per Y, which a node of the region joined, left or moved in.</li>
+ * </ul>
+ * Each node keeps a constant amount of this state however many paths run through it, so redoing it costs one step
+ * per node and edge of the region. Collisions are removed along a row in the order a full layout takes its nodes,
+ * which is the order of {@link Node#collectChildren()} from the root, so finding the nodes of the rows redone costs
+ * one more pass over the nodes of the graph, reading only their Y, unless the update leaves every row as it was.
+ * Edges are not untangled again, so nodes stay in the order they were, and every coordinate is exactly what a full
+ * layout without untangling would give. {@link #calculateNodeCoordinates()} untangles and lays out the whole graph.
+ * <p>
+ * Edges into the graph from nodes outside it are only noticed once their start node joins the graph.
+ */
+public final class IncrementalLayout<N extends Node<N, E>, E extends Edge<N, E>> implements AutoCloseable {
+    private final DirectedAcyclicGraph<N, E> graph;
+    /** The length of the longest path into each node, which sets its depth. */
+    private final Map<N, Integer> waves = new HashMap<>();
+    /** The number of paths from each node to a leaf: the length of each block of its rows. */
+    private final Map<N, Double> leafPaths = new HashMap<>();
+    /** The number of blocks of each node's rows, one per path from the root. */
+    private final Map<N, Double> blocks = new HashMap<>();
+    /** The sum of the first rows of the blocks of each node's rows. */
+    private final Map<N, Double> startSums = new HashMap<>();
+    /** Where the rows through each child of each node start within each block of that node's rows. */
+    private final Map<N, Map<N, Double>> childOffsets = new HashMap<>();
+    /** The X of each node before collisions were removed. */
+    private final Map<N, Double> columns = new HashMap<>();
+    private final Set<N> changedStarts = new LinkedHashSet<>();
+    private final Set<N> changedChains = new LinkedHashSet<>();
+    private final DirectEdgeListener<N, E> listener = new DirectEdgeListener<>() {
+        @Override
+        public void directEdgeAttached(E edge) {
+            changedStarts.add(edge.getEndNode());
+            changedChains.add(edge.getStartNode());
+        }
+
+        @Override
+        public void directEdgeDetached(E edge) {
+            changedStarts.add(edge.getEndNode());
+            changedChains.add(edge.getStartNode());
+        }
+    };
+
+    IncrementalLayout(DirectedAcyclicGraph<N, E> graph) {
+        this.graph = graph;
+        calculateNodeCoordinates();
+        graph.addListener(listener);
+    }
+
+    /** Untangle and lay out the whole graph afresh, as {@link DirectedAcyclicGraph#calculateNodeCoordinates()}. */
+    public void calculateNodeCoordinates() {
+        graph.calculateNodeCoordinates();
+        waves.clear();
+        leafPaths.clear();
+        blocks.clear();
+        startSums.clear();
+        childOffsets.clear();
+        columns.clear();
+        changedStarts.add(graph.rootNode);
+        changedChains.add(graph.rootNode);
+        changedChains.addAll(graph.collectChildren());
+        update();
+    }
+
+    /** Stop following edits to the graph. */
+    @Override
+    public void close() {
+        graph.removeListener(listener);
+    }
+
+    /**
+     * Bring the coordinates up to date with every edit since the last update.
+     * @return the nodes of the graph whose X or Y changed
+     */
+    public Set<N> update() {
+        if (changedStarts.isEmpty() && changedChains.isEmpty()) {
+            return Set.of();
+        }
+        Map<N, double[]> before = new HashMap<>();
+        // nodes which have just joined need their paths to a leaf counted as well
+        Set<N> chains = new LinkedHashSet<>(changedChains);
+        for (N node : Traversal.alongDirectEdges(changedStarts, false)) {
+            if (isMember(node) && !leafPaths.containsKey(node)) {
+                chains.add(node);
+            }
+        }
+        Set<N> above = Traversal.alongDirectEdges(chains, true);
+        Set<N> recounted = new HashSet<>();
+        for (N node : TopologicalSort.sortRegion(above, above::contains, false)) {
+            if (!isMember(node)) {
+                continue;
+            }
+            double paths = 0;
+            for (E edge : node.getOutgoingEdges()) {
+                if (edge instanceof DirectEdge<?, ?>) {
+                    paths += leafPaths.get(edge.getEndNode());
+                }
+            }
+            paths = Math.max(1, paths);
+            Double previous = leafPaths.put(node, paths);
+            if (previous == null || previous != paths) {
+                recounted.add(node);
+            }
+        }
+
+        // a node's rows move if its place among any parent's children does
+        Set<N> parents = new LinkedHashSet<>(chains);
+        for (N node : recounted) {
+            for (E edge : node.getIncomingEdges()) {
+                if (edge instanceof DirectEdge<?, ?>) {
+                    parents.add(edge.getStartNode());
+                }
+            }
+        }
+        Set<N> moved = new LinkedHashSet<>(changedStarts);
+        for (N parent : parents) {
+            if (!isMember(parent)) {
+                continue;
+            }
+            Map<N, Double> offsets = Layout.childOffsets(parent, leafPaths::get);
+            Map<N, Double> previous = childOffsets.put(parent, offsets);
+            for (Map.Entry<N, Double> child : offsets.entrySet()) {
+                if (previous == null || !child.getValue().equals(previous.get(child.getKey()))) {
+                    moved.add(child.getKey());
+                }
+            }
+        }
+
+        Set<Double> changedRows = new HashSet<>();
+        Set<N> below = Traversal.alongDirectEdges(moved, false);
+        for (N node : TopologicalSort.sortRegion(below, below::contains, true)) {
+            // only nodes below an edit can join, leave or move among the nodes of a row
+            changedRows.add(node.getY());
+            if (!isMember(node)) {
+                forget(node);
+                continue;
+            }
+            if (node == graph.rootNode) {
+                waves.put(node, 0);
+                blocks.put(node, 1.0);
+                startSums.put(node, 0.0);
+                continue;
+            }
+            int wave = 0;
+            for (E edge : node.getIncomingEdges()) {
+                if (edge instanceof DirectEdge<?, ?>) {
+                    wave = Math.max(wave, waveOf(edge.getStartNode()) + 1);
+                }
+            }
+            waves.put(node, wave);
+            double depth = Math.max(0, wave - 1);
+            if (depth != node.getY()) {
+                record(node, before);
+                changedRows.add(depth);
+                node.setY(depth);
+            }
+            sumBlocks(node);
+        }
+
+        Set<N> recolumned = new LinkedHashSet<>(below);
+        recolumned.addAll(recounted);
+        for (N node : recolumned) {
+            if (!isMember(node)) {
+                continue;
+            }
+            double column = Layout.column(leafPaths.get(node), blocks.get(node), startSums.get(node));
+            Double previous = columns.put(node, column);
+            if (node == graph.rootNode) {
+                record(node, before);
+                node.setX(column);
+            } else if (previous == null || previous != column) {
+                changedRows.add(node.getY());
+            }
+        }
+
+        // the nodes of each row redone, in the order a full layout takes them
+        Map<Double, List<N>> rows = new LinkedHashMap<>();
+        if (!changedRows.isEmpty()) {
+            for (N node : graph.rootNode.collectChildren()) {
+                if (changedRows.contains(node.getY())) {
+                    rows.computeIfAbsent(node.getY(), y -> new ArrayList<>()).add(node);
+                }
+            }
+        }
+        for (List<N> row : rows.values()) {
+            for (N node : row) {
+                record(node, before);
+                node.setX(columns.get(node));
+            }
+            Layout.removeCollisions(row);
+        }
+        changedStarts.clear();
+        changedChains.clear();
+
+        Set<N> changed = new LinkedHashSet<>();
+        for (Map.Entry<N, double[]> entry : before.entrySet()) {
+            N node = entry.getKey();
+            if (node.getX() != entry.getValue()[0] || node.getY() != entry.getValue()[1]) {
+                changed.add(node);
+            }
+        }
+        return changed;
+    }
+
+    private boolean isMember(N node) {
+        return node == graph.rootNode || graph.containsNode(node);
+    }
+
+    private static <N extends Node<N, E>, E extends Edge<N, E>> void record(N node, Map<N, double[]> before) {
+        before.putIfAbsent(node, new double[] {node.getX(), node.getY()});
+    }
+
+    /**
+     * Work out the number of blocks of node's rows and the sum of their first rows from those of each parent in the
+     * graph, each parent's already known: one step per parent, however many paths run through them.
+     */
+    private void sumBlocks(N node) {
+        double count = 0;
+        double startSum = 0;
+        for (E edge : node.getIncomingEdges()) {
+            N parent = edge.getStartNode();
+            if (edge instanceof DirectEdge<?, ?> && isMember(parent)) {
+                double parentBlocks = blocks.get(parent);
+                count += parentBlocks;
+                startSum += startSums.get(parent) + parentBlocks * childOffsets.get(parent).get(node);
+            }
+        }
+        blocks.put(node, count);
+        startSums.put(node, startSum);
+    }
+
+    /** @return the length of the longest path into node, worked out afresh for a node outside the graph */
+    private int waveOf(N node) {
+        Integer known = waves.get(node);
+        if (known != null) {
+            return known;
+        }
+        Set<N> region = Traversal.alongDirectEdges(List.of(node), true);
+        Map<N, Integer> outside = new HashMap<>();
+        for (N ancestor : TopologicalSort.sortRegion(region, region::contains, true)) {
+            int wave = 0;
+            for (E edge : ancestor.getIncomingEdges()) {
+                if (edge instanceof DirectEdge<?, ?>) {
+                    wave = Math.max(wave, outside.get(edge.getStartNode()) + 1);
+                }
+            }
+            outside.put(ancestor, wave);
+        }
+        return outside.get(node);
+    }
+
+    private void forget(N node) {
+        waves.remove(node);
+        leafPaths.remove(node);
+        blocks.remove(node);
+        startSums.remove(node);
+        childOffsets.remove(node);
+        columns.remove(node);
+    }
+}
@@ -0,0 +1,239 @@
+package com.nickmacinnis.dags;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The steps of {@link DirectedAcyclicGraph#calculateNodeCoordinates()}, worked level by level over a topological
+ * frontier so that the nodes of each level can be handled in parallel. Each step gives exactly the coordinates of
+ * the sequential algorithm, which sets Y from {@link Node#calculateDepth()}, X as the running mean of the rows of
+ * {@link Node#generateGrid()} a node appears in, and then moves nodes right until none overlap. Each node keeps
+ * a constant amount of state whatever the number of paths through it, so every step costs one visit per node and
+ * edge, and the pool only divides that work.
+ */
+final class Layout {
+    /** Levels smaller than this are not worth splitting across the pool. */
+    private static final int CHUNK = 32;
+
+    private Layout() {
+    }
+
+    /**
+     * @return the nodes and all of their ancestors in waves along direct edges: the first wave holds the nodes
+     *         without parents, and each node is in the wave after that of its last parent, so a node's wave is the
+     *         length of the longest path into it
+     */
+    static <N extends Node<N, E>, E extends Edge<N, E>> List<List<N>> levels(Collection<N> nodes) {
+        Set<N> region = Traversal.alongDirectEdges(nodes, true);
+        Map<N, Integer> pending = new HashMap<>();
+        List<N> wave = new ArrayList<>();
+        for (N node : region) {
+            int parents = 0;
+            for (E edge : node.getIncomingEdges()) {
+                if (edge instanceof DirectEdge<?, ?>) {
+                    parents++;
+                }
+            }
+            if (parents == 0) {
+                wave.add(node);
+            } else {
+                pending.put(node, parents);
+            }
+        }
+        List<List<N>> levels = new ArrayList<>();
+        while (!wave.isEmpty()) {
+            levels.add(wave);
+            List<N> next = new ArrayList<>();
+            for (N node : wave) {
+                for (E edge : node.getOutgoingEdges()) {
+                    Integer count = edge instanceof DirectEdge<?, ?> ? pending.get(edge.getEndNode()) : null;
+                    if (count == null) {
+                        continue;
+                    }
+                    if (count == 1) {
+                        pending.remove(edge.getEndNode());
+                        next.add(edge.getEndNode());
+                    } else {
+                        pending.put(edge.getEndNode(), count - 1);
+                    }
+                }
+            }
+            wave = next;
+        }
+        return levels;
+    }
+
+    /** Set the Y of every node of targets to its depth: one less than its wave, as hops count for implicit edges. */
+    static <N extends Node<N, E>, E extends Edge<N, E>> void assignDepths(List<List<N>> levels, Set<N> targets,
+            ForkJoinPool pool) {
+        for (int wave = 0; wave < levels.size(); wave++) {
+            int depth = Math.max(0, wave - 1);
+            forEach(pool, levels.get(wave), node -> {
+                if (targets.contains(node)) {
+                    node.setY(depth);
+                }
+            });
+        }
+    }
+
+    /**
+     * Set the X of every node below rootNode as the sequential algorithm would from the grid of root paths,
+     * without building the grid or any list of its rows. Paths are listed depth first, so the rows through a node
+     * come in one unbroken block per path from the root to it, as long as the number of paths from it to a leaf.
+     * Each block's first row is that of the parent's block plus the paths through the parent's earlier children,
+     * so a node's number of blocks and the sum of their first rows follow from its parents', a level at a time,
+     * parents first, and its X from those two and its paths to a leaf by {@link #column}. The work is one step per
+     * edge, however many paths there are.
+     */
+    static <N extends Node<N, E>, E extends Edge<N, E>> void assignColumns(N rootNode, List<List<N>> levels,
+            ForkJoinPool pool) {
+        Map<N, Integer> ids = new HashMap<>();
+        for (List<N> level : levels) {
+            for (N node : level) {
+                ids.put(node, ids.size());
+            }
+        }
+        // counts of paths grow exponentially with stacked diamonds, so they are kept as doubles, which are exact
+        // as far as any grid could be listed and only lose precision, not overflow, beyond
+        double[] leafPaths = new double[ids.size()];
+        for (int wave = levels.size() - 1; wave >= 0; wave--) {
+            forEach(pool, levels.get(wave), node -> {
+                double paths = 0;
+                for (E edge : node.getOutgoingEdges()) {
+                    Integer child = edge instanceof DirectEdge<?, ?> ? ids.get(edge.getEndNode()) : null;
+                    if (child != null) {
+                        paths += leafPaths[child];
+                    }
+                }
+                leafPaths[ids.get(node)] = Math.max(1, paths);
+            });
+        }
+
+        // the number of blocks of each node's rows, 0 for nodes not below the root, and the sum of their first rows
+        double[] blocks = new double[ids.size()];
+        double[] startSums = new double[ids.size()];
+        List<Map<N, Double>> childOffsets = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            childOffsets.add(null);
+        }
+        for (List<N> level : levels) {
+            forEach(pool, level, node -> {
+                int id = ids.get(node);
+                if (node.equals(rootNode)) {
+                    blocks[id] = 1;
+                } else {
+                    for (E edge : node.getIncomingEdges()) {
+                        if (edge instanceof DirectEdge<?, ?>) {
+                            int parent = ids.get(edge.getStartNode());
+                            if (blocks[parent] > 0) {
+                                blocks[id] += blocks[parent];
+                                startSums[id] += startSums[parent]
+                                        + blocks[parent] * childOffsets.get(parent).get(node);
+                            }
+                        }
+                    }
+                }
+                if (blocks[id] == 0) {
+                    return;
+                }
+                childOffsets.set(id, childOffsets(node, child -> leafPaths[ids.get(child)]));
+                node.setX(column(leafPaths[id], blocks[id], startSums[id]));
+            });
+        }
+    }
+
+    /**
+     * @param leafPaths The number of paths from each direct child of node to a leaf
+     * @return the first of the rows through each direct child of node which pass through a given row block of node,
+     *         less the first row of that block
+     */
+    static <N extends Node<N, E>, E extends Edge<N, E>> Map<N, Double> childOffsets(N node,
+            ToDoubleFunction<N> leafPaths) {
+        Map<N, Double> offsets = new HashMap<>();
+        double offset = 0;
+        for (E edge : node.getOutgoingEdges()) {
+            if (edge instanceof DirectEdge<?, ?>) {
+                offsets.put(edge.getEndNode(), offset);
+                offset += leafPaths.applyAsDouble(edge.getEndNode());
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * @param paths The length of each block of a node's rows: its number of paths to a leaf
+     * @param blocks The number of blocks: the node's number of paths from the root
+     * @param startSum The sum of the first rows of the blocks
+     * @return the mean of every row of every block, (startSum * paths + blocks * paths * (paths - 1) / 2) divided
+     *         by blocks * paths, which is the X the sequential algorithm's running mean over the grid comes to
+     */
+    static double column(double paths, double blocks, double startSum) {
+        return startSum / blocks + (paths - 1) / 2;
+    }
+
+    /**
+     * Move nodes right, in order, until none overlaps a node before it with the same Y. Only nodes with the same
+     * Y can overlap, so each Y is worked separately. Nodes already placed at one Y are at least 1 apart, so at
+     * most two of them can overlap a candidate, and they are found by X rather than by scanning.
+     */
+    static <N extends Node<N, E>, E extends Edge<N, E>> void removeCollisions(Collection<N> nodes,
+            ForkJoinPool pool) {
+        Map<Double, List<N>> rows = new LinkedHashMap<>();
+        for (N node : nodes) {
+            rows.computeIfAbsent(node.getY(), y -> new ArrayList<>()).add(node);
+        }
+        forEach(pool, new ArrayList<>(rows.values()), Layout::removeCollisions);
+    }
+
+    /** Move the nodes of one row, all with the same Y, right in order until none overlaps a node before it. */
+    static <N extends Node<N, E>, E extends Edge<N, E>> void removeCollisions(List<N> row) {
+        TreeMap<Double, Integer> placed = new TreeMap<>();
+        List<N> order = new ArrayList<>(row.size());
+        for (N node : row) {
+            N overlapping = findOverlappingNode(node, placed, order);
+            while (overlapping != null) {
+                node.setX(overlapping.getX() + 1);
+                overlapping = findOverlappingNode(node, placed, order);
+            }
+            placed.put(node.getX(), order.size());
+            order.add(node);
+        }
+    }
+
+    /** @return the earliest placed node within 1 of candidate's X, or null if there is none */
+    private static <N extends Node<N, E>, E extends Edge<N, E>> N findOverlappingNode(N candidate,
+            TreeMap<Double, Integer> placed, List<N> order) {
+        double x = candidate.getX();
+        int earliest = Integer.MAX_VALUE;
+        for (int index : placed.subMap(x - 2, true, x + 2, true).values()) {
+            if (index < earliest && Math.abs(x - order.get(index).getX()) < 1) {
+                earliest = index;
+            }
+        }
+        return earliest == Integer.MAX_VALUE ? null : order.get(earliest);
+    }
+
+    /** Apply action to every item, split across pool once there are enough items to be worth it. */
+    private static <T> void forEach(ForkJoinPool pool, List<T> items, Consumer<T> action) {
+        if (items.size() < 2 * CHUNK || pool.getParallelism() == 1) {
+            items.forEach(action);
+            return;
+        }
+        List<ForkJoinTask<?>> chunks = new ArrayList<>();
+        for (int from = 0; from < items.size(); from += CHUNK) {
+            List<T> chunk = items.subList(from, Math.min(items.size(), from + CHUNK));
+            chunks.add(ForkJoinTask.adapt(() -> chunk.forEach(action)));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(chunks)));
+    }
+}
@@ -0,0 +1,219 @@
+package com.nickmacinnis.dags;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A closure which stores nothing beyond the direct edges the nodes already hold, and answers each query by
+ * searching them. The descendants found by every complete search are kept in a cache of bounded size, the least
+ * recently used set going first, so that repeated queries from a node are answered without searching again.
+ * A search which finds what it looks for stops there, so only {@link #collectDescendants} and reachability
+ * queries which fail leave a set behind; reachability queries which succeed search again each time.
+ * <p>
+ * The cache is indexed by member as well as by key, so an edge which attaches or detaches visits only the cached
+ * sets which hold its start node: it drops those it adds to, or may take from, and leaves the rest. A batch drops
+ * the whole cache once, when it ends.
+ * <p>
+ * Since every lookup reorders the cache, queries write to it. The cache is guarded by its own lock, held only
+ * while an entry is looked up, added or dropped and never during a search, so that queries may still run in
+ * parallel, as {@link ConcurrentDirectedAcyclicGraph} runs them. Edits must not overlap queries or each other.
+ */
+public class LazyClosure<N extends Node<N, E>, E extends Edge<N, E>> implements Closure<N, E> {
+    /** The number of nodes held across all cached sets unless another capacity is given. */
+    public static final int DEFAULT_CAPACITY = 1 << 20;
+
+    private final long capacity;
+    /** Cached descendants in order of last use, least recent first, guarded by itself along with size. */
+    private final LinkedHashMap<N, Set<N>> descendants = new LinkedHashMap<>(16, 0.75f, true);
+    /** The keys of the cached sets holding each node, guarded by descendants. */
+    private final Map<N, Set<N>> holders = new HashMap<>();
+    /** Nodes held across all cached sets, each set counting one more for its key. */
+    private long size;
+    private int batchDepth;
+    private boolean attachedInBatch;
+
+    public LazyClosure() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity The number of nodes to hold across all cached sets at most, a set counting one more for the
+     *                 node it is the descendants of; 0 disables the cache
+     */
+    public LazyClosure(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("The capacity of a cache cannot be negative");
+        }
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void directEdgeAttached(E edge) {
+        if (batchDepth > 0) {
+            attachedInBatch = true;
+            return;
+        }
+        N startNode = edge.getStartNode();
+        N endNode = edge.getEndNode();
+        // a set gains nodes only if it reaches the start node and not already the end node
+        drop(startNode, key -> !holders.getOrDefault(endNode, Collections.emptySet()).contains(key));
+    }
+
+    @Override
+    public void directEdgeDetached(E edge) {
+        // a set can lose nodes only if the edge was on a path from it
+        drop(edge.getStartNode(), key -> true);
+    }
+
+    @Override
+    public void beginBatch() {
+        batchDepth++;
+    }
+
+    @Override
+    public void endBatch() {
+        if (--batchDepth == 0 && attachedInBatch) {
+            synchronized (descendants) {
+                descendants.clear();
+                holders.clear();
+                size = 0;
+            }
+            attachedInBatch = false;
+        }
+    }
+
+    @Override
+    public boolean isReachable(N startNode, N endNode) {
+        Set<N> cached = lookUp(startNode);
+        if (cached != null) {
+            return cached.contains(endNode);
+        }
+        Set<N> reached = new LinkedHashSet<>();
+        Deque<N> stack = new ArrayDeque<>();
+        stack.push(startNode);
+        while (!stack.isEmpty()) {
+            for (E edge : stack.pop().getOutgoingEdges()) {
+                N next = edge.getEndNode();
+                if (next.equals(endNode)) {
+                    return true;
+                }
+                if (reached.add(next)) {
+                    stack.push(next);
+                }
+            }
+        }
+        // having missed endNode, the search found every descendant
+        cache(startNode, reached);
+        return false;
+    }
+
+    @Override
+    public Set<N> collectDescendants(N node) {
+        Set<N> cached = lookUp(node);
+        if (cached == null) {
+            cached = Traversal.alongDirectEdges(List.of(node), false);
+            cached.remove(node);
+            cache(node, cached);
+        }
+        return new LinkedHashSet<>(cached);
+    }
+
+    @Override
+    public Set<N> collectAncestors(N node) {
+        Set<N> ancestors = Traversal.alongDirectEdges(List.of(node), true);
+        ancestors.remove(node);
+        return ancestors;
+    }
+
+    @Override
+    public int calculateDepth(N node) {
+        Set<N> region = Traversal.alongDirectEdges(List.of(node), true);
+        if (region.size() == 1) {
+            return 0;
+        }
+        Map<N, Integer> longestPaths = new HashMap<>();
+        for (N current : TopologicalSort.sortRegion(region, region::contains, true)) {
+            int longest = 0;
+            for (E incomingEdge : current.getIncomingEdges()) {
+                longest = Math.max(longest, longestPaths.get(incomingEdge.getStartNode()) + 1);
+            }
+            longestPaths.put(current, longest);
+        }
+        return longestPaths.get(node) - 1;
+    }
+
+    /** @return true if the descendants of node are cached, without counting as a use */
+    boolean isCached(N node) {
+        synchronized (descendants) {
+            return descendants.containsKey(node);
+        }
+    }
+
+    /** @return the cached descendants of node, marking them as just used, or null; cached sets are never changed */
+    private Set<N> lookUp(N node) {
+        synchronized (descendants) {
+            return descendants.get(node);
+        }
+    }
+
+    private void cache(N node, Set<N> reachable) {
+        long weight = reachable.size() + 1L;
+        if (weight > capacity) {
+            return;
+        }
+        synchronized (descendants) {
+            // another query may have cached the same node meanwhile
+            evict(node);
+            while (size + weight > capacity) {
+                evict(descendants.keySet().iterator().next());
+            }
+            descendants.put(node, Collections.unmodifiableSet(reachable));
+            for (N member : reachable) {
+                holders.computeIfAbsent(member, key -> new HashSet<>()).add(node);
+            }
+            size += weight;
+        }
+    }
+
+    /**
+     * Drop the cached set of node, and every cached set holding node, whose key stale picks out. Neither is counted
+     * as a use of the sets kept.
+     */
+    private void drop(N node, Predicate<N> stale) {
+        synchronized (descendants) {
+            List<N> keys = new ArrayList<>(holders.getOrDefault(node, Collections.emptySet()));
+            keys.add(node);
+            for (N key : keys) {
+                if (descendants.containsKey(key) && stale.test(key)) {
+                    evict(key);
+                }
+            }
+        }
+    }
+
+    /** Remove the cached set of node, if there is one, from the cache and the index; descendants must be held. */
+    private void evict(N node) {
+        Set<N> reachable = descendants.remove(node);
+        if (reachable == null) {
+            return;
+        }
+        for (N member : reachable) {
+            Set<N> keys = holders.get(member);
+            keys.remove(node);
+            if (keys.isEmpty()) {
+                holders.remove(member);
+            }
+        }
+        size -= reachable.size() + 1L;
+    }
+}
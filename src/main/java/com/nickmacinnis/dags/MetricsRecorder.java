@@ -0,0 +1,62 @@
+package com.nickmacinnis.dags;
+
+/**
+ * Gathers the figures of the operation a graph is running for its {@link GraphMetrics}. Operations nest, as a node
+ * removal detaches edges, so only the outermost is timed and reported, with everything done inside it counted
+ * towards it.
+ */
+final class MetricsRecorder {
+    private final GraphMetrics metrics;
+    private int operations;
+    private int detaching;
+    private long start;
+    private long created;
+    private long destroyed;
+    private int cascadeDepth;
+    private int cascadeFanOut;
+
+    MetricsRecorder(GraphMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    GraphMetrics getMetrics() {
+        return metrics;
+    }
+
+    void begin() {
+        if (operations++ == 0) {
+            created = 0;
+            destroyed = 0;
+            cascadeDepth = 0;
+            cascadeFanOut = 0;
+            start = System.nanoTime();
+        }
+    }
+
+    void end(GraphMetrics.Operation operation) {
+        if (--operations == 0) {
+            metrics.operationCompleted(operation, System.nanoTime() - start, created, destroyed, cascadeDepth,
+                    cascadeFanOut);
+        }
+    }
+
+    /** Called as an edge starts to detach, before the implicit edges attached to it. */
+    void beginDetach() {
+        // the edges an operation detaches itself are level 0 of the cascade
+        cascadeDepth = Math.max(cascadeDepth, detaching++);
+    }
+
+    /** Called once an edge has detached, along with fanOut implicit edges attached to it. */
+    void endDetach(int fanOut) {
+        detaching--;
+        cascadeFanOut = Math.max(cascadeFanOut, fanOut);
+    }
+
+    void implicitEdgesCreated(long count) {
+        created += count;
+    }
+
+    void implicitEdgesDestroyed(long count) {
+        destroyed += count;
+    }
+}
@@ -1,5 +1,6 @@
 package com.nickmacinnis.dags;
 
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 
@@ -27,6 +28,15 @@ public interface Node<N extends Node<N, E>, E extends Edge<N, E>> extends Iterab
      */
     boolean removeChild(N endNode);
 
+    /** @return the closure maintaining this node's reachability, or null if implicit edges are generated instead */
+    Closure<N, E> getClosure();
+
+    /** @return true if node is reachable from this node (directly or transitively) */
+    boolean canReach(N node);
+
+    /** @return the graph this node belongs to, or null if it is not reachable from any graph's root */
+    DirectedAcyclicGraph<N, E> getGraph();
+
     /** @return true if this node has no incoming edges */
     boolean isOrphaned();
 
@@ -55,11 +65,18 @@ public interface Node<N extends Node<N, E>, E extends Edge<N, E>> extends Iterab
     int calculateDepth();
 
     /**
-     * @return a 2D list where each row is one path from this node to a leaf,
-     *         suitable for coordinate layout
+     * @return a 2D list where each row is one path from this node to a leaf, along direct edges; the number of
+     *         paths can grow exponentially with the depth of the graph, so prefer {@link #iteratePaths()} unless
+     *         every row is needed at once
      */
     List<List<N>> generateGrid();
 
+    /**
+     * @return the rows of {@link #generateGrid()}, in the same order, each found only as the iterator reaches it;
+     *         the iterator holds only the path it is on
+     */
+    Iterator<List<N>> iteratePaths();
+
     double getX();
 
     void setX(double x);
@@ -74,9 +91,9 @@ public interface Node<N extends Node<N, E>, E extends Edge<N, E>> extends Iterab
     /** @return the set of all direct edges reachable from this node */
     Set<E> collectDirectEdges();
 
-    /** @return nodes in depth-first order (direct edges only, duplicates possible) */
+    /** @return this node and its descendants in depth-first preorder (direct edges only, each node once) */
     List<N> dft();
 
-    /** @return nodes in breadth-first order (direct edges only, duplicates possible) */
+    /** @return this node and its descendants in breadth-first order (direct edges only, each node once) */
     List<N> bft();
 }
@@ -0,0 +1,219 @@
+package com.nickmacinnis.dags;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A closure which keeps exactly one {@link PathSummary} per reachable pair of nodes, however many paths join them.
+ * Where implicit edges grow with the number of paths, which is exponential in the depth of stacked diamonds,
+ * this grows only with the number of reachable pairs.
+ */
+public class PathCollapsedClosure<N extends Node<N, E>, E extends Edge<N, E>> implements Closure<N, E> {
+    private final Map<N, Map<N, PathSummary<N>>> descendants = new HashMap<>();
+    private final Map<N, Map<N, PathSummary<N>>> ancestors = new HashMap<>();
+    /** Edges attached since the outermost {@link #beginBatch()}, or null outside a batch. */
+    private List<E> batch;
+    private int batchDepth;
+
+    public PathCollapsedClosure() {
+    }
+
+    @Override
+    public void directEdgeAttached(E edge) {
+        if (batch != null) {
+            batch.add(edge);
+            return;
+        }
+        N startNode = edge.getStartNode();
+        N endNode = edge.getEndNode();
+        // every new path is some path into the start node, then this edge, then some path out of the end node;
+        // an empty path is represented by a summary of -1 hops
+        List<PathSummary<N>> upstream = new ArrayList<>(summaries(ancestors, startNode));
+        upstream.add(new PathSummary<>(startNode, startNode, -1, -1, 1));
+        List<PathSummary<N>> downstream = new ArrayList<>(summaries(descendants, endNode));
+        downstream.add(new PathSummary<>(endNode, endNode, -1, -1, 1));
+        for (PathSummary<N> before : upstream) {
+            for (PathSummary<N> after : downstream) {
+                N pathStart = before.getStartNode();
+                N pathEnd = after.getEndNode();
+                put(pathStart, pathEnd, combine(getPathSummary(pathStart, pathEnd), pathStart, pathEnd,
+                        before.getMinHops() + after.getMinHops() + 2,
+                        before.getMaxHops() + after.getMaxHops() + 2,
+                        multiply(before.getPathCount(), after.getPathCount())));
+            }
+        }
+    }
+
+    @Override
+    public void directEdgeDetached(E edge) {
+        if (batch != null) {
+            applyBatch();
+        }
+        // Only pairs running from the start node or its ancestors to the end node or its descendants can have
+        // lost paths. Rebuild those summaries from the remaining direct edges.
+        Set<N> upstream = new LinkedHashSet<>(keys(ancestors, edge.getStartNode()));
+        upstream.add(edge.getStartNode());
+        Set<N> downstream = new LinkedHashSet<>(keys(descendants, edge.getEndNode()));
+        downstream.add(edge.getEndNode());
+        rebuild(upstream, downstream);
+    }
+
+    @Override
+    public void beginBatch() {
+        if (batchDepth++ == 0) {
+            batch = new ArrayList<>();
+        }
+    }
+
+    /** Brings the summaries up to date with every edge of the batch in a single pass over the affected region. */
+    @Override
+    public void endBatch() {
+        if (--batchDepth == 0) {
+            applyBatch();
+            batch = null;
+        }
+    }
+
+    @Override
+    public boolean isReachable(N startNode, N endNode) {
+        return getPathSummary(startNode, endNode) != null;
+    }
+
+    @Override
+    public Set<N> collectDescendants(N node) {
+        return new LinkedHashSet<>(keys(descendants, node));
+    }
+
+    @Override
+    public Set<N> collectAncestors(N node) {
+        return new LinkedHashSet<>(keys(ancestors, node));
+    }
+
+    /** The longest path into a node always starts at a node with no ancestors, so its summary holds the depth. */
+    @Override
+    public int calculateDepth(N node) {
+        int depth = 0;
+        for (PathSummary<N> summary : summaries(ancestors, node)) {
+            depth = Math.max(depth, summary.getMaxHops());
+        }
+        return depth;
+    }
+
+    /** @return the summary of all paths from startNode to endNode, or null if there are none */
+    public PathSummary<N> getPathSummary(N startNode, N endNode) {
+        Map<N, PathSummary<N>> summaries = descendants.get(startNode);
+        return summaries == null ? null : summaries.get(endNode);
+    }
+
+    /** @return the summaries of all paths starting at startNode, one per reachable node */
+    public Collection<PathSummary<N>> getPathSummaries(N startNode) {
+        return Collections.unmodifiableCollection(summaries(descendants, startNode));
+    }
+
+    private void applyBatch() {
+        if (batch.isEmpty()) {
+            return;
+        }
+        // New paths all run from a start node or its ancestors to an end node or its descendants; the summaries
+        // hold nothing of the batch yet, so find those regions along the direct edges themselves.
+        List<N> starts = new ArrayList<>();
+        List<N> ends = new ArrayList<>();
+        for (E edge : batch) {
+            starts.add(edge.getStartNode());
+            ends.add(edge.getEndNode());
+        }
+        batch.clear();
+        rebuild(Traversal.alongDirectEdges(starts, true), Traversal.alongDirectEdges(ends, false));
+    }
+
+    /**
+     * Recompute the summaries of every pair running from the upstream region to the downstream region from the
+     * direct edges, children before parents.
+     */
+    private void rebuild(Set<N> upstream, Set<N> downstream) {
+        for (N node : TopologicalSort.sortRegion(upstream, upstream::contains, false)) {
+            Map<N, PathSummary<N>> rebuilt = new HashMap<>();
+            for (E outgoingEdge : node.getOutgoingEdges()) {
+                N child = outgoingEdge.getEndNode();
+                if (downstream.contains(child)) {
+                    rebuilt.put(child, combine(rebuilt.get(child), node, child, 0, 0, 1));
+                }
+                Map<N, PathSummary<N>> childDescendants = descendants.getOrDefault(child, Collections.emptyMap());
+                if (childDescendants.size() < downstream.size()) {
+                    for (PathSummary<N> summary : childDescendants.values()) {
+                        if (downstream.contains(summary.getEndNode())) {
+                            extend(rebuilt, node, summary);
+                        }
+                    }
+                } else {
+                    for (N target : downstream) {
+                        PathSummary<N> summary = childDescendants.get(target);
+                        if (summary != null) {
+                            extend(rebuilt, node, summary);
+                        }
+                    }
+                }
+            }
+            for (N target : downstream) {
+                PathSummary<N> summary = rebuilt.get(target);
+                if (summary == null) {
+                    remove(node, target);
+                } else {
+                    put(node, target, summary);
+                }
+            }
+        }
+    }
+
+    private void extend(Map<N, PathSummary<N>> rebuilt, N node, PathSummary<N> childSummary) {
+        N target = childSummary.getEndNode();
+        rebuilt.put(target, combine(rebuilt.get(target), node, target, childSummary.getMinHops() + 1,
+                childSummary.getMaxHops() + 1, childSummary.getPathCount()));
+    }
+
+    private void put(N startNode, N endNode, PathSummary<N> summary) {
+        descendants.computeIfAbsent(startNode, key -> new LinkedHashMap<>()).put(endNode, summary);
+        ancestors.computeIfAbsent(endNode, key -> new LinkedHashMap<>()).put(startNode, summary);
+    }
+
+    private void remove(N startNode, N endNode) {
+        removeEntry(descendants, startNode, endNode);
+        removeEntry(ancestors, endNode, startNode);
+    }
+
+    private static <N> void removeEntry(Map<N, Map<N, PathSummary<N>>> index, N key, N other) {
+        Map<N, PathSummary<N>> summaries = index.get(key);
+        if (summaries != null && summaries.remove(other) != null && summaries.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    private static <N> PathSummary<N> combine(PathSummary<N> existing, N startNode, N endNode, int minHops,
+            int maxHops, long pathCount) {
+        if (existing == null) {
+            return new PathSummary<>(startNode, endNode, minHops, maxHops, pathCount);
+        }
+        return existing.merge(minHops, maxHops, pathCount);
+    }
+
+    private static <N> Collection<PathSummary<N>> summaries(Map<N, Map<N, PathSummary<N>>> index, N node) {
+        return index.getOrDefault(node, Collections.emptyMap()).values();
+    }
+
+    private static <N> Set<N> keys(Map<N, Map<N, PathSummary<N>>> index, N node) {
+        return index.getOrDefault(node, Collections.emptyMap()).keySet();
+    }
+
+    private static long multiply(long a, long b) {
+        long high = Math.multiplyHigh(a, b);
+        long low = a * b;
+        return high != 0 || low < 0 ? Long.MAX_VALUE : low;
+    }
+}
@@ -0,0 +1,56 @@
+package com.nickmacinnis.dags;
+
+/**
+ * Everything a {@link PathCollapsedClosure} knows about the paths from one node to another: the shortest and
+ * longest path, counted in hops as for implicit edges, and the number of distinct paths.
+ */
+public final class PathSummary<N> {
+    private final N startNode;
+    private final N endNode;
+    private final int minHops;
+    private final int maxHops;
+    private final long pathCount;
+
+    PathSummary(N startNode, N endNode, int minHops, int maxHops, long pathCount) {
+        this.startNode = startNode;
+        this.endNode = endNode;
+        this.minHops = minHops;
+        this.maxHops = maxHops;
+        this.pathCount = pathCount;
+    }
+
+    public N getStartNode() {
+        return startNode;
+    }
+
+    public N getEndNode() {
+        return endNode;
+    }
+
+    /** @return hops of the shortest path: 0 if the nodes are joined by a direct edge */
+    public int getMinHops() {
+        return minHops;
+    }
+
+    /** @return hops of the longest path */
+    public int getMaxHops() {
+        return maxHops;
+    }
+
+    /** @return number of distinct paths, saturating at Long.MAX_VALUE */
+    public long getPathCount() {
+        return pathCount;
+    }
+
+    /** @return a summary covering both the paths of this summary and the given paths between the same nodes */
+    PathSummary<N> merge(int otherMinHops, int otherMaxHops, long otherPathCount) {
+        long count = pathCount + otherPathCount;
+        return new PathSummary<>(startNode, endNode, Math.min(minHops, otherMinHops), Math.max(maxHops, otherMaxHops),
+                count < 0 ? Long.MAX_VALUE : count);
+    }
+
+    @Override
+    public String toString() {
+        return "PathSummary[hops=" + minHops + ".." + maxHops + ", paths=" + pathCount + "]";
+    }
+}
@@ -0,0 +1,102 @@
+package com.nickmacinnis.dags;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * A spliterator over one of a graph's registry sets, optionally headed by one more element, the root, which the
+ * set does not hold. The set is read in place, in its own order, starting at the first traversal or split.
+ * Splitting hands off a batch of the elements not yet reached, copied into an array, which splits evenly in turn;
+ * batches grow by {@value #BATCH_UNIT} at each split, as in the JDK's iterator spliterators, but never take more
+ * than half of what is left, so that the work stays balanced. The size is exact as long as the set is not changed
+ * during traversal, which its iterator reports by throwing.
+ */
+final class RegistrySpliterator<T> implements Spliterator<T> {
+    static final int BATCH_UNIT = 1 << 10;
+    private static final int CHARACTERISTICS = DISTINCT | NONNULL | ORDERED | SIZED | SUBSIZED;
+
+    private final Collection<? extends T> registry;
+    private T head;
+    private Iterator<? extends T> iterator;
+    private long remaining;
+    private int batch;
+
+    /** @param head An element to come before those of registry, which registry does not hold, or null */
+    RegistrySpliterator(T head, Collection<? extends T> registry) {
+        this.head = head;
+        this.registry = registry;
+    }
+
+    private void bind() {
+        if (iterator == null) {
+            iterator = registry.iterator();
+            remaining = registry.size() + (head != null ? 1 : 0);
+        }
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        bind();
+        if (head != null) {
+            T first = head;
+            head = null;
+            remaining--;
+            action.accept(first);
+            return true;
+        }
+        if (!iterator.hasNext()) {
+            return false;
+        }
+        remaining--;
+        action.accept(iterator.next());
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        bind();
+        if (head != null) {
+            T first = head;
+            head = null;
+            action.accept(first);
+        }
+        iterator.forEachRemaining(action);
+        remaining = 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Spliterator<T> trySplit() {
+        bind();
+        if (remaining < 2) {
+            return null;
+        }
+        int size = (int) Math.min(remaining / 2, (long) batch + BATCH_UNIT);
+        Object[] elements = new Object[size];
+        int filled = 0;
+        if (head != null) {
+            elements[filled++] = head;
+            head = null;
+        }
+        while (filled < size && iterator.hasNext()) {
+            elements[filled++] = iterator.next();
+        }
+        batch = filled;
+        remaining -= filled;
+        // the array holds only elements of registry, or the head, so only Ts
+        return (Spliterator<T>) Spliterators.spliterator(elements, 0, filled, CHARACTERISTICS);
+    }
+
+    @Override
+    public long estimateSize() {
+        return iterator == null ? registry.size() + (head != null ? 1 : 0) : remaining;
+    }
+
+    @Override
+    public int characteristics() {
+        return CHARACTERISTICS;
+    }
+}
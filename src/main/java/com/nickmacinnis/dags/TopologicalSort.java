@@ -0,0 +1,66 @@
+package com.nickmacinnis.dags;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Orders a region of the graph along its direct edges.
+ */
+final class TopologicalSort {
+
+    private TopologicalSort() {
+    }
+
+    /**
+     * Order the nodes of a region so that every node comes after its direct parents within that region
+     * (or, if not parentsFirst, after its direct children). Edges leaving the region are ignored.
+     * @param region The nodes to order, each listed once
+     * @param inRegion Membership test for the region, used to classify the far end of each edge
+     */
+    static <N extends Node<N, E>, E extends Edge<N, E>> List<N> sortRegion(Iterable<N> region, Predicate<N> inRegion,
+            boolean parentsFirst) {
+        Map<N, Integer> pending = new HashMap<>();
+        Deque<N> ready = new ArrayDeque<>();
+        for (N node : region) {
+            int count = 0;
+            for (E edge : parentsFirst ? node.getIncomingEdges() : node.getOutgoingEdges()) {
+                if (edge instanceof DirectEdge<?, ?>
+                        && inRegion.test(parentsFirst ? edge.getStartNode() : edge.getEndNode())) {
+                    count++;
+                }
+            }
+            if (count == 0) {
+                ready.add(node);
+            } else {
+                pending.put(node, count);
+            }
+        }
+        List<N> order = new ArrayList<>();
+        while (!ready.isEmpty()) {
+            N node = ready.poll();
+            order.add(node);
+            for (E edge : parentsFirst ? node.getOutgoingEdges() : node.getIncomingEdges()) {
+                if (!(edge instanceof DirectEdge<?, ?>)) {
+                    continue;
+                }
+                N next = parentsFirst ? edge.getEndNode() : edge.getStartNode();
+                Integer count = pending.get(next);
+                if (count == null) {
+                    continue;
+                }
+                if (count == 1) {
+                    pending.remove(next);
+                    ready.add(next);
+                } else {
+                    pending.put(next, count - 1);
+                }
+            }
+        }
+        return order;
+    }
+}
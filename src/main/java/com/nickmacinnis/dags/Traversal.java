@@ -0,0 +1,221 @@
+package com.nickmacinnis.dags;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Walks the graph below a node with an explicit stack, so that deep chains cannot overflow the call stack.
+ * Traversals other than path enumeration expand each node once, so shared descendants cost no more than the
+ * nodes and edges actually present.
+ */
+final class Traversal {
+
+    private Traversal() {
+    }
+
+    /** Receives the events of a depth-first traversal. */
+    interface Visitor<N, E> {
+        /** Called as a node is expanded, before any of its edges. */
+        default void enter(N node) {
+        }
+
+        /** Called for every edge followed, whether or not its end node has already been expanded. */
+        default void edge(E edge) {
+        }
+
+        /** Called once every node below node has been exited. */
+        default void exit(N node) {
+        }
+    }
+
+    /**
+     * Walk depth first from start, visiting outgoing edges in list order.
+     * @param directOnly Follow only direct edges, rather than direct and implicit
+     */
+    static <N extends Node<N, E>, E extends Edge<N, E>> void depthFirst(N start, boolean directOnly,
+            Visitor<N, E> visitor) {
+        Set<N> visited = new HashSet<>();
+        Deque<N> nodes = new ArrayDeque<>();
+        Deque<Iterator<E>> edges = new ArrayDeque<>();
+        visited.add(start);
+        visitor.enter(start);
+        nodes.push(start);
+        edges.push(start.getOutgoingEdges().iterator());
+        while (!nodes.isEmpty()) {
+            Iterator<E> iterator = edges.peek();
+            if (!iterator.hasNext()) {
+                edges.pop();
+                visitor.exit(nodes.pop());
+                continue;
+            }
+            E edge = iterator.next();
+            if (directOnly && !(edge instanceof DirectEdge<?, ?>)) {
+                continue;
+            }
+            visitor.edge(edge);
+            N next = edge.getEndNode();
+            if (visited.add(next)) {
+                visitor.enter(next);
+                nodes.push(next);
+                edges.push(next.getOutgoingEdges().iterator());
+            }
+        }
+    }
+
+    /** @return every edge below start, direct only or direct and implicit, in depth-first order */
+    static <N extends Node<N, E>, E extends Edge<N, E>> Set<E> collectEdges(N start, boolean directOnly) {
+        Set<E> collected = new LinkedHashSet<>();
+        // implicit edges are still followed when collecting direct ones, which fixes the order they are found in
+        depthFirst(start, false, new Visitor<N, E>() {
+            @Override
+            public void edge(E edge) {
+                if (!directOnly || edge instanceof DirectEdge<?, ?>) {
+                    collected.add(edge);
+                }
+            }
+        });
+        return collected;
+    }
+
+    /** @return start and every node below it along direct edges, each once, in depth-first preorder */
+    static <N extends Node<N, E>, E extends Edge<N, E>> List<N> preorder(N start) {
+        List<N> order = new ArrayList<>();
+        depthFirst(start, true, new Visitor<N, E>() {
+            @Override
+            public void enter(N node) {
+                order.add(node);
+            }
+        });
+        return order;
+    }
+
+    /** @return start and every node below it along direct edges, each once, in breadth-first order */
+    static <N extends Node<N, E>, E extends Edge<N, E>> List<N> levelOrder(N start) {
+        List<N> order = new ArrayList<>();
+        Set<N> visited = new HashSet<>();
+        visited.add(start);
+        order.add(start);
+        for (int i = 0; i < order.size(); i++) {
+            for (E edge : order.get(i).getOutgoingEdges()) {
+                if (edge instanceof DirectEdge<?, ?> && visited.add(edge.getEndNode())) {
+                    order.add(edge.getEndNode());
+                }
+            }
+        }
+        return order;
+    }
+
+    /**
+     * @return the seeds and every node reachable from them along direct edges, followed backwards if upward
+     */
+    static <N extends Node<N, E>, E extends Edge<N, E>> Set<N> alongDirectEdges(Iterable<N> seeds, boolean upward) {
+        Set<N> reached = new LinkedHashSet<>();
+        Deque<N> stack = new ArrayDeque<>();
+        for (N seed : seeds) {
+            if (reached.add(seed)) {
+                stack.push(seed);
+            }
+        }
+        while (!stack.isEmpty()) {
+            N node = stack.pop();
+            for (E edge : upward ? node.getIncomingEdges() : node.getOutgoingEdges()) {
+                N next = upward ? edge.getStartNode() : edge.getEndNode();
+                if (edge instanceof DirectEdge<?, ?> && reached.add(next)) {
+                    stack.push(next);
+                }
+            }
+        }
+        return reached;
+    }
+
+    /**
+     * @return one row per path from start to a leaf along direct edges, each row listing the nodes on the path;
+     *         every path is walked once, so the cost is that of the rows themselves
+     */
+    static <N extends Node<N, E>, E extends Edge<N, E>> List<List<N>> paths(N start) {
+        List<List<N>> grid = new ArrayList<>();
+        pathIterator(start).forEachRemaining(grid::add);
+        return grid;
+    }
+
+    /**
+     * @return the rows of {@link #paths}, in the same order, each found only when asked for; the iterator holds
+     *         just the path it is on, so memory grows with the depth of the graph rather than the number of paths
+     */
+    static <N extends Node<N, E>, E extends Edge<N, E>> Iterator<List<N>> pathIterator(N start) {
+        return new Iterator<>() {
+            private final List<N> path = new ArrayList<>(List.of(start));
+            private final Deque<Iterator<E>> edges = new ArrayDeque<>();
+            /** The next row, or null if it has yet to be found. */
+            private List<N> next = hasDirectEdge(start) ? null : new ArrayList<>(path);
+            private boolean started;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    next = advance();
+                }
+                return next != null;
+            }
+
+            @Override
+            public List<N> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                List<N> row = next;
+                next = null;
+                return row;
+            }
+
+            /** @return the row of the next leaf reached, or null once every path has been walked */
+            private List<N> advance() {
+                if (!started) {
+                    started = true;
+                    if (!hasDirectEdge(start)) {
+                        return null;
+                    }
+                    edges.push(start.getOutgoingEdges().iterator());
+                }
+                while (!edges.isEmpty()) {
+                    Iterator<E> iterator = edges.peek();
+                    if (!iterator.hasNext()) {
+                        edges.pop();
+                        path.remove(path.size() - 1);
+                        continue;
+                    }
+                    E edge = iterator.next();
+                    if (!(edge instanceof DirectEdge<?, ?>)) {
+                        continue;
+                    }
+                    N node = edge.getEndNode();
+                    path.add(node);
+                    if (hasDirectEdge(node)) {
+                        edges.push(node.getOutgoingEdges().iterator());
+                    } else {
+                        List<N> row = new ArrayList<>(path);
+                        path.remove(path.size() - 1);
+                        return row;
+                    }
+                }
+                return null;
+            }
+        };
+    }
+
+    private static <N extends Node<N, E>, E extends Edge<N, E>> boolean hasDirectEdge(N node) {
+        for (E edge : node.getOutgoingEdges()) {
+            if (edge instanceof DirectEdge<?, ?>) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -2,16 +2,20 @@ package com.nickmacinnis.dags;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import org.junit.jupiter.api.Test;
 
 import com.nickmacinnis.dags.example.DirectEdgeExampleImpl;
+import com.nickmacinnis.dags.example.EdgeExample;
 import com.nickmacinnis.dags.example.ImplicitEdgeExampleImpl;
 import com.nickmacinnis.dags.example.NodeExample;
 
@@ -403,4 +407,103 @@ public class AbstractNodeTest {
 
         assertEquals(4, m.collectDirectEdges().size());
     }
+
+    @Test
+    public void testDftVisitsSharedNodesOnce() {
+        NodeExample m = new NodeExample();
+        NodeExample n = new NodeExample();
+        NodeExample o = new NodeExample();
+        NodeExample p = new NodeExample();
+        NodeExample q = new NodeExample();
+
+        m.addChild(n);
+        m.addChild(o);
+        n.addChild(p);
+        o.addChild(p);
+        p.addChild(q);
+
+        assertEquals(List.of(m, n, p, q, o), m.dft());
+        assertEquals(List.of(m, n, o, p, q), m.bft());
+        assertEquals(List.of(List.of(m, n, p, q), List.of(m, o, p, q)), m.generateGrid());
+        assertEquals(m.collectEdges().size(), m.getOutgoingEdges().size() + n.getOutgoingEdges().size()
+                + o.getOutgoingEdges().size() + p.getOutgoingEdges().size());
+    }
+
+    @Test
+    public void testTraversalOfLayeredDiamonds() {
+        BitsetClosure<NodeExample, EdgeExample> closure = new BitsetClosure<>();
+        NodeExample m = new NodeExample(closure);
+        NodeExample top = m;
+        for (int layer = 0; layer < 40; layer++) {
+            NodeExample left = new NodeExample(closure);
+            NodeExample right = new NodeExample(closure);
+            NodeExample bottom = new NodeExample(closure);
+            top.addChild(left);
+            top.addChild(right);
+            left.addChild(bottom);
+            right.addChild(bottom);
+            top = bottom;
+        }
+
+        // 2^40 paths, each walked once by a traversal that re-expands shared nodes
+        assertEquals(121, m.dft().size());
+        assertEquals(121, m.bft().size());
+        assertEquals(160, m.collectDirectEdges().size());
+        assertEquals(160, m.collectEdges().size());
+
+        // the paths are found one at a time, so the first few cost no more than their own length
+        Iterator<List<NodeExample>> paths = m.iteratePaths();
+        List<NodeExample> first = paths.next();
+        List<NodeExample> second = paths.next();
+        assertEquals(81, first.size());
+        assertEquals(first.subList(0, 79), second.subList(0, 79));
+        assertNotEquals(first.get(79), second.get(79));
+        assertEquals(top, second.get(80));
+        assertTrue(paths.hasNext());
+    }
+
+    @Test
+    public void testIteratePaths() {
+        NodeExample m = new NodeExample();
+        NodeExample n = new NodeExample();
+        NodeExample o = new NodeExample();
+        NodeExample p = new NodeExample();
+        NodeExample q = new NodeExample();
+        m.addChild(n);
+        m.addChild(o);
+        n.addChild(p);
+        o.addChild(p);
+        m.addChild(q);
+
+        List<List<NodeExample>> rows = new ArrayList<>();
+        Iterator<List<NodeExample>> paths = m.iteratePaths();
+        while (paths.hasNext()) {
+            rows.add(paths.next());
+        }
+        assertEquals(m.generateGrid(), rows);
+        assertEquals(List.of(List.of(m, n, p), List.of(m, o, p), List.of(m, q)), rows);
+        assertThrows(NoSuchElementException.class, paths::next);
+
+        Iterator<List<NodeExample>> leaf = q.iteratePaths();
+        assertEquals(List.of(q), leaf.next());
+        assertFalse(leaf.hasNext());
+    }
+
+    @Test
+    public void testTraversalOfDeepChain() {
+        // attach the direct edges alone: the traversals only follow direct edges anyway
+        NodeExample m = new NodeExample();
+        NodeExample last = m;
+        for (int i = 0; i < 20000; i++) {
+            NodeExample next = new NodeExample();
+            new DirectEdgeExampleImpl(last, next).attach();
+            last = next;
+        }
+
+        List<NodeExample> order = m.dft();
+        assertEquals(20001, order.size());
+        assertEquals(last, order.get(20000));
+        assertEquals(20000, m.collectDirectEdges().size());
+        assertEquals(20001, m.generateGrid().get(0).size());
+    }
 }
@@ -0,0 +1,246 @@
+package com.nickmacinnis.dags;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.nickmacinnis.dags.example.DirectEdgeExampleImpl;
+import com.nickmacinnis.dags.example.DirectedAcyclicGraphExampleImpl;
+import com.nickmacinnis.dags.example.EdgeExample;
+import com.nickmacinnis.dags.example.NodeExample;
+
+public class BitsetClosureTest {
+    BitsetClosure<NodeExample, EdgeExample> closure;
+    DirectedAcyclicGraphExampleImpl r;
+
+    @BeforeEach
+    public void setUp() {
+        closure = new BitsetClosure<>();
+        r = new DirectedAcyclicGraphExampleImpl(new NodeExample(closure));
+    }
+
+    @Test
+    public void testCopyHasItsOwnClosure() {
+        NodeExample n = new NodeExample(closure);
+        NodeExample o = new NodeExample(closure);
+        r.addChild(n);
+        n.addChild(o);
+
+        DirectedAcyclicGraph<NodeExample, EdgeExample> copy = r.copy();
+
+        // the copy's nodes are kept in a closure of their own, so copying adds nothing to this graph's
+        NodeExample rootCopy = copy.rootNode;
+        assertTrue(rootCopy.getClosure() instanceof BitsetClosure);
+        assertNotSame(closure, rootCopy.getClosure());
+        for (NodeExample node : rootCopy.collectChildren()) {
+            assertSame(rootCopy.getClosure(), node.getClosure());
+        }
+        assertEquals(2, rootCopy.collectChildren().size());
+        assertEquals(Set.of(n, o), closure.collectDescendants(r.getRootNode()));
+        assertSame(closure, new NodeExample(closure).copy().getClosure());
+    }
+
+    @Test
+    public void testAddChildKeepsOnlyDirectEdges() {
+        NodeExample n = new NodeExample(closure);
+        NodeExample o = new NodeExample(closure);
+
+        r.addChild(n);
+        n.addChild(o);
+
+        DirectEdgeExampleImpl e = new DirectEdgeExampleImpl(r.getRootNode(), n);
+        assertEquals(1, r.getRootNode().getOutgoingEdges().size());
+        assertTrue(r.getRootNode().getOutgoingEdges().contains(e));
+        assertEquals(1, o.getIncomingEdges().size());
+
+        assertTrue(r.getRootNode().canReach(o));
+        assertTrue(n.canReach(o));
+        assertFalse(o.canReach(n));
+
+        assertEquals(3, r.getNodeCount());
+        assertEquals(2, r.getEdgeCount());
+    }
+
+    @Test
+    public void testCollectChildren() {
+        NodeExample n = new NodeExample(closure);
+        NodeExample o = new NodeExample(closure);
+        NodeExample p = new NodeExample(closure);
+
+        n.addChild(p);
+        r.addChild(n);
+        o.addChild(p);
+        r.addChild(o);
+
+        Set<NodeExample> children = r.collectChildren();
+        assertEquals(3, children.size());
+        assertTrue(children.contains(n));
+        assertTrue(children.contains(o));
+        assertTrue(children.contains(p));
+        assertEquals(Set.of(r.getRootNode(), n, o), closure.collectAncestors(p));
+    }
+
+    @Test
+    public void testAddChildCycle() {
+        NodeExample n = new NodeExample(closure);
+        NodeExample o = new NodeExample(closure);
+
+        r.addChild(n);
+        n.addChild(o);
+
+        assertThrows(GraphLogicException.class, () -> o.addChild(r.getRootNode()));
+        assertThrows(GraphLogicException.class, () -> o.addChild(n));
+    }
+
+    @Test
+    public void testAddChildFromOtherClosure() {
+        NodeExample n = new NodeExample();
+
+        assertThrows(GraphLogicException.class, () -> r.addChild(n));
+    }
+
+    @Test
+    public void testRemoveChildWithDescendants() {
+        NodeExample n = new NodeExample(closure);
+        NodeExample o = new NodeExample(closure);
+
+        r.addChild(n);
+        n.addChild(o);
+
+        assertTrue(r.removeChild(n));
+
+        assertFalse(r.getRootNode().canReach(n));
+        assertFalse(r.getRootNode().canReach(o));
+        assertTrue(n.canReach(o));
+        assertEquals(1, r.getNodeCount());
+        assertEquals(0, r.getEdgeCount());
+    }
+
+    @Test
+    public void testRemoveChildStillReachable() {
+        NodeExample n = new NodeExample(closure);
+        NodeExample o = new NodeExample(closure);
+
+        r.addChild(n);
+        n.addChild(o);
+        r.addChild(o);
+
+        assertTrue(r.removeChild(o));
+
+        assertTrue(r.getRootNode().canReach(o));
+        assertEquals(1, o.calculateDepth());
+        assertEquals(3, r.getNodeCount());
+    }
+
+    @Test
+    public void testCalculateNodeCoordinates() {
+        NodeExample n = new NodeExample(closure);
+        NodeExample o = new NodeExample(closure);
+        NodeExample p = new NodeExample(closure);
+        NodeExample q = new NodeExample(closure);
+        NodeExample s = new NodeExample(closure);
+
+        r.addChild(n);
+        r.addChild(o);
+        n.addChild(p);
+        p.addChild(q);
+        p.addChild(s);
+
+        o.addChild(q);
+
+        r.calculateNodeCoordinates();
+
+        assertEquals(0.0, r.getRootNode().getY(), .01);
+        assertEquals(1.0, r.getRootNode().getX(), .01);
+
+        assertEquals(0.0, n.getY(), .01);
+        assertEquals(0.5, n.getX(), .01);
+
+        assertEquals(0.0, o.getY(), .01);
+        assertEquals(2.0, o.getX(), .01);
+
+        assertEquals(1.0, p.getY(), .01);
+        assertEquals(0.5, p.getX(), .01);
+
+        assertEquals(2.0, q.getY(), .01);
+        assertEquals(1.0, q.getX(), .01);
+
+        assertEquals(2.0, s.getY(), .01);
+        assertEquals(2.0, s.getX(), .01);
+    }
+
+    @Test
+    public void testRandomEditsMatchImplicitEdges() {
+        Random random = new Random(42);
+        int size = 40;
+        NodeExample[] implicitNodes = new NodeExample[size];
+        NodeExample[] bitsetNodes = new NodeExample[size];
+        for (int i = 0; i < size; i++) {
+            implicitNodes[i] = new NodeExample();
+            bitsetNodes[i] = new NodeExample(closure);
+        }
+        for (int step = 0; step < 400; step++) {
+            // edges only run from lower to higher indices, so every edit keeps the graph acyclic
+            int start = random.nextInt(size - 1);
+            int end = start + 1 + random.nextInt(size - start - 1);
+            if (random.nextInt(3) == 0) {
+                assertEquals(implicitNodes[start].removeChild(implicitNodes[end]),
+                        bitsetNodes[start].removeChild(bitsetNodes[end]));
+            } else {
+                assertEquals(implicitNodes[start].addChild(implicitNodes[end]),
+                        bitsetNodes[start].addChild(bitsetNodes[end]));
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            assertEquals(implicitNodes[i].calculateDepth(), bitsetNodes[i].calculateDepth());
+            for (int j = 0; j < size; j++) {
+                assertEquals(implicitNodes[i].canReach(implicitNodes[j]), bitsetNodes[i].canReach(bitsetNodes[j]));
+            }
+            assertEquals(implicitNodes[i].collectChildren().size(), bitsetNodes[i].collectChildren().size());
+            assertEquals(implicitNodes[i].collectChildren().size(), closure.collectDescendants(bitsetNodes[i]).size());
+        }
+    }
+
+    @Test
+    public void testAddEdgesMatchesAddChild() {
+        Random random = new Random(3);
+        int size = 30;
+        BitsetClosure<NodeExample, EdgeExample> batchClosure = new BitsetClosure<>();
+        NodeExample[] sequentialNodes = new NodeExample[size];
+        NodeExample[] batchNodes = new NodeExample[size];
+        for (int i = 0; i < size; i++) {
+            sequentialNodes[i] = new NodeExample(closure);
+            batchNodes[i] = new NodeExample(batchClosure);
+        }
+        DirectedAcyclicGraphExampleImpl batchGraph = new DirectedAcyclicGraphExampleImpl(batchNodes[0]);
+        for (int round = 0; round < 3; round++) {
+            List<Map.Entry<NodeExample, NodeExample>> batch = new ArrayList<>();
+            for (int step = 0; step < 25; step++) {
+                int start = random.nextInt(size - 1);
+                int end = start + 1 + random.nextInt(size - start - 1);
+                sequentialNodes[start].addChild(sequentialNodes[end]);
+                batch.add(Map.entry(batchNodes[start], batchNodes[end]));
+            }
+            batchGraph.addEdges(batch);
+
+            for (int i = 0; i < size; i++) {
+                assertEquals(sequentialNodes[i].calculateDepth(), batchNodes[i].calculateDepth());
+                for (int j = 0; j < size; j++) {
+                    assertEquals(sequentialNodes[i].canReach(sequentialNodes[j]), batchNodes[i].canReach(batchNodes[j]));
+                }
+            }
+        }
+    }
+}
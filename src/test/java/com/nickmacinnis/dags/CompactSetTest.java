@@ -0,0 +1,64 @@
+package com.nickmacinnis.dags;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+public class CompactSetTest {
+
+    @Test
+    public void testAddAndRemoveKeepOrder() {
+        for (int count : new int[] {1, 2, 8, 9, 40}) {
+            CompactSet<String> set = new CompactSet<>();
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                assertTrue(set.add("e" + i));
+                expected.add("e" + i);
+            }
+            // equal but not the same instance
+            assertFalse(set.add(new String("e0")));
+            assertEquals(expected, new ArrayList<>(set));
+
+            for (int i = 0; i < count; i += 2) {
+                assertTrue(set.remove("e" + i));
+                expected.remove("e" + i);
+            }
+            assertFalse(set.remove("e0"));
+            assertEquals(expected, new ArrayList<>(set));
+            assertEquals(expected.size(), set.size());
+            assertEquals(count > 1, set.contains("e1"));
+            assertFalse(set.contains("e0"));
+
+            set.clear();
+            assertTrue(set.isEmpty());
+            assertTrue(set.add("e0"));
+            assertEquals(List.of("e0"), new ArrayList<>(set));
+        }
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        CompactSet<String> set = new CompactSet<>();
+        set.add("a");
+        set.add("b");
+        set.add("c");
+        Iterator<String> iterator = set.iterator();
+        assertThrows(IllegalStateException.class, iterator::remove);
+        iterator.next();
+        iterator.remove();
+        assertEquals("b", iterator.next());
+        assertEquals(List.of("b", "c"), new ArrayList<>(set));
+
+        Iterator<String> stale = set.iterator();
+        set.add("d");
+        assertThrows(ConcurrentModificationException.class, stale::next);
+    }
+}
@@ -0,0 +1,97 @@
+package com.nickmacinnis.dags;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+public class CompressedBitSetTest {
+
+    @Test
+    public void testAddAndRemove() {
+        CompressedBitSet set = new CompressedBitSet();
+
+        assertTrue(set.isEmpty());
+        assertTrue(set.add(3));
+        assertFalse(set.add(3));
+        assertTrue(set.add(70000));
+        assertTrue(set.contains(3));
+        assertTrue(set.contains(70000));
+        assertFalse(set.contains(4));
+        assertEquals(2, set.cardinality());
+
+        assertTrue(set.remove(3));
+        assertFalse(set.remove(3));
+        assertFalse(set.contains(3));
+        assertTrue(set.remove(70000));
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void testForEachIsAscending() {
+        CompressedBitSet set = new CompressedBitSet();
+        set.add(131072);
+        set.add(5);
+        set.add(65536);
+        set.add(1);
+
+        List<Integer> values = new ArrayList<>();
+        set.forEach(values::add);
+
+        assertEquals(List.of(1, 5, 65536, 131072), values);
+    }
+
+    @Test
+    public void testDenseChunkConversion() {
+        CompressedBitSet set = new CompressedBitSet();
+        for (int i = 0; i < 10000; i++) {
+            set.add(i * 2);
+        }
+        assertEquals(10000, set.cardinality());
+        assertTrue(set.contains(19998));
+        assertFalse(set.contains(19999));
+
+        for (int i = 0; i < 9000; i++) {
+            set.remove(i * 2);
+        }
+        assertEquals(1000, set.cardinality());
+        assertTrue(set.contains(18000));
+        assertFalse(set.contains(17998));
+    }
+
+    @Test
+    public void testOrMatchesBitSet() {
+        Random random = new Random(7);
+        for (int round = 0; round < 20; round++) {
+            CompressedBitSet left = new CompressedBitSet();
+            CompressedBitSet right = new CompressedBitSet();
+            BitSet expected = new BitSet();
+            int leftCount = random.nextInt(6000);
+            for (int i = 0; i < leftCount; i++) {
+                int value = random.nextInt(200000);
+                left.add(value);
+                expected.set(value);
+            }
+            int rightCount = random.nextInt(6000);
+            for (int i = 0; i < rightCount; i++) {
+                int value = random.nextInt(200000);
+                right.add(value);
+                expected.set(value);
+            }
+            CompressedBitSet copy = left.copy();
+            left.or(right);
+
+            BitSet actual = new BitSet();
+            left.forEach(actual::set);
+            assertEquals(expected, actual);
+            assertEquals(expected.cardinality(), left.cardinality());
+            assertTrue(copy.cardinality() <= left.cardinality());
+        }
+    }
+}
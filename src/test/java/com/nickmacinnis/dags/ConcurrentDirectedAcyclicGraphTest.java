@@ -0,0 +1,312 @@
+package com.nickmacinnis.dags;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.nickmacinnis.dags.example.DirectedAcyclicGraphExampleImpl;
+import com.nickmacinnis.dags.example.EdgeExample;
+import com.nickmacinnis.dags.example.NodeExample;
+
+public class ConcurrentDirectedAcyclicGraphTest {
+    DirectedAcyclicGraphExampleImpl r;
+    ConcurrentDirectedAcyclicGraph<NodeExample, EdgeExample> concurrent;
+
+    @BeforeEach
+    public void setUp() {
+        r = new DirectedAcyclicGraphExampleImpl();
+        concurrent = new ConcurrentDirectedAcyclicGraph<>(r);
+    }
+
+    @Test
+    public void testEditsAndQueries() {
+        NodeExample root = r.getRootNode();
+        NodeExample n = new NodeExample();
+        NodeExample o = new NodeExample();
+
+        assertTrue(concurrent.addChild(root, n));
+        assertEquals(1, concurrent.addEdges(List.of(Map.entry(n, o))));
+        assertEquals(3, concurrent.getNodeCount());
+        assertEquals(3, concurrent.getEdgeCount());
+        assertEquals(Set.of(n, o), concurrent.collectChildren(root));
+        assertTrue(concurrent.canReach(root, o));
+        assertEquals(1, concurrent.calculateDepth(o));
+        assertEquals(List.of(root, n, o), concurrent.dft(root));
+        assertEquals(3, concurrent.freeze().getNodeCount());
+
+        concurrent.calculateNodeCoordinates();
+        assertEquals(1, o.getY(), .01);
+
+        assertTrue(concurrent.removeChild(n, o));
+        assertFalse(concurrent.containsNode(o));
+        concurrent.removeNode(n);
+        assertEquals(1, concurrent.getNodeCount());
+    }
+
+    @Test
+    public void testReadersSeeOnlyWholeEdits() throws InterruptedException {
+        NodeExample root = r.getRootNode();
+        NodeExample a = new NodeExample();
+        NodeExample b = new NodeExample();
+        NodeExample c = new NodeExample();
+        List<Map.Entry<NodeExample, NodeExample>> diamond = List.of(
+                Map.entry(root, a), Map.entry(root, b), Map.entry(a, c), Map.entry(b, c));
+        AtomicBoolean done = new AtomicBoolean();
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            readers.add(new Thread(() -> {
+                try {
+                    while (!done.get()) {
+                        // the diamond is added and removed in one edit each, so nothing in between is visible
+                        int size = concurrent.dft(root).size();
+                        assertTrue(size == 1 || size == 4, "saw " + size + " nodes");
+                        int children = concurrent.collectChildren(root).size();
+                        assertTrue(children == 0 || children == 3, "saw " + children + " children");
+                        int depth = concurrent.calculateDepth(c);
+                        assertTrue(depth == 0 || depth == 1, "saw depth " + depth);
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            }));
+        }
+        readers.forEach(Thread::start);
+        for (int i = 0; i < 2000; i++) {
+            concurrent.addEdges(diamond);
+            concurrent.removeNodes(List.of(a, b));
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertEquals(List.of(), new ArrayList<>(failures));
+        assertEquals(1, concurrent.getNodeCount());
+    }
+
+    @Test
+    public void testSnapshotPerVersion() {
+        NodeExample root = r.getRootNode();
+        NodeExample n = new NodeExample();
+        NodeExample o = new NodeExample();
+
+        concurrent.addChild(root, n);
+        FrozenGraph<NodeExample, EdgeExample> first = concurrent.freeze();
+        assertSame(first, concurrent.freeze());
+        assertEquals(1, concurrent.getVersion());
+
+        concurrent.addChild(n, o);
+        FrozenGraph<NodeExample, EdgeExample> second = concurrent.freeze();
+        assertNotSame(first, second);
+        assertEquals(2, concurrent.getVersion());
+
+        // an edit which fails changes nothing, so starts no new version
+        assertThrows(GraphLogicException.class, () -> concurrent.addChild(o, root));
+        assertEquals(2, concurrent.getVersion());
+        assertSame(second, concurrent.freeze());
+
+        // only the version asked for is taken, however many edits came before it
+        concurrent.addChild(root, new NodeExample());
+        concurrent.addChild(root, new NodeExample());
+        FrozenGraph<NodeExample, EdgeExample> fourth = concurrent.freeze();
+        assertEquals(4, concurrent.getVersion());
+        assertEquals(5, fourth.getNodeCount());
+
+        // a pinned version is unaffected by later edits
+        assertEquals(2, first.getNodeCount());
+        assertFalse(first.containsNode(o));
+        assertEquals(3, second.getNodeCount());
+        assertTrue(second.canReach(root, o));
+    }
+
+    @Test
+    public void testFreezeNeverWaitsForWriter() throws InterruptedException {
+        CountDownLatch editing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        // hold an edit from this node inside the write lock until released
+        NodeExample blocking = new NodeExample() {
+            @Override
+            protected EdgeExample buildDirectEdge(NodeExample startNode, NodeExample endNode) {
+                editing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.buildDirectEdge(startNode, endNode);
+            }
+        };
+        concurrent.addChild(r.getRootNode(), blocking);
+        FrozenGraph<NodeExample, EdgeExample> before = concurrent.freeze();
+        NodeExample added = new NodeExample();
+        Thread writer = new Thread(() -> concurrent.addChild(blocking, added));
+        writer.start();
+        editing.await();
+
+        // the reader pins the snapshot already built rather than copying the graph under a lock
+        FrozenGraph<NodeExample, EdgeExample> during = assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> concurrent.freeze());
+        assertSame(before, during);
+        release.countDown();
+        writer.join();
+
+        FrozenGraph<NodeExample, EdgeExample> after = concurrent.freeze();
+        assertTrue(after.containsNode(added));
+        assertFalse(during.containsNode(added));
+    }
+
+    @Test
+    public void testWriterProgressesWhileSnapshotsAreHeld() throws InterruptedException {
+        NodeExample root = r.getRootNode();
+        List<NodeExample> nodes = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            NodeExample node = new NodeExample();
+            nodes.add(node);
+            concurrent.addChild(i == 0 ? root : nodes.get(i / 2), node);
+        }
+        FrozenGraph<NodeExample, EdgeExample> held = concurrent.freeze();
+        AtomicBoolean done = new AtomicBoolean();
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+        Thread reader = new Thread(() -> {
+            try {
+                while (!done.get()) {
+                    // a long query over a held snapshot, and repeated pins of the latest one
+                    assertEquals(2001, held.dft().size());
+                    FrozenGraph<NodeExample, EdgeExample> latest = concurrent.freeze();
+                    assertEquals(latest.getNodeCount() - 1, latest.collectDescendants(root).size());
+                }
+            } catch (Throwable t) {
+                failures.add(t);
+            }
+        });
+        reader.start();
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            for (int i = 0; i < 200; i++) {
+                NodeExample leaf = new NodeExample();
+                concurrent.addChild(nodes.get(i), leaf);
+                concurrent.removeNode(leaf);
+            }
+        });
+        done.set(true);
+        reader.join();
+
+        assertEquals(List.of(), new ArrayList<>(failures));
+        assertEquals(2001, held.getNodeCount());
+        assertEquals(2400, concurrent.getVersion());
+    }
+
+    @Test
+    public void testPinnedSnapshotsStayConsistent() throws InterruptedException {
+        NodeExample root = r.getRootNode();
+        NodeExample a = new NodeExample();
+        NodeExample b = new NodeExample();
+        NodeExample c = new NodeExample();
+        List<Map.Entry<NodeExample, NodeExample>> diamond = List.of(
+                Map.entry(root, a), Map.entry(root, b), Map.entry(a, c), Map.entry(b, c));
+        AtomicBoolean done = new AtomicBoolean();
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            readers.add(new Thread(() -> {
+                try {
+                    while (!done.get()) {
+                        FrozenGraph<NodeExample, EdgeExample> pinned = concurrent.freeze();
+                        int size = pinned.getNodeCount();
+                        assertTrue(size == 1 || size == 4, "saw " + size + " nodes");
+                        for (int pass = 0; pass < 10; pass++) {
+                            assertEquals(size, pinned.dft().size());
+                            assertEquals(size - 1, pinned.collectDescendants(root).size());
+                            assertEquals(size == 4, pinned.containsNode(c) && pinned.calculateDepth(c) == 1);
+                        }
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            }));
+        }
+        readers.forEach(Thread::start);
+        for (int i = 0; i < 2000; i++) {
+            concurrent.addEdges(diamond);
+            concurrent.removeNodes(List.of(a, b));
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertEquals(List.of(), new ArrayList<>(failures));
+        assertEquals(4000, concurrent.getVersion());
+    }
+
+    @Test
+    public void testLazyClosureUnderParallelReaders() throws InterruptedException {
+        // a cache far smaller than the graph, so every query evicts, looks up and caches
+        LazyClosure<NodeExample, EdgeExample> closure = new LazyClosure<>(2000);
+        BitsetClosure<NodeExample, EdgeExample> expectedClosure = new BitsetClosure<>();
+        Random random = new Random(41);
+        List<NodeExample> nodes = new ArrayList<>();
+        List<NodeExample> expectedNodes = new ArrayList<>();
+        nodes.add(new NodeExample(closure));
+        expectedNodes.add(new NodeExample(expectedClosure));
+        ConcurrentDirectedAcyclicGraph<NodeExample, EdgeExample> lazy = new ConcurrentDirectedAcyclicGraph<>(
+                new DirectedAcyclicGraphExampleImpl(nodes.get(0)));
+        new DirectedAcyclicGraphExampleImpl(expectedNodes.get(0));
+        for (int i = 1; i < 400; i++) {
+            nodes.add(new NodeExample(closure));
+            expectedNodes.add(new NodeExample(expectedClosure));
+            for (int parent : new int[] {random.nextInt(i), random.nextInt(i)}) {
+                lazy.addChild(nodes.get(parent), nodes.get(i));
+                expectedNodes.get(parent).addChild(expectedNodes.get(i));
+            }
+        }
+        ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<>();
+
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            long seed = i;
+            readers.add(new Thread(() -> {
+                Random picks = new Random(seed);
+                try {
+                    for (int query = 0; query < 5000; query++) {
+                        int start = picks.nextInt(nodes.size());
+                        int end = picks.nextInt(nodes.size());
+                        assertEquals(expectedNodes.get(start).canReach(expectedNodes.get(end)),
+                                lazy.canReach(nodes.get(start), nodes.get(end)));
+                        if (query % 10 == 0) {
+                            assertEquals(expectedNodes.get(start).collectChildren().size(),
+                                    lazy.collectChildren(nodes.get(start)).size());
+                        }
+                    }
+                } catch (Throwable t) {
+                    failures.add(t);
+                }
+            }));
+        }
+        readers.forEach(Thread::start);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertEquals(List.of(), new ArrayList<>(failures));
+    }
+}
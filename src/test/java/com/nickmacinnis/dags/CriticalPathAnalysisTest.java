@@ -0,0 +1,127 @@
+package com.nickmacinnis.dags;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.nickmacinnis.dags.example.DirectedAcyclicGraphExampleImpl;
+import com.nickmacinnis.dags.example.EdgeExample;
+import com.nickmacinnis.dags.example.NodeExample;
+
+public class CriticalPathAnalysisTest {
+    DirectedAcyclicGraphExampleImpl r;
+    Map<NodeExample, Long> durations;
+
+    @BeforeEach
+    public void setUp() {
+        r = new DirectedAcyclicGraphExampleImpl();
+        durations = new HashMap<>();
+    }
+
+    private NodeExample node(long duration) {
+        NodeExample node = new NodeExample();
+        durations.put(node, duration);
+        return node;
+    }
+
+    private long durationOf(NodeExample node) {
+        return durations.getOrDefault(node, 0L);
+    }
+
+    @Test
+    public void testSchedule() {
+        NodeExample a = node(3);
+        NodeExample b = node(2);
+        NodeExample c = node(4);
+        NodeExample d = node(1);
+
+        r.addChild(a);
+        r.addChild(b);
+        a.addChild(c);
+        b.addChild(c);
+        b.addChild(d);
+
+        CriticalPathAnalysis<NodeExample, EdgeExample> analysis = r.analyzeCriticalPaths(this::durationOf);
+
+        assertEquals(7, analysis.getLength());
+        assertEquals(3, analysis.getEarliestStart(c));
+        assertEquals(7, analysis.getEarliestFinish(c));
+        assertEquals(0, analysis.getSlack(c));
+        assertEquals(1, analysis.getLatestStart(b));
+        assertEquals(1, analysis.getSlack(b));
+        assertEquals(2, analysis.getEarliestStart(d));
+        assertEquals(6, analysis.getLatestStart(d));
+        assertEquals(7, analysis.getLatestFinish(d));
+        assertEquals(4, analysis.getSlack(d));
+        assertTrue(analysis.isCritical(a));
+        assertFalse(analysis.isCritical(b));
+        assertEquals(List.of(r.getRootNode(), a, c), analysis.getCriticalPath());
+        assertEquals(List.of(r.getRootNode(), b, d), analysis.getCriticalPath(d));
+
+        b.addChild(node(0));
+        durations.put(d, 10L);
+        analysis.durationChanged(d);
+        assertEquals(12, analysis.getLength());
+        assertEquals(List.of(r.getRootNode(), b, d), analysis.getCriticalPath());
+        assertEquals(5, analysis.getSlack(c));
+
+        r.removeNode(b);
+        assertEquals(7, analysis.getLength());
+        assertThrows(GraphLogicException.class, () -> analysis.getSlack(d));
+    }
+
+    @Test
+    public void testUpdatesMatchFreshAnalysis() {
+        Random random = new Random(23);
+        List<NodeExample> nodes = new ArrayList<>();
+        nodes.add(r.getRootNode());
+        for (int i = 1; i < 30; i++) {
+            nodes.add(node(random.nextInt(10)));
+        }
+        CriticalPathAnalysis<NodeExample, EdgeExample> analysis = r.analyzeCriticalPaths(this::durationOf);
+
+        for (int step = 0; step < 300; step++) {
+            int start = random.nextInt(nodes.size() - 1);
+            int end = start + 1 + random.nextInt(nodes.size() - start - 1);
+            NodeExample startNode = nodes.get(start);
+            NodeExample endNode = nodes.get(end);
+            switch (random.nextInt(4)) {
+                case 0, 1 -> {
+                    if (r.containsNode(startNode)) {
+                        startNode.addChild(endNode);
+                    }
+                }
+                case 2 -> startNode.removeChild(endNode);
+                default -> {
+                    durations.put(endNode, (long) random.nextInt(10));
+                    analysis.durationChanged(endNode);
+                }
+            }
+            if (step % 7 == 0 && r.containsNode(endNode)) {
+                r.removeNode(endNode);
+            }
+
+            try (CriticalPathAnalysis<NodeExample, EdgeExample> fresh = r.analyzeCriticalPaths(this::durationOf)) {
+                assertEquals(fresh.getLength(), analysis.getLength());
+                assertEquals(fresh.getCriticalPath(), analysis.getCriticalPath());
+                for (NodeExample node : nodes) {
+                    if (r.containsNode(node)) {
+                        assertEquals(fresh.getEarliestStart(node), analysis.getEarliestStart(node));
+                        assertEquals(fresh.getLatestStart(node), analysis.getLatestStart(node));
+                        assertEquals(fresh.getCriticalPath(node), analysis.getCriticalPath(node));
+                    }
+                }
+            }
+        }
+    }
+}
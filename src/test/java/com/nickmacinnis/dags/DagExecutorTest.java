@@ -0,0 +1,134 @@
+package com.nickmacinnis.dags;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.nickmacinnis.dags.example.DirectedAcyclicGraphExampleImpl;
+import com.nickmacinnis.dags.example.EdgeExample;
+import com.nickmacinnis.dags.example.NodeExample;
+
+public class DagExecutorTest {
+    DirectedAcyclicGraphExampleImpl r;
+
+    @BeforeEach
+    public void setUp() {
+        r = new DirectedAcyclicGraphExampleImpl();
+    }
+
+    @Test
+    public void testParentsFinishBeforeChildrenStart() throws InterruptedException {
+        Random random = new Random(3);
+        NodeExample[] nodes = new NodeExample[3000];
+        nodes[0] = r.getRootNode();
+        for (int i = 1; i < nodes.length; i++) {
+            nodes[i] = new NodeExample();
+            nodes[random.nextInt(i)].addChild(nodes[i]);
+        }
+        for (int step = 0; step < 60; step++) {
+            int start = random.nextInt(nodes.length - 1);
+            nodes[start].addChild(nodes[start + 1 + random.nextInt(nodes.length - start - 1)]);
+        }
+
+        AtomicInteger clock = new AtomicInteger();
+        Map<NodeExample, Integer> started = new ConcurrentHashMap<>();
+        Map<NodeExample, Integer> finished = new ConcurrentHashMap<>();
+        DagExecutor.Task<NodeExample> task = node -> {
+            started.put(node, clock.incrementAndGet());
+            finished.put(node, clock.incrementAndGet());
+        };
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        for (DagExecutor<NodeExample, EdgeExample> executor : List.of(
+                new DagExecutor<NodeExample, EdgeExample>(), new DagExecutor<NodeExample, EdgeExample>(pool))) {
+            started.clear();
+            finished.clear();
+            ExecutionReport<NodeExample> report = executor.run(r, task);
+
+            assertTrue(report.isSuccessful());
+            assertEquals(nodes.length, report.getNodes().size());
+            assertEquals(nodes.length, started.size());
+            for (EdgeExample edge : r.collectDirectEdges()) {
+                assertTrue(finished.get(edge.getStartNode()) < started.get(edge.getEndNode()));
+            }
+            for (NodeExample node : nodes) {
+                assertEquals(ExecutionReport.Status.SUCCEEDED, report.getStatus(node));
+                assertFalse(report.getDuration(node).isNegative());
+                assertTrue(report.getStartOffset(node).compareTo(report.getElapsed()) <= 0);
+            }
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void testFailureSkipsDescendants() throws InterruptedException {
+        NodeExample n = new NodeExample();
+        NodeExample o = new NodeExample();
+        NodeExample p = new NodeExample();
+        NodeExample q = new NodeExample();
+        NodeExample s = new NodeExample();
+
+        r.addChild(n);
+        r.addChild(o);
+        n.addChild(p);
+        o.addChild(p);
+        p.addChild(q);
+        o.addChild(s);
+
+        IllegalStateException failure = new IllegalStateException("n failed");
+        ExecutionReport<NodeExample> report = new DagExecutor<NodeExample, EdgeExample>().run(r, node -> {
+            if (node == n) {
+                throw failure;
+            }
+        });
+
+        assertFalse(report.isSuccessful());
+        assertEquals(ExecutionReport.Status.SUCCEEDED, report.getStatus(r.getRootNode()));
+        assertEquals(ExecutionReport.Status.FAILED, report.getStatus(n));
+        assertSame(failure, report.getFailure(n));
+        assertEquals(Map.of(n, failure), report.getFailures());
+        assertEquals(ExecutionReport.Status.SUCCEEDED, report.getStatus(o));
+        assertEquals(ExecutionReport.Status.SUCCEEDED, report.getStatus(s));
+        assertEquals(ExecutionReport.Status.SKIPPED, report.getStatus(p));
+        assertEquals(ExecutionReport.Status.SKIPPED, report.getStatus(q));
+        assertNull(report.getFailure(q));
+        assertEquals(Duration.ZERO, report.getDuration(q));
+        assertThrows(GraphLogicException.class, () -> report.getStatus(new NodeExample()));
+    }
+
+    @Test
+    public void testInlineExecutorRunsLongChain() throws InterruptedException {
+        // a chain this long overflowed the stack when each task handed its child to Runnable::run itself
+        BitsetClosure<NodeExample, EdgeExample> closure = new BitsetClosure<>();
+        NodeExample[] nodes = new NodeExample[3000];
+        nodes[nodes.length - 1] = new NodeExample(closure);
+        // built upwards, so each edge only adds one ancestor to the nodes already below it
+        for (int i = nodes.length - 2; i >= 0; i--) {
+            nodes[i] = new NodeExample(closure);
+            nodes[i].addChild(nodes[i + 1]);
+        }
+        DirectedAcyclicGraphExampleImpl chain = new DirectedAcyclicGraphExampleImpl(nodes[0]);
+
+        List<NodeExample> order = new ArrayList<>();
+        ExecutionReport<NodeExample> report = new DagExecutor<NodeExample, EdgeExample>(Runnable::run)
+                .run(chain, order::add);
+
+        assertTrue(report.isSuccessful());
+        assertEquals(List.of(nodes), order);
+    }
+}
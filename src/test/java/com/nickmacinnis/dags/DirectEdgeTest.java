@@ -55,6 +55,24 @@ public class DirectEdgeTest {
         assertTrue(n.getIncomingEdges().isEmpty());
     }
 
+    @Test
+    public void testDetachTwice() {
+        NodeExample m = new NodeExample();
+        NodeExample n = new NodeExample();
+        NodeExample o = new NodeExample();
+
+        m.addChild(n);
+        n.addChild(o);
+        EdgeExample e = m.getOutgoingEdges().get(0);
+        EdgeExample g = m.getOutgoingEdges().get(1);
+
+        assertTrue(e.detach());
+        assertFalse(e.detach());
+        assertFalse(g.detach());
+        assertEquals(1, n.getOutgoingEdges().size());
+        assertEquals(1, o.getIncomingEdges().size());
+    }
+
     @Test
     public void testDetachWithNulls() {
         DirectEdgeExampleImpl e = new DirectEdgeExampleImpl(null, null);
@@ -72,9 +90,9 @@ public class DirectEdgeTest {
         ImplicitEdgeExampleImpl f = new ImplicitEdgeExampleImpl(m, n, null, null, null, 0);
         ImplicitEdgeExampleImpl g = new ImplicitEdgeExampleImpl(n, p, null, null, null, 0);
         ImplicitEdgeExampleImpl h = new ImplicitEdgeExampleImpl(m, p, null, null, null, 0);
-        e.incomingImplicitEdges.add(f);
-        e.outgoingImplicitEdges.add(g);
-        e.dependentImplicitEdges.add(h);
+        e.attachIncomingEdge(f);
+        e.attachOutgoingEdge(g);
+        e.attachDependentEdge(h);
 
         Set<EdgeExample> collectedEdges = e.collectAttachedEdges();
 
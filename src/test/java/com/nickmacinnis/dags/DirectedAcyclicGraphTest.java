@@ -1,11 +1,23 @@
 package com.nickmacinnis.dags;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -339,6 +351,169 @@ public class DirectedAcyclicGraphTest {
         assertFalse(r.removeChild(n));
     }
 
+    @Test
+    public void testRegistryFollowsEdits() {
+        NodeExample n = new NodeExample();
+        NodeExample o = new NodeExample();
+        NodeExample p = new NodeExample();
+
+        // nodes built up outside the graph join it along with their descendants
+        n.addChild(o);
+        o.addChild(p);
+        assertNull(n.getGraph());
+        r.addChild(n);
+
+        assertSame(r, p.getGraph());
+        assertTrue(r.containsNode(p));
+        assertEquals(4, r.getNodeCount());
+        assertEquals(6, r.getEdgeCount());
+        assertEquals(3, r.collectDirectEdges().size());
+        assertEquals(r.getEdgeCount(), r.collectEdges().size());
+
+        NodeExample q = new NodeExample();
+        n.addChild(q);
+        r.addChild(q);
+        assertTrue(n.removeChild(q));
+        assertTrue(r.containsNode(q));
+
+        assertTrue(n.removeChild(o));
+        assertFalse(r.containsNode(o));
+        assertFalse(r.containsNode(p));
+        assertNull(p.getGraph());
+        assertEquals(3, r.getNodeCount());
+        assertEquals(2, r.getEdgeCount());
+        assertThrows(UnsupportedOperationException.class, () -> r.collectChildren().add(o));
+    }
+
+    @Test
+    public void testStreams() {
+        NodeExample n = new NodeExample();
+        NodeExample o = new NodeExample();
+        NodeExample p = new NodeExample();
+        r.addChild(n);
+        n.addChild(o);
+        r.addChild(p);
+        p.addChild(o);
+
+        List<NodeExample> nodes = new ArrayList<>();
+        nodes.add(r.getRootNode());
+        nodes.addAll(r.collectChildren());
+        assertEquals(nodes, r.nodes().toList());
+        assertEquals(new ArrayList<>(r.collectEdges()), r.edges().toList());
+        assertEquals(new ArrayList<>(r.collectDirectEdges()), r.directEdges().toList());
+        assertEquals(r.getNodeCount(), r.nodes().spliterator().getExactSizeIfKnown());
+        assertEquals(r.getEdgeCount(), r.edges().spliterator().getExactSizeIfKnown());
+        assertTrue(r.nodes().spliterator().hasCharacteristics(Spliterator.DISTINCT | Spliterator.SIZED));
+        assertEquals(3, r.nodes().filter(node -> node.canReach(o)).count());
+    }
+
+    @Test
+    public void testParallelStreams() {
+        BitsetClosure<NodeExample, EdgeExample> closure = new BitsetClosure<>();
+        DirectedAcyclicGraphExampleImpl graph = new DirectedAcyclicGraphExampleImpl(new NodeExample(closure));
+        Random random = new Random(31);
+        List<NodeExample> nodes = new ArrayList<>();
+        nodes.add(graph.getRootNode());
+        for (int i = 1; i < 20000; i++) {
+            NodeExample node = new NodeExample(closure);
+            nodes.get(random.nextInt(i)).addChild(node);
+            nodes.add(node);
+        }
+
+        assertEquals(20000, graph.nodes().parallel().count());
+        assertEquals(nodes.stream().mapToInt(NodeExample::calculateDepth).sum(),
+                graph.nodes().parallel().mapToInt(NodeExample::calculateDepth).sum());
+        assertEquals(graph.nodes().toList(), graph.nodes().parallel().toList());
+        assertEquals(19999, graph.directEdges().parallel().map(EdgeExample::getEndNode).distinct().count());
+    }
+
+    @Test
+    public void testMetrics() {
+        List<GraphMetrics.Operation> operations = new ArrayList<>();
+        List<long[]> figures = new ArrayList<>();
+        r.setMetrics((operation, nanos, created, destroyed, depth, fanOut) -> {
+            assertTrue(nanos >= 0);
+            operations.add(operation);
+            figures.add(new long[] {created, destroyed, depth, fanOut});
+        });
+        NodeExample a = new NodeExample();
+        NodeExample b = new NodeExample();
+        NodeExample c = new NodeExample();
+        r.addChild(a);
+        a.addChild(b);
+        b.addChild(c);
+        assertEquals(List.of(GraphMetrics.Operation.ADD_DIRECT_EDGE, GraphMetrics.Operation.ADD_DIRECT_EDGE,
+                GraphMetrics.Operation.ADD_DIRECT_EDGE), operations);
+        // r -> b, then r -> c and a -> c
+        assertArrayEquals(new long[] {0, 0, 0, 0}, figures.get(0));
+        assertArrayEquals(new long[] {1, 0, 0, 0}, figures.get(1));
+        assertArrayEquals(new long[] {2, 0, 0, 0}, figures.get(2));
+
+        // r -> a takes r -> b with it, which takes r -> c
+        r.removeChild(a);
+        assertEquals(GraphMetrics.Operation.DETACH_EDGE, operations.get(3));
+        assertArrayEquals(new long[] {0, 2, 2, 1}, figures.get(3));
+        assertEquals(4, operations.size());
+
+        // one report for the removal, counting the implicit edges of the orphans
+        r.addChild(a);
+        operations.clear();
+        figures.clear();
+        r.removeNode(b);
+        assertEquals(List.of(GraphMetrics.Operation.REMOVE_NODES), operations);
+        assertArrayEquals(new long[] {0, 3, 2, 2}, figures.get(0));
+
+        r.calculateNodeCoordinates();
+        assertEquals(GraphMetrics.Operation.CALCULATE_NODE_COORDINATES, operations.get(1));
+
+        // a node outside the graph reports nothing, and neither does the graph once metrics are unset
+        c.addChild(new NodeExample());
+        r.setMetrics(null);
+        assertNull(r.getMetrics());
+        r.addChild(c);
+        assertEquals(2, operations.size());
+    }
+
+    @Test
+    public void testRemoveNodeDropsOrphans() {
+        NodeExample n = new NodeExample();
+        NodeExample o = new NodeExample();
+        NodeExample p = new NodeExample();
+
+        r.addChild(n);
+        r.addChild(p);
+        n.addChild(o);
+        o.addChild(p);
+
+        r.removeNode(n);
+
+        assertEquals(0, o.getIncomingEdges().size());
+        assertEquals(0, o.getOutgoingEdges().size());
+        assertEquals(1, p.getIncomingEdges().size());
+        assertEquals(2, r.getNodeCount());
+        assertEquals(1, r.getEdgeCount());
+    }
+
+    @Test
+    public void testCannotJoinGraphs() {
+        DirectedAcyclicGraphExampleImpl other = new DirectedAcyclicGraphExampleImpl();
+        NodeExample n = new NodeExample();
+        NodeExample o = new NodeExample();
+        NodeExample p = new NodeExample();
+
+        other.addChild(n);
+        o.addChild(n);
+
+        assertThrows(GraphLogicException.class, () -> r.addChild(n));
+        assertThrows(GraphLogicException.class, () -> r.addChild(o));
+        assertThrows(GraphLogicException.class, () -> new DirectedAcyclicGraphExampleImpl(n));
+        assertFalse(r.getRootNode().canReach(o));
+
+        r.addChild(p);
+        assertThrows(GraphLogicException.class, () -> p.addChild(o));
+        assertEquals(2, r.getNodeCount());
+    }
+
     @Test
     public void testAddDirectEdgeImplToNullEndNodeImpl() {
         assertThrows(GraphLogicException.class, () -> r.addChild(null));
@@ -768,4 +943,303 @@ public class DirectedAcyclicGraphTest {
         assertEquals(1.0, s.getY(), .01);
         assertEquals(1.5, s.getX(), .01);
     }
+
+    @Test
+    public void testAddEdgesMatchesAddChild() {
+        Random random = new Random(5);
+        int size = 12;
+        DirectedAcyclicGraphExampleImpl sequential = new DirectedAcyclicGraphExampleImpl();
+        NodeExample[] sequentialNodes = new NodeExample[size];
+        NodeExample[] batchNodes = new NodeExample[size];
+        sequentialNodes[0] = sequential.getRootNode();
+        batchNodes[0] = r.getRootNode();
+        for (int i = 1; i < size; i++) {
+            sequentialNodes[i] = new NodeExample();
+            batchNodes[i] = new NodeExample();
+        }
+        List<Map.Entry<NodeExample, NodeExample>> batch = new ArrayList<>();
+        for (int step = 0; step < 30; step++) {
+            // edges only run from lower to higher indices, so the batch is acyclic
+            int start = random.nextInt(size - 1);
+            int end = start + 1 + random.nextInt(size - start - 1);
+            sequentialNodes[start].addChild(sequentialNodes[end]);
+            batch.add(Map.entry(batchNodes[start], batchNodes[end]));
+        }
+
+        assertEquals(new HashSet<>(batch).size(), r.addEdges(batch));
+
+        assertEquals(sequential.getNodeCount(), r.getNodeCount());
+        assertEquals(sequential.getEdgeCount(), r.getEdgeCount());
+        sequential.calculateNodeCoordinates();
+        r.calculateNodeCoordinates();
+        List<NodeExample> sequentialList = List.of(sequentialNodes);
+        List<NodeExample> batchList = List.of(batchNodes);
+        for (int i = 0; i < size; i++) {
+            List<EdgeExample> expected = sequentialNodes[i].getOutgoingEdges();
+            List<EdgeExample> actual = batchNodes[i].getOutgoingEdges();
+            assertEquals(expected.size(), actual.size());
+            for (int j = 0; j < expected.size(); j++) {
+                assertEquals(expected.get(j).getHops(), actual.get(j).getHops());
+                assertEquals(sequentialList.indexOf(expected.get(j).getEndNode()),
+                        batchList.indexOf(actual.get(j).getEndNode()));
+            }
+            assertEquals(sequentialNodes[i].getX(), batchNodes[i].getX(), .01);
+            assertEquals(sequentialNodes[i].getY(), batchNodes[i].getY(), .01);
+        }
+    }
+
+    @Test
+    public void testAddEdgesRejectsCycleAtomically() {
+        NodeExample n = new NodeExample();
+        NodeExample o = new NodeExample();
+        NodeExample p = new NodeExample();
+
+        r.addChild(n);
+        n.addChild(o);
+
+        assertThrows(GraphLogicException.class, () -> r.addEdges(List.of(
+                Map.entry(n, p), Map.entry(o, p), Map.entry(p, n))));
+        assertThrows(GraphLogicException.class, () -> r.addEdges(List.of(
+                Map.entry(o, p), Map.entry(p, p))));
+
+        assertEquals(0, p.getIncomingEdges().size());
+        assertEquals(3, r.getNodeCount());
+        assertEquals(3, r.getEdgeCount());
+
+        assertEquals(2, r.addEdges(List.of(Map.entry(o, p), Map.entry(n, o), Map.entry(r.getRootNode(), p))));
+        assertEquals(4, r.getNodeCount());
+    }
+
+    @Test
+    public void testAddEdgesRejectsJoinAtomically() {
+        DirectedAcyclicGraphExampleImpl other = new DirectedAcyclicGraphExampleImpl();
+        NodeExample y = new NodeExample();
+        other.addChild(y);
+        NodeExample x = new NodeExample();
+        NodeExample z = new NodeExample();
+
+        // x only joins this graph through the batch itself, and brings y with it
+        assertThrows(GraphLogicException.class, () -> r.addEdges(List.of(
+                Map.entry(r.getRootNode(), x), Map.entry(x, y))));
+        // z already leads to y, and the batch is what joins z
+        z.addChild(y);
+        assertThrows(GraphLogicException.class, () -> r.addEdges(List.of(
+                Map.entry(x, z), Map.entry(r.getRootNode(), x))));
+
+        assertEquals(1, r.getNodeCount());
+        assertEquals(0, r.getEdgeCount());
+        assertEquals(0, x.getIncomingEdges().size());
+        assertEquals(0, x.getOutgoingEdges().size());
+        assertSame(other, y.getGraph());
+    }
+
+    @Test
+    public void testRemoveNodes() {
+        NodeExample n = new NodeExample();
+        NodeExample o = new NodeExample();
+        NodeExample p = new NodeExample();
+        NodeExample q = new NodeExample();
+        NodeExample s = new NodeExample();
+
+        r.addChild(n);
+        r.addChild(o);
+        n.addChild(p);
+        o.addChild(p);
+        p.addChild(q);
+        r.addChild(s);
+        s.addChild(q);
+
+        r.removeNodes(List.of(n, o));
+
+        assertFalse(r.containsNode(p));
+        assertTrue(r.containsNode(q));
+        assertEquals(0, p.getIncomingEdges().size());
+        assertEquals(0, p.getOutgoingEdges().size());
+        assertEquals(2, q.getIncomingEdges().size());
+        assertEquals(3, r.getNodeCount());
+        assertEquals(3, r.getEdgeCount());
+        assertEquals(r.getEdgeCount(), r.getRootNode().collectEdges().size());
+    }
+
+    @Test
+    public void testUntangleMatchesLegacyOrdering() {
+        Random random = new Random(11);
+        for (int trial = 0; trial < 200; trial++) {
+            boolean withClosure = trial % 2 == 1;
+            int size = 2 + random.nextInt(24);
+            int edgeCount = random.nextInt(3 * size);
+            NodeExample[] legacyNodes = new NodeExample[size + 1];
+            NodeExample[] currentNodes = new NodeExample[size + 1];
+            Closure<NodeExample, EdgeExample> legacyClosure = withClosure ? new BitsetClosure<>() : null;
+            Closure<NodeExample, EdgeExample> currentClosure = withClosure ? new BitsetClosure<>() : null;
+            for (int i = 0; i <= size; i++) {
+                legacyNodes[i] = new NodeExample(legacyClosure);
+                currentNodes[i] = new NodeExample(currentClosure);
+            }
+            LegacyLayoutGraph legacy = new LegacyLayoutGraph(legacyNodes[0]);
+            DirectedAcyclicGraphExampleImpl current = new DirectedAcyclicGraphExampleImpl(currentNodes[0]);
+            for (int i = 1; i < size; i++) {
+                int parent = random.nextInt(i);
+                legacyNodes[parent].addChild(legacyNodes[i]);
+                currentNodes[parent].addChild(currentNodes[i]);
+            }
+            for (int step = 0; step < edgeCount; step++) {
+                // the extra node at index size stays outside the graph but may still point into it
+                int start = random.nextInt(10) == 0 ? size : random.nextInt(size - 1);
+                int end = 1 + random.nextInt(size - 1);
+                if (start < end || start == size) {
+                    legacyNodes[start].addChild(legacyNodes[end]);
+                    currentNodes[start].addChild(currentNodes[end]);
+                }
+            }
+
+            legacy.untangle();
+            current.untangle();
+
+            List<NodeExample> legacyList = List.of(legacyNodes);
+            List<NodeExample> currentList = List.of(currentNodes);
+            for (int i = 0; i <= size; i++) {
+                assertEquals(endIndices(legacyList, legacyNodes[i].getOutgoingEdges()),
+                        endIndices(currentList, currentNodes[i].getOutgoingEdges()));
+                List<Integer> legacyStarts = new ArrayList<>();
+                for (EdgeExample edge : legacyNodes[i].getIncomingEdges()) {
+                    legacyStarts.add(legacyList.indexOf(edge.getStartNode()));
+                }
+                List<Integer> currentStarts = new ArrayList<>();
+                for (EdgeExample edge : currentNodes[i].getIncomingEdges()) {
+                    currentStarts.add(currentList.indexOf(edge.getStartNode()));
+                }
+                assertEquals(legacyStarts, currentStarts);
+            }
+        }
+    }
+
+    @Test
+    public void testLayoutMatchesSequentialAlgorithm() {
+        Random random = new Random(17);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        for (int trial = 0; trial < 60; trial++) {
+            boolean withClosure = trial % 2 == 1;
+            // every fifth graph is wide enough for its levels to be split across the pool
+            boolean wide = trial % 5 == 0;
+            int size = wide ? 150 + random.nextInt(100) : 2 + random.nextInt(20);
+            NodeExample[] legacyNodes = new NodeExample[size + 1];
+            NodeExample[] currentNodes = new NodeExample[size + 1];
+            Closure<NodeExample, EdgeExample> legacyClosure = withClosure || wide ? new BitsetClosure<>() : null;
+            Closure<NodeExample, EdgeExample> currentClosure = withClosure || wide ? new BitsetClosure<>() : null;
+            for (int i = 0; i <= size; i++) {
+                legacyNodes[i] = new NodeExample(legacyClosure);
+                currentNodes[i] = new NodeExample(currentClosure);
+                // the running mean starts from wherever a node already was
+                double x = random.nextInt(4) == 0 ? random.nextDouble() * 10 : 0;
+                legacyNodes[i].setX(x);
+                currentNodes[i].setX(x);
+            }
+            LegacyLayoutGraph legacy = new LegacyLayoutGraph(legacyNodes[0]);
+            DirectedAcyclicGraphExampleImpl current = new DirectedAcyclicGraphExampleImpl(currentNodes[0]);
+            for (int i = 1; i < size; i++) {
+                // wide graphs keep a handful of parents near the top, so each level holds many nodes
+                int parent = wide ? random.nextInt(Math.min(i, 1 + i / 40)) : random.nextInt(i);
+                legacyNodes[parent].addChild(legacyNodes[i]);
+                currentNodes[parent].addChild(currentNodes[i]);
+            }
+            int extraEdges = wide ? size / 4 : random.nextInt(2 * size);
+            for (int step = 0; step < extraEdges; step++) {
+                // the extra node at index size stays outside the graph but may still point into it
+                int start = random.nextInt(10) == 0 ? size : random.nextInt(size - 1);
+                int end = 1 + random.nextInt(size - 1);
+                if (start < end || start == size) {
+                    legacyNodes[start].addChild(legacyNodes[end]);
+                    currentNodes[start].addChild(currentNodes[end]);
+                }
+            }
+
+            legacy.legacyCalculateNodeCoordinates();
+            current.calculateNodeCoordinates(pool);
+
+            for (int i = 0; i <= size; i++) {
+                // the legacy running mean and the closed-form mean round differently in the last place
+                assertEquals(legacyNodes[i].getX(), currentNodes[i].getX(), 1e-9);
+                assertEquals(legacyNodes[i].getY(), currentNodes[i].getY(), 0);
+            }
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void testLayoutOfStackedDiamonds() {
+        // each diamond doubles the paths from the root, so 32 of them make a grid of 2^32 rows
+        int diamonds = 32;
+        BitsetClosure<NodeExample, EdgeExample> closure = new BitsetClosure<>();
+        NodeExample top = new NodeExample(closure);
+        DirectedAcyclicGraphExampleImpl graph = new DirectedAcyclicGraphExampleImpl(top);
+        NodeExample bottom = top;
+        for (int i = 0; i < diamonds; i++) {
+            NodeExample left = new NodeExample(closure);
+            NodeExample right = new NodeExample(closure);
+            NodeExample next = new NodeExample(closure);
+            bottom.addChild(left);
+            bottom.addChild(right);
+            left.addChild(next);
+            right.addChild(next);
+            bottom = next;
+        }
+        NodeExample last = bottom;
+
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> graph.calculateNodeCoordinates());
+
+        double middle = (Math.pow(2, diamonds) - 1) / 2;
+        assertEquals(middle, top.getX(), 0);
+        assertEquals(middle, last.getX(), 0);
+        assertEquals(2.0 * diamonds - 1, last.getY(), 0);
+    }
+
+    @Test
+    public void testParallelLayoutOfDiamondLanes() {
+        // 100 lanes of 24 stacked diamonds: every level is wide enough to split, and the grid has 100 * 2^24 rows
+        List<List<NodeExample>> layouts = new ArrayList<>();
+        for (int parallelism : new int[] {1, 4}) {
+            BitsetClosure<NodeExample, EdgeExample> closure = new BitsetClosure<>();
+            NodeExample root = new NodeExample(closure);
+            DirectedAcyclicGraphExampleImpl graph = new DirectedAcyclicGraphExampleImpl(root);
+            for (int lane = 0; lane < 100; lane++) {
+                NodeExample bottom = new NodeExample(closure);
+                root.addChild(bottom);
+                for (int i = 0; i < 24; i++) {
+                    NodeExample left = new NodeExample(closure);
+                    NodeExample right = new NodeExample(closure);
+                    NodeExample next = new NodeExample(closure);
+                    bottom.addChild(left);
+                    bottom.addChild(right);
+                    left.addChild(next);
+                    right.addChild(next);
+                    bottom = next;
+                }
+            }
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            assertTimeoutPreemptively(Duration.ofSeconds(10), () -> graph.calculateNodeCoordinates(pool));
+            pool.shutdown();
+            List<NodeExample> nodes = new ArrayList<>();
+            nodes.add(root);
+            nodes.addAll(graph.collectChildren());
+            layouts.add(nodes);
+        }
+
+        List<NodeExample> sequential = layouts.get(0);
+        List<NodeExample> parallel = layouts.get(1);
+        assertEquals(sequential.size(), parallel.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(sequential.get(i).getX(), parallel.get(i).getX(), 0);
+            assertEquals(sequential.get(i).getY(), parallel.get(i).getY(), 0);
+        }
+        assertEquals((100 * Math.pow(2, 24) - 1) / 2, parallel.get(0).getX(), 0);
+    }
+
+    private static List<String> endIndices(List<NodeExample> nodes, List<EdgeExample> edges) {
+        List<String> ends = new ArrayList<>();
+        for (EdgeExample edge : edges) {
+            ends.add(nodes.indexOf(edge.getEndNode()) + "/" + edge.getHops());
+        }
+        return ends;
+    }
 }
@@ -0,0 +1,188 @@
+package com.nickmacinnis.dags;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.nickmacinnis.dags.example.DirectedAcyclicGraphExampleImpl;
+import com.nickmacinnis.dags.example.EdgeExample;
+import com.nickmacinnis.dags.example.NodeExample;
+
+public class EdgeListImporterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRead() throws IOException {
+        DirectedAcyclicGraphExampleImpl graph = new DirectedAcyclicGraphExampleImpl();
+        Map<String, NodeExample> nodes = new HashMap<>();
+        nodes.put("root", graph.getRootNode());
+        Path file = directory.resolve("edges.tsv");
+        Files.writeString(file, "# start\tend\n"
+                + "root\ta\n"
+                + "\n"
+                + "a\tb\tweight 3\r\n"
+                + "root\tc\n"
+                + "c\tb\n"
+                + "root\ta\n"
+                + "b\td");
+        List<long[]> updates = new ArrayList<>();
+        EdgeListImporter<NodeExample, EdgeExample> importer = new EdgeListImporter<>(
+                key -> nodes.computeIfAbsent(key, k -> new NodeExample()), 2);
+
+        ImportReport report = importer.read(file, graph, (lines, bytes) -> updates.add(new long[] {lines, bytes}));
+
+        assertTrue(report.isSuccessful());
+        assertEquals(8, report.getLines());
+        assertEquals(5, report.getEdgesAdded());
+        assertEquals(5, graph.getNodeCount());
+        assertTrue(graph.getRootNode().canReach(nodes.get("d")));
+        assertTrue(nodes.get("c").canReach(nodes.get("b")));
+        assertEquals(List.of(nodes.get("b")), nodes.get("a").listChildren().subList(0, 1));
+        // three full chunks of two edges, then the last
+        assertEquals(4, updates.size());
+        assertEquals(Files.size(file), updates.get(3)[1]);
+        assertEquals(8, updates.get(3)[0]);
+    }
+
+    @Test
+    public void testReportsRejectedLines() throws IOException {
+        DirectedAcyclicGraphExampleImpl graph = new DirectedAcyclicGraphExampleImpl();
+        Map<String, NodeExample> nodes = new HashMap<>();
+        nodes.put("root", graph.getRootNode());
+        String edges = "root\ta\n"
+                + "a\tb\n"
+                + "b\tc\n"
+                + "c\ta\n"
+                + "c\td\n"
+                + "d\td\n"
+                + "lonely\n"
+                + "\tnameless\n"
+                + "d\te\n";
+        EdgeListImporter<NodeExample, EdgeExample> importer = new EdgeListImporter<>(
+                key -> nodes.computeIfAbsent(key, k -> new NodeExample()), 4);
+
+        ImportReport report = importer.read(Channels.newChannel(new ByteArrayInputStream(
+                edges.getBytes(StandardCharsets.UTF_8))), graph, null);
+
+        assertFalse(report.isSuccessful());
+        List<Long> rejected = new ArrayList<>();
+        for (ImportReport.Rejection rejection : report.getRejections()) {
+            rejected.add(rejection.getLine());
+        }
+        assertEquals(List.of(4L, 6L, 7L, 8L), rejected);
+        assertEquals("c\ta", report.getRejections().get(0).getText());
+        assertEquals("This direct edge would create a cycle in the graph", report.getRejections().get(0).getReason());
+        assertEquals("lonely", report.getRejections().get(2).getText());
+        // every other line was added, in the chunk with the cycle as in the chunks without one
+        assertEquals(5, report.getEdgesAdded());
+        assertTrue(graph.getRootNode().canReach(nodes.get("e")));
+        assertFalse(nodes.get("c").canReach(nodes.get("a")));
+    }
+
+    @Test
+    public void testCountsEdgesOfRejectedChunk() throws IOException {
+        DirectedAcyclicGraphExampleImpl graph = new DirectedAcyclicGraphExampleImpl();
+        DirectedAcyclicGraphExampleImpl other = new DirectedAcyclicGraphExampleImpl();
+        Map<String, NodeExample> nodes = new HashMap<>();
+        nodes.put("root", graph.getRootNode());
+        nodes.put("y", new NodeExample());
+        other.addChild(nodes.get("y"));
+        // the chunk is rejected as a whole only once root→x would have brought x into the graph
+        String edges = "root\tx\n"
+                + "x\ty\n"
+                + "x\tz\n";
+        EdgeListImporter<NodeExample, EdgeExample> importer = new EdgeListImporter<>(
+                key -> nodes.computeIfAbsent(key, k -> new NodeExample()), 4);
+
+        ImportReport report = importer.read(Channels.newChannel(new ByteArrayInputStream(
+                edges.getBytes(StandardCharsets.UTF_8))), graph, null);
+
+        assertEquals(1, report.getRejections().size());
+        assertEquals(2, report.getRejections().get(0).getLine());
+        assertEquals(2, report.getEdgesAdded());
+        assertEquals(2, graph.collectDirectEdges().size());
+    }
+
+    @Test
+    public void testLinesLongerThanBuffer() throws IOException {
+        DirectedAcyclicGraphExampleImpl graph = new DirectedAcyclicGraphExampleImpl();
+        Map<String, NodeExample> nodes = new HashMap<>();
+        nodes.put("root", graph.getRootNode());
+        String longKey = "k".repeat(200_000);
+        String edges = "root\t" + longKey + "\n" + longKey + "\tshort\n";
+        EdgeListImporter<NodeExample, EdgeExample> importer = new EdgeListImporter<>(
+                key -> nodes.computeIfAbsent(key, k -> new NodeExample()));
+
+        ImportReport report = importer.read(Channels.newChannel(new ByteArrayInputStream(
+                edges.getBytes(StandardCharsets.UTF_8))), graph, null);
+
+        assertTrue(report.isSuccessful());
+        assertEquals(3, nodes.size());
+        assertTrue(nodes.get(longKey).canReach(nodes.get("short")));
+        assertEquals(3, graph.getNodeCount());
+    }
+
+    @Test
+    public void testMatchesAddChild() throws IOException {
+        Random random = new Random(23);
+        int size = 60;
+        StringBuilder edges = new StringBuilder();
+        NodeExample[] expectedNodes = new NodeExample[size];
+        for (int i = 0; i < size; i++) {
+            expectedNodes[i] = new NodeExample();
+        }
+        DirectedAcyclicGraphExampleImpl expected = new DirectedAcyclicGraphExampleImpl(expectedNodes[0]);
+        for (int i = 1; i < size; i++) {
+            for (int parent : new int[] {random.nextInt(i), random.nextInt(i)}) {
+                expectedNodes[parent].addChild(expectedNodes[i]);
+                edges.append(parent).append('\t').append(i).append('\n');
+            }
+        }
+
+        NodeExample[] importedNodes = new NodeExample[size];
+        DirectedAcyclicGraphExampleImpl imported = new DirectedAcyclicGraphExampleImpl();
+        importedNodes[0] = imported.getRootNode();
+        EdgeListImporter<NodeExample, EdgeExample> importer = new EdgeListImporter<>(key -> {
+            int index = Integer.parseInt(key);
+            if (importedNodes[index] == null) {
+                importedNodes[index] = new NodeExample();
+            }
+            return importedNodes[index];
+        }, 7);
+        ImportReport report = importer.read(Channels.newChannel(new ByteArrayInputStream(
+                edges.toString().getBytes(StandardCharsets.UTF_8))), imported, null);
+
+        assertTrue(report.isSuccessful());
+        assertEquals(expected.getNodeCount(), imported.getNodeCount());
+        assertEquals(expected.getEdgeCount(), imported.getEdgeCount());
+        for (int i = 0; i < size; i++) {
+            for (int j = 0; j < size; j++) {
+                assertEquals(expectedNodes[i].canReach(expectedNodes[j]), importedNodes[i].canReach(importedNodes[j]));
+            }
+        }
+    }
+
+    @Test
+    public void testRejectsEmptyChunks() {
+        assertThrows(IllegalArgumentException.class, () -> new EdgeListImporter<NodeExample, EdgeExample>(
+                key -> new NodeExample(), 0));
+    }
+}
@@ -0,0 +1,162 @@
+package com.nickmacinnis.dags;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.nickmacinnis.dags.example.DirectEdgeExampleImpl;
+import com.nickmacinnis.dags.example.EdgeExample;
+import com.nickmacinnis.dags.example.ImplicitEdgeExampleImpl;
+import com.nickmacinnis.dags.example.NodeExample;
+
+public class EdgeListTest {
+
+    @Test
+    public void testAddAndRemoveKeepOrder() {
+        for (int count : new int[] {5, 50}) {
+            NodeExample m = new NodeExample();
+            EdgeList<NodeExample, EdgeExample> edges = new EdgeList<>(Edge::getEndNode);
+            List<EdgeExample> expected = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                EdgeExample edge = new DirectEdgeExampleImpl(m, new NodeExample());
+                assertTrue(edges.add(edge));
+                expected.add(edge);
+            }
+            assertFalse(edges.add(expected.get(0)));
+
+            for (int i = 0; i < count; i += 2) {
+                assertTrue(edges.remove(expected.get(i)));
+            }
+            for (int i = count - 1 - (count - 1) % 2; i >= 0; i -= 2) {
+                expected.remove(i);
+            }
+
+            assertEquals(expected.size(), edges.size());
+            assertEquals(expected, new ArrayList<>(edges));
+            for (int i = 0; i < expected.size(); i++) {
+                assertSame(expected.get(i), edges.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void testContainsUsesEquality() {
+        NodeExample m = new NodeExample();
+        NodeExample n = new NodeExample();
+        EdgeList<NodeExample, EdgeExample> edges = new EdgeList<>(Edge::getEndNode);
+        edges.add(new DirectEdgeExampleImpl(m, n));
+
+        assertTrue(edges.contains(new DirectEdgeExampleImpl(m, n)));
+        assertTrue(edges.remove(new DirectEdgeExampleImpl(m, n)));
+        assertTrue(edges.isEmpty());
+    }
+
+    @Test
+    public void testFindDirectAndHasEndpoint() {
+        for (int count : new int[] {3, 30}) {
+            NodeExample m = new NodeExample();
+            NodeExample n = new NodeExample();
+            NodeExample o = new NodeExample();
+            EdgeList<NodeExample, EdgeExample> edges = new EdgeList<>(Edge::getEndNode);
+            DirectEdgeExampleImpl e = new DirectEdgeExampleImpl(m, n);
+            DirectEdgeExampleImpl f = new DirectEdgeExampleImpl(n, o);
+            ImplicitEdgeExampleImpl g = new ImplicitEdgeExampleImpl(m, o, e, f, f, 1);
+            edges.add(g);
+            edges.add(e);
+            for (int i = 2; i < count; i++) {
+                edges.add(new DirectEdgeExampleImpl(m, new NodeExample()));
+            }
+
+            assertSame(e, edges.findDirect(n));
+            assertNull(edges.findDirect(o));
+            assertTrue(edges.hasEndpoint(o));
+
+            edges.remove(g);
+            assertFalse(edges.hasEndpoint(o));
+            edges.remove(e);
+            assertNull(edges.findDirect(n));
+            assertFalse(edges.hasEndpoint(n));
+        }
+    }
+
+    @Test
+    public void testSortReindexes() {
+        NodeExample m = new NodeExample();
+        EdgeList<NodeExample, EdgeExample> edges = new EdgeList<>(Edge::getEndNode);
+        List<EdgeExample> added = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            EdgeExample edge = new DirectEdgeExampleImpl(m, new NodeExample());
+            edges.add(edge);
+            added.add(edge);
+        }
+        edges.remove(added.get(3));
+
+        Comparator<EdgeExample> reversed = Comparator.comparing(added::indexOf, Comparator.reverseOrder());
+        edges.sort(reversed);
+
+        assertSame(added.get(19), edges.get(0));
+        assertSame(added.get(0), edges.get(18));
+        assertTrue(edges.remove(added.get(10)));
+        assertFalse(edges.contains(added.get(10)));
+        assertSame(added.get(9), edges.get(9));
+        assertSame(added.get(19).getEndNode(), edges.findDirect(added.get(19).getEndNode()).getEndNode());
+    }
+
+    @Test
+    public void testIteratorFailsFast() {
+        NodeExample m = new NodeExample();
+        EdgeList<NodeExample, EdgeExample> edges = new EdgeList<>(Edge::getEndNode);
+        edges.add(new DirectEdgeExampleImpl(m, new NodeExample()));
+        edges.add(new DirectEdgeExampleImpl(m, new NodeExample()));
+
+        assertThrows(ConcurrentModificationException.class, () -> {
+            for (EdgeExample edge : edges) {
+                edges.remove(edge);
+            }
+        });
+    }
+
+    @Test
+    public void testPositionalReadsLeaveIteratorsAlone() {
+        for (int count : new int[] {6, 40}) {
+            NodeExample m = new NodeExample();
+            EdgeList<NodeExample, EdgeExample> edges = new EdgeList<>(Edge::getEndNode);
+            List<EdgeExample> expected = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                EdgeExample edge = new DirectEdgeExampleImpl(m, new NodeExample());
+                edges.add(edge);
+                expected.add(edge);
+            }
+            edges.remove(expected.remove(1));
+            edges.remove(expected.remove(2));
+
+            // reading by position while holes remain neither moves edges under the iterator nor trips it
+            List<EdgeExample> iterated = new ArrayList<>();
+            int position = 0;
+            for (EdgeExample edge : edges) {
+                assertSame(expected.get(position), edges.get(position));
+                position++;
+                iterated.add(edge);
+            }
+            assertEquals(expected, iterated);
+
+            // an edit which closes up the holes does trip it
+            assertThrows(ConcurrentModificationException.class, () -> {
+                for (EdgeExample edge : edges) {
+                    edges.set(0, edge);
+                }
+            });
+            assertSame(expected.get(expected.size() - 1), edges.get(expected.size() - 1));
+        }
+    }
+}
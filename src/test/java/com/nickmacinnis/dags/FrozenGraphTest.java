@@ -0,0 +1,106 @@
+package com.nickmacinnis.dags;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.nickmacinnis.dags.example.DirectedAcyclicGraphExampleImpl;
+import com.nickmacinnis.dags.example.EdgeExample;
+import com.nickmacinnis.dags.example.NodeExample;
+
+public class FrozenGraphTest {
+    DirectedAcyclicGraphExampleImpl r;
+
+    @BeforeEach
+    public void setUp() {
+        r = new DirectedAcyclicGraphExampleImpl();
+    }
+
+    @Test
+    public void testDiamond() {
+        NodeExample n = new NodeExample();
+        NodeExample o = new NodeExample();
+        NodeExample p = new NodeExample();
+        NodeExample q = new NodeExample();
+
+        r.addChild(n);
+        r.addChild(o);
+        n.addChild(p);
+        o.addChild(p);
+        p.addChild(q);
+
+        FrozenGraph<NodeExample, EdgeExample> frozen = r.freeze();
+
+        assertEquals(5, frozen.getNodeCount());
+        assertEquals(5, frozen.getDirectEdgeCount());
+        assertEquals(List.of(r.getRootNode(), n, p, q, o), frozen.dft());
+        assertEquals(List.of(r.getRootNode(), n, o, p, q), frozen.bft());
+        assertEquals(List.of(n, o), frozen.getChildren(r.getRootNode()));
+        assertEquals(List.of(n, o), frozen.getParents(p));
+        assertEquals(List.of(r.getRootNode(), n, o), frozen.collectAncestors(p));
+        assertEquals(List.of(p, q), frozen.collectDescendants(o));
+        assertTrue(frozen.canReach(n, q));
+        assertFalse(frozen.canReach(n, o));
+        assertEquals(2, frozen.calculateDepth(q));
+        assertEquals(0, frozen.calculateDepth(n));
+        assertEquals(0, frozen.calculateDepth(r.getRootNode()));
+    }
+
+    @Test
+    public void testUnaffectedByLaterEdits() {
+        NodeExample n = new NodeExample();
+        NodeExample o = new NodeExample();
+        r.addChild(n);
+        n.addChild(o);
+
+        FrozenGraph<NodeExample, EdgeExample> frozen = r.freeze();
+        r.removeChild(n);
+
+        assertTrue(frozen.containsNode(o));
+        assertTrue(frozen.canReach(r.getRootNode(), o));
+        assertEquals(1, frozen.calculateDepth(o));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.getChildren(n).add(o));
+        assertThrows(GraphLogicException.class, () -> frozen.getChildren(new NodeExample()));
+    }
+
+    @Test
+    public void testRandomGraphMatchesLiveQueries() {
+        Random random = new Random(7);
+        int size = 14;
+        List<NodeExample> nodes = new ArrayList<>();
+        nodes.add(r.getRootNode());
+        for (int i = 1; i < size; i++) {
+            NodeExample node = new NodeExample();
+            nodes.add(node);
+            r.addChild(node);
+        }
+        for (int step = 0; step < 25; step++) {
+            int start = 1 + random.nextInt(size - 2);
+            int end = start + 1 + random.nextInt(size - start - 1);
+            nodes.get(start).addChild(nodes.get(end));
+        }
+
+        FrozenGraph<NodeExample, EdgeExample> frozen = r.freeze();
+
+        assertEquals(r.getRootNode().dft(), frozen.dft());
+        assertEquals(r.getRootNode().bft(), frozen.bft());
+        assertEquals(r.collectDirectEdges().size(), frozen.getDirectEdgeCount());
+        for (NodeExample node : nodes) {
+            assertEquals(node.calculateDepth(), frozen.calculateDepth(node));
+            assertEquals(node.collectChildren(), new HashSet<>(frozen.collectDescendants(node)));
+            for (NodeExample other : nodes) {
+                assertEquals(node.canReach(other), frozen.canReach(node, other));
+                assertEquals(other.canReach(node), frozen.collectAncestors(node).contains(other));
+            }
+        }
+    }
+}
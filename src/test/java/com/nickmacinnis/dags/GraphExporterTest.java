@@ -0,0 +1,104 @@
+package com.nickmacinnis.dags;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import com.nickmacinnis.dags.example.DirectedAcyclicGraphExampleImpl;
+import com.nickmacinnis.dags.example.NodeExample;
+
+public class GraphExporterTest {
+
+    private final Map<NodeExample, String> names = new IdentityHashMap<>();
+    private final DirectedAcyclicGraphExampleImpl graph = new DirectedAcyclicGraphExampleImpl();
+
+    /** r -> a -> "b", with the implicit edge r -> "b" */
+    private void buildGraph() {
+        NodeExample a = new NodeExample();
+        NodeExample b = new NodeExample();
+        names.put(graph.getRootNode(), "r");
+        names.put(a, "a");
+        names.put(b, "say \"b\"");
+        graph.addChild(a);
+        a.addChild(b);
+        a.setX(0.5);
+        b.setX(0.5);
+        b.setY(1);
+    }
+
+    @Test
+    public void testWriteDot() throws IOException {
+        buildGraph();
+        StringWriter direct = new StringWriter();
+        GraphExporter.writeDot(graph, names::get, false, direct);
+        assertEquals("digraph {\n"
+                + "  \"r\" [pos=\"0.0,0.0!\"];\n"
+                + "  \"r\" -> \"a\";\n"
+                + "  \"a\" [pos=\"0.5,0.0!\"];\n"
+                + "  \"a\" -> \"say \\\"b\\\"\";\n"
+                + "  \"say \\\"b\\\"\" [pos=\"0.5,1.0!\"];\n"
+                + "}\n", direct.toString());
+
+        StringWriter all = new StringWriter();
+        GraphExporter.writeDot(graph, names::get, true, all);
+        assertEquals("digraph {\n"
+                + "  \"r\" [pos=\"0.0,0.0!\"];\n"
+                + "  \"r\" -> \"a\";\n"
+                + "  \"r\" -> \"say \\\"b\\\"\" [style=dashed];\n"
+                + "  \"a\" [pos=\"0.5,0.0!\"];\n"
+                + "  \"a\" -> \"say \\\"b\\\"\";\n"
+                + "  \"say \\\"b\\\"\" [pos=\"0.5,1.0!\"];\n"
+                + "}\n", all.toString());
+    }
+
+    @Test
+    public void testWriteJson() throws IOException {
+        buildGraph();
+        graph.getRootNode().setY(Double.NaN);
+        StringWriter all = new StringWriter();
+        GraphExporter.writeJson(graph, names::get, true, all);
+        assertEquals("{\"nodes\":[\n"
+                + "{\"id\":\"r\",\"x\":0.0,\"y\":null},\n"
+                + "{\"id\":\"a\",\"x\":0.5,\"y\":0.0},\n"
+                + "{\"id\":\"say \\\"b\\\"\",\"x\":0.5,\"y\":1.0}\n"
+                + "],\"edges\":[\n"
+                + "{\"from\":\"r\",\"to\":\"a\",\"hops\":0},\n"
+                + "{\"from\":\"r\",\"to\":\"say \\\"b\\\"\",\"hops\":1},\n"
+                + "{\"from\":\"a\",\"to\":\"say \\\"b\\\"\",\"hops\":0}\n"
+                + "]}\n", all.toString());
+    }
+
+    @Test
+    public void testWriteEmptyJson() throws IOException {
+        names.put(graph.getRootNode(), "tab\there");
+        StringWriter empty = new StringWriter();
+        GraphExporter.writeJson(graph, names::get, false, empty);
+        assertEquals("{\"nodes\":[\n{\"id\":\"tab\\there\",\"x\":0.0,\"y\":0.0}\n],\"edges\":[\n]}\n",
+                empty.toString());
+    }
+
+    @Test
+    public void testWriteToChannel() throws IOException {
+        buildGraph();
+        names.put(graph.getRootNode(), "ρ");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GraphExporter.writeDot(graph, names::get, false, Channels.newChannel(bytes));
+        StringWriter expected = new StringWriter();
+        GraphExporter.writeDot(graph, names::get, false, expected);
+        assertEquals(expected.toString(), bytes.toString(StandardCharsets.UTF_8));
+
+        bytes.reset();
+        GraphExporter.writeJson(graph, names::get, true, Channels.newChannel(bytes));
+        expected = new StringWriter();
+        GraphExporter.writeJson(graph, names::get, true, expected);
+        assertEquals(expected.toString(), bytes.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,260 @@
+package com.nickmacinnis.dags;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.nickmacinnis.dags.example.DirectedAcyclicGraphExampleImpl;
+import com.nickmacinnis.dags.example.EdgeExample;
+import com.nickmacinnis.dags.example.NodeExample;
+
+public class GraphSnapshotTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testRoundTripWithImplicitEdges() throws IOException {
+        Map<NodeExample, Long> keys = new IdentityHashMap<>();
+        DirectedAcyclicGraph<NodeExample, EdgeExample> original = randomGraph(new Random(7), 40, null, keys);
+        original.calculateNodeCoordinates();
+        Path file = directory.resolve("graph.dags");
+        GraphSnapshot.write(original, keys::get, true, true, file);
+
+        Map<Long, NodeExample> restoredNodes = new HashMap<>();
+        DirectedAcyclicGraph<NodeExample, EdgeExample> restored = GraphSnapshot.read(file,
+                new DirectedAcyclicGraphExampleImpl(), key -> node(key, null, restoredNodes));
+        restoredNodes.put(keys.get(original.rootNode), restored.rootNode);
+        assertSameGraph(original, keys, restored, restoredNodes);
+        for (NodeExample node : original.collectChildren()) {
+            NodeExample copy = restoredNodes.get(keys.get(node));
+            assertEquals(node.getX(), copy.getX());
+            assertEquals(node.getY(), copy.getY());
+        }
+
+        // the implicit edges are attached to the edges implying them, so removals cascade alike
+        List<NodeExample> children = new ArrayList<>(original.collectChildren());
+        for (int i = 0; i < 5; i++) {
+            NodeExample node = children.get(i * 7);
+            original.removeNode(node);
+            restored.removeNode(restoredNodes.get(keys.get(node)));
+            assertSameGraph(original, keys, restored, restoredNodes);
+        }
+    }
+
+    @Test
+    public void testRoundTripImpliesMissingEdges() throws IOException {
+        Map<NodeExample, Long> keys = new IdentityHashMap<>();
+        DirectedAcyclicGraph<NodeExample, EdgeExample> original = randomGraph(new Random(11), 30, null, keys);
+        Path file = directory.resolve("graph.dags");
+        GraphSnapshot.write(original, keys::get, false, false, file);
+
+        Map<Long, NodeExample> restoredNodes = new HashMap<>();
+        DirectedAcyclicGraph<NodeExample, EdgeExample> restored = GraphSnapshot.read(file,
+                new DirectedAcyclicGraphExampleImpl(), key -> node(key, null, restoredNodes));
+        restoredNodes.put(keys.get(original.rootNode), restored.rootNode);
+        assertSameGraph(original, keys, restored, restoredNodes);
+    }
+
+    @Test
+    public void testRoundTripWithClosure() throws IOException {
+        Map<NodeExample, Long> keys = new IdentityHashMap<>();
+        DirectedAcyclicGraph<NodeExample, EdgeExample> original = randomGraph(new Random(13), 50,
+                new BitsetClosure<>(), keys);
+        Path file = directory.resolve("graph.dags");
+        GraphSnapshot.write(original, keys::get, true, false, file);
+
+        BitsetClosure<NodeExample, EdgeExample> closure = new BitsetClosure<>();
+        Map<Long, NodeExample> restoredNodes = new HashMap<>();
+        DirectedAcyclicGraph<NodeExample, EdgeExample> restored = GraphSnapshot.read(file,
+                new DirectedAcyclicGraphExampleImpl(new NodeExample(closure)), key -> node(key, closure, restoredNodes));
+        restoredNodes.put(keys.get(original.rootNode), restored.rootNode);
+        assertSameGraph(original, keys, restored, restoredNodes);
+        for (NodeExample node : original.collectChildren()) {
+            NodeExample copy = restoredNodes.get(keys.get(node));
+            assertEquals(node.calculateDepth(), copy.calculateDepth());
+            for (NodeExample other : original.collectChildren()) {
+                assertEquals(node.canReach(other), copy.canReach(restoredNodes.get(keys.get(other))));
+            }
+        }
+    }
+
+    @Test
+    public void testReadAcrossWindows() throws IOException {
+        Map<NodeExample, Long> keys = new IdentityHashMap<>();
+        DirectedAcyclicGraph<NodeExample, EdgeExample> original = randomGraph(new Random(17), 30, null, keys);
+        Path file = directory.resolve("graph.dags");
+        GraphSnapshot.write(original, keys::get, true, true, file);
+
+        // records straddle the end of most of these windows
+        Map<Long, NodeExample> restoredNodes = new HashMap<>();
+        DirectedAcyclicGraph<NodeExample, EdgeExample> restored = GraphSnapshot.read(file,
+                new DirectedAcyclicGraphExampleImpl(), key -> node(key, null, restoredNodes), 37);
+        restoredNodes.put(keys.get(original.rootNode), restored.rootNode);
+        assertSameGraph(original, keys, restored, restoredNodes);
+    }
+
+    @Test
+    public void testRejectsInvalidSnapshots() throws IOException {
+        Map<NodeExample, Long> keys = new IdentityHashMap<>();
+        DirectedAcyclicGraph<NodeExample, EdgeExample> original = randomGraph(new Random(19), 10, null, keys);
+        Path file = directory.resolve("graph.dags");
+        GraphSnapshot.write(original, keys::get, false, false, file);
+        byte[] bytes = Files.readAllBytes(file);
+
+        DirectedAcyclicGraphExampleImpl nonEmpty = new DirectedAcyclicGraphExampleImpl();
+        nonEmpty.addChild(new NodeExample());
+        assertThrows(GraphLogicException.class, () -> GraphSnapshot.read(file, nonEmpty, key -> new NodeExample()));
+
+        NodeExample joined = new NodeExample();
+        joined.addChild(new NodeExample());
+        assertThrows(GraphLogicException.class,
+                () -> GraphSnapshot.read(file, new DirectedAcyclicGraphExampleImpl(), key -> joined));
+
+        byte[] wrongMagic = bytes.clone();
+        wrongMagic[0] = 'X';
+        Files.write(file, wrongMagic);
+        assertThrows(IOException.class,
+                () -> GraphSnapshot.read(file, new DirectedAcyclicGraphExampleImpl(), key -> new NodeExample()));
+
+        // point the first direct edge back at the root
+        byte[] backwards = bytes.clone();
+        int nodeCount = ByteBuffer.wrap(bytes).getInt(12);
+        ByteBuffer.wrap(backwards).putInt(24 + 8 * nodeCount + 4, 0);
+        Files.write(file, backwards);
+        assertThrows(IOException.class,
+                () -> GraphSnapshot.read(file, new DirectedAcyclicGraphExampleImpl(), key -> new NodeExample()));
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 3));
+        assertThrows(IOException.class,
+                () -> GraphSnapshot.read(file, new DirectedAcyclicGraphExampleImpl(), key -> new NodeExample()));
+    }
+
+    @Test
+    public void testRejectsCorruptTables() throws IOException {
+        // r -> a -> b -> c, with implicit edges r -> b, a -> c and r -> c
+        DirectedAcyclicGraphExampleImpl original = new DirectedAcyclicGraphExampleImpl();
+        Map<NodeExample, Long> keys = new IdentityHashMap<>();
+        keys.put(original.getRootNode(), 0L);
+        NodeExample parent = original.getRootNode();
+        for (long key = 1; key <= 3; key++) {
+            NodeExample child = new NodeExample();
+            keys.put(child, key);
+            parent.addChild(child);
+            parent = child;
+        }
+        Path file = directory.resolve("graph.dags");
+        GraphSnapshot.write(original, keys::get, true, false, file);
+        byte[] bytes = Files.readAllBytes(file);
+        int implicitTable = 24 + 4 * 8 + 3 * 8;
+        assertEquals(implicitTable + 3 * 24, bytes.length);
+
+        // counts far beyond the file are refused before anything is sized by them
+        assertRejected(file, bytes, 12, Integer.MAX_VALUE);
+        assertRejected(file, bytes, 16, Integer.MAX_VALUE);
+        assertRejected(file, bytes, 20, Integer.MAX_VALUE);
+        // a count one short of the file leaves bytes over
+        assertRejected(file, bytes, 20, 2);
+        // the last implicit edge names an implicit edge as its direct edge
+        assertRejected(file, bytes, implicitTable + 2 * 24 + 12, 3);
+        // the first implicit edge enters through an edge which does not leave its start node
+        assertRejected(file, bytes, implicitTable + 8, 1);
+        // or claims a hop count its parts do not add up to
+        assertRejected(file, bytes, implicitTable + 20, 2);
+
+        Files.write(file, bytes);
+        Map<Long, NodeExample> restoredNodes = new HashMap<>();
+        DirectedAcyclicGraph<NodeExample, EdgeExample> restored = GraphSnapshot.read(file,
+                new DirectedAcyclicGraphExampleImpl(), key -> node(key, null, restoredNodes));
+        assertEquals(6, restored.getEdgeCount());
+    }
+
+    private static void assertRejected(Path file, byte[] bytes, int offset, int value) throws IOException {
+        byte[] corrupt = bytes.clone();
+        ByteBuffer.wrap(corrupt).putInt(offset, value);
+        Files.write(file, corrupt);
+        assertThrows(IOException.class,
+                () -> GraphSnapshot.read(file, new DirectedAcyclicGraphExampleImpl(), key -> new NodeExample()));
+    }
+
+    private static NodeExample node(long key, Closure<NodeExample, EdgeExample> closure,
+            Map<Long, NodeExample> nodes) {
+        NodeExample node = new NodeExample(closure);
+        nodes.put(key, node);
+        return node;
+    }
+
+    /** @return a graph over size nodes whose edges only ever point to a later node, numbering each node in keys */
+    private static DirectedAcyclicGraph<NodeExample, EdgeExample> randomGraph(Random random, int size,
+            Closure<NodeExample, EdgeExample> closure, Map<NodeExample, Long> keys) {
+        NodeExample[] nodes = new NodeExample[size];
+        for (int i = 0; i < size; i++) {
+            nodes[i] = new NodeExample(closure);
+            keys.put(nodes[i], 1000L + i);
+        }
+        DirectedAcyclicGraph<NodeExample, EdgeExample> graph = new DirectedAcyclicGraphExampleImpl(nodes[0]);
+        for (int i = 1; i < size; i++) {
+            nodes[random.nextInt(i)].addChild(nodes[i]);
+            if (i > 2 && random.nextBoolean()) {
+                nodes[random.nextInt(i)].addChild(nodes[i]);
+            }
+        }
+        return graph;
+    }
+
+    /** Check that restored has the nodes, edges and child order of original, matched by key. */
+    private static void assertSameGraph(DirectedAcyclicGraph<NodeExample, EdgeExample> original,
+            Map<NodeExample, Long> keys, DirectedAcyclicGraph<NodeExample, EdgeExample> restored,
+            Map<Long, NodeExample> restoredNodes) {
+        assertEquals(original.getNodeCount(), restored.getNodeCount());
+        assertEquals(original.getEdgeCount(), restored.getEdgeCount());
+        Map<NodeExample, Long> restoredKeys = new IdentityHashMap<>();
+        for (Map.Entry<Long, NodeExample> entry : restoredNodes.entrySet()) {
+            restoredKeys.put(entry.getValue(), entry.getKey());
+        }
+        assertEquals(describe(original.collectEdges(), keys), describe(restored.collectEdges(), restoredKeys));
+        List<NodeExample> members = new ArrayList<>(original.collectChildren());
+        members.add(original.rootNode);
+        for (NodeExample node : members) {
+            NodeExample copy = restoredNodes.get(keys.get(node));
+            assertTrue(restored.containsNode(copy));
+            assertEquals(directChildren(node, keys), directChildren(copy, restoredKeys));
+        }
+    }
+
+    private static List<String> describe(Iterable<EdgeExample> edges, Map<NodeExample, Long> keys) {
+        List<String> descriptions = new ArrayList<>();
+        for (EdgeExample edge : edges) {
+            descriptions.add(keys.get(edge.getStartNode()) + "->" + keys.get(edge.getEndNode()) + "/"
+                    + edge.getHops());
+        }
+        Collections.sort(descriptions);
+        return descriptions;
+    }
+
+    private static List<Long> directChildren(NodeExample node, Map<NodeExample, Long> keys) {
+        List<Long> children = new ArrayList<>();
+        for (EdgeExample edge : node.getOutgoingEdges()) {
+            if (edge instanceof DirectEdge<?, ?>) {
+                children.add(keys.get(edge.getEndNode()));
+            }
+        }
+        return children;
+    }
+}
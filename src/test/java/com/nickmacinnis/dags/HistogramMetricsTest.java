@@ -0,0 +1,73 @@
+package com.nickmacinnis.dags;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import com.nickmacinnis.dags.GraphMetrics.Operation;
+import com.nickmacinnis.dags.example.DirectedAcyclicGraphExampleImpl;
+import com.nickmacinnis.dags.example.NodeExample;
+
+public class HistogramMetricsTest {
+
+    @Test
+    public void testBuckets() {
+        assertEquals(0, HistogramMetrics.bucket(0));
+        assertEquals(1, HistogramMetrics.bucket(1));
+        assertEquals(2, HistogramMetrics.bucket(2));
+        assertEquals(2, HistogramMetrics.bucket(3));
+        assertEquals(11, HistogramMetrics.bucket(1024));
+        assertEquals(Long.SIZE - 1, HistogramMetrics.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testPercentiles() {
+        HistogramMetrics metrics = new HistogramMetrics();
+        assertEquals(0, metrics.getLatencyPercentile(Operation.DETACH_EDGE, 0.5));
+        for (int i = 0; i < 99; i++) {
+            metrics.operationCompleted(Operation.DETACH_EDGE, 100, 0, 3, 1, 2);
+        }
+        metrics.operationCompleted(Operation.DETACH_EDGE, 5000, 0, 40, 4, 9);
+
+        assertEquals(100, metrics.getCount(Operation.DETACH_EDGE));
+        assertEquals(99 * 100 + 5000, metrics.getTotalNanos(Operation.DETACH_EDGE));
+        assertEquals(99, metrics.getLatencyHistogram(Operation.DETACH_EDGE)[7]);
+        assertEquals(1, metrics.getLatencyHistogram(Operation.DETACH_EDGE)[13]);
+        assertEquals(127, metrics.getLatencyPercentile(Operation.DETACH_EDGE, 0.5));
+        assertEquals(127, metrics.getLatencyPercentile(Operation.DETACH_EDGE, 0.99));
+        assertEquals(8191, metrics.getLatencyPercentile(Operation.DETACH_EDGE, 1));
+        assertEquals(99 * 3 + 40, metrics.getImplicitEdgesDestroyed(Operation.DETACH_EDGE));
+        assertEquals(40, metrics.getMaxImplicitEdgesDestroyed(Operation.DETACH_EDGE));
+        assertEquals(4, metrics.getMaxCascadeDepth(Operation.DETACH_EDGE));
+        assertEquals(9, metrics.getMaxCascadeFanOut(Operation.DETACH_EDGE));
+        assertEquals(0, metrics.getCount(Operation.ADD_DIRECT_EDGE));
+        assertThrows(IllegalArgumentException.class, () -> metrics.getLatencyPercentile(Operation.DETACH_EDGE, 2));
+    }
+
+    @Test
+    public void testGraph() {
+        HistogramMetrics metrics = new HistogramMetrics();
+        DirectedAcyclicGraphExampleImpl graph = new DirectedAcyclicGraphExampleImpl();
+        graph.setMetrics(metrics);
+        assertSame(metrics, graph.getMetrics());
+        // a fan of 10 children under one node below the root: each child implies an edge from the root
+        NodeExample hub = new NodeExample();
+        graph.addChild(hub);
+        for (int i = 0; i < 10; i++) {
+            hub.addChild(new NodeExample());
+        }
+        assertEquals(11, metrics.getCount(Operation.ADD_DIRECT_EDGE));
+        assertEquals(10, metrics.getImplicitEdgesCreated(Operation.ADD_DIRECT_EDGE));
+        assertEquals(1, metrics.getMaxImplicitEdgesCreated(Operation.ADD_DIRECT_EDGE));
+
+        graph.removeChild(hub);
+        assertEquals(1, metrics.getCount(Operation.DETACH_EDGE));
+        assertEquals(10, metrics.getImplicitEdgesDestroyed(Operation.DETACH_EDGE));
+        assertEquals(1, metrics.getMaxCascadeDepth(Operation.DETACH_EDGE));
+        assertEquals(10, metrics.getMaxCascadeFanOut(Operation.DETACH_EDGE));
+        assertTrue(metrics.getLatencyPercentile(Operation.DETACH_EDGE, 1) > 0);
+    }
+}
@@ -2,6 +2,7 @@ package com.nickmacinnis.dags;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.Set;
@@ -113,10 +114,10 @@ public class ImplicitEdgeTest {
         ImplicitEdgeExampleImpl f = new ImplicitEdgeExampleImpl(m, n, null, null, null, 0);
         ImplicitEdgeExampleImpl g = new ImplicitEdgeExampleImpl(n, p, null, null, null, 0);
         ImplicitEdgeExampleImpl h = new ImplicitEdgeExampleImpl(m, p, null, null, null, 0);
-        e.incomingImplicitEdges.add(f);
-        e.outgoingImplicitEdges.add(g);
-        f.outgoingImplicitEdges.add(h);
-        g.incomingImplicitEdges.add(h);
+        e.attachIncomingEdge(f);
+        e.attachOutgoingEdge(g);
+        f.attachOutgoingEdge(h);
+        g.attachIncomingEdge(h);
 
         Set<EdgeExample> collectedEdges = e.collectAttachedEdges();
 
@@ -125,4 +126,47 @@ public class ImplicitEdgeTest {
         assertTrue(collectedEdges.contains(g));
         assertTrue(collectedEdges.contains(h));
     }
+
+    @Test
+    public void testEquality() {
+        NodeExample m = new NodeExample();
+        NodeExample n = new NodeExample();
+        NodeExample o = new NodeExample();
+
+        DirectEdgeExampleImpl e = new DirectEdgeExampleImpl(m, n);
+        DirectEdgeExampleImpl f = new DirectEdgeExampleImpl(n, o);
+        ImplicitEdgeExampleImpl g = new ImplicitEdgeExampleImpl(m, o, e, f, f, 1);
+        ImplicitEdgeExampleImpl h = new ImplicitEdgeExampleImpl(m, o, e, f, f, 1);
+        ImplicitEdgeExampleImpl i = new ImplicitEdgeExampleImpl(m, o, new DirectEdgeExampleImpl(m, n), f, f, 1);
+        ImplicitEdgeExampleImpl j = new ImplicitEdgeExampleImpl(m, o, e, f, f, 2);
+
+        assertEquals(g, h);
+        assertEquals(g.hashCode(), h.hashCode());
+        assertEquals(g, i);
+        assertEquals(g.hashCode(), i.hashCode());
+        assertNotEquals(g, j);
+        assertNotEquals(g, new ImplicitEdgeExampleImpl(m, n, e, f, f, 1));
+    }
+
+    @Test
+    public void testHashDeepChain() {
+        int length = 100000;
+        NodeExample[] nodes = new NodeExample[length + 2];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new NodeExample();
+        }
+        EdgeExample first = new DirectEdgeExampleImpl(nodes[0], nodes[1]);
+        EdgeExample chain = first;
+        EdgeExample other = new DirectEdgeExampleImpl(nodes[1], nodes[0]);
+        for (int i = 1; i <= length; i++) {
+            DirectEdgeExampleImpl next = new DirectEdgeExampleImpl(nodes[i], nodes[i + 1]);
+            chain = new ImplicitEdgeExampleImpl(nodes[0], nodes[i + 1], chain, next, next, i);
+            other = new ImplicitEdgeExampleImpl(nodes[0], nodes[i + 1], other, next, next, i);
+        }
+
+        // hashing or telling apart edges this long must not walk their chains
+        assertEquals(chain.hashCode(), chain.hashCode());
+        assertNotEquals(chain, other);
+        assertTrue(Set.of(chain).contains(chain));
+    }
 }
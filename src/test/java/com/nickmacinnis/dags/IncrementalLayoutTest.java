@@ -0,0 +1,167 @@
+package com.nickmacinnis.dags;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.Test;
+
+import com.nickmacinnis.dags.example.DirectedAcyclicGraphExampleImpl;
+import com.nickmacinnis.dags.example.EdgeExample;
+import com.nickmacinnis.dags.example.NodeExample;
+
+public class IncrementalLayoutTest {
+
+    @Test
+    public void testUpdateTouchesOnlyAffectedNodes() {
+        DirectedAcyclicGraphExampleImpl r = new DirectedAcyclicGraphExampleImpl();
+        NodeExample a = new NodeExample();
+        NodeExample b = new NodeExample();
+        NodeExample c = new NodeExample();
+        NodeExample d = new NodeExample();
+        r.addChild(a);
+        r.addChild(b);
+        a.addChild(c);
+        b.addChild(d);
+
+        IncrementalLayout<NodeExample, EdgeExample> layout = r.layOutIncrementally();
+        assertEquals(Set.of(), layout.update());
+        double aX = a.getX();
+        double cX = c.getX();
+
+        NodeExample e = new NodeExample();
+        d.addChild(e);
+        Set<NodeExample> changed = layout.update();
+        assertTrue(changed.contains(e));
+        assertEquals(2, e.getY());
+        assertEquals(aX, a.getX());
+        assertEquals(cX, c.getX());
+
+        layout.close();
+        e.addChild(new NodeExample());
+        assertEquals(Set.of(), layout.update());
+    }
+
+    @Test
+    public void testUpdatesMatchFullLayout() {
+        Random random = new Random(29);
+        ForkJoinPool pool = new ForkJoinPool(1);
+        for (int trial = 0; trial < 20; trial++) {
+            boolean withClosure = trial % 2 == 1;
+            int size = 2 + random.nextInt(25);
+            NodeExample[] incrementalNodes = new NodeExample[size];
+            NodeExample[] fullNodes = new NodeExample[size];
+            Closure<NodeExample, EdgeExample> incrementalClosure = withClosure ? new BitsetClosure<>() : null;
+            Closure<NodeExample, EdgeExample> fullClosure = withClosure ? new BitsetClosure<>() : null;
+            for (int i = 0; i < size; i++) {
+                incrementalNodes[i] = new NodeExample(incrementalClosure);
+                fullNodes[i] = new NodeExample(fullClosure);
+            }
+            DirectedAcyclicGraphExampleImpl incremental = new DirectedAcyclicGraphExampleImpl(incrementalNodes[0]);
+            DirectedAcyclicGraph<NodeExample, EdgeExample> full = new DirectedAcyclicGraphExampleImpl(fullNodes[0]);
+            for (int i = 1; i < size / 2; i++) {
+                int parent = random.nextInt(i);
+                incrementalNodes[parent].addChild(incrementalNodes[i]);
+                fullNodes[parent].addChild(fullNodes[i]);
+            }
+            IncrementalLayout<NodeExample, EdgeExample> layout = incremental.layOutIncrementally();
+            full.calculateNodeCoordinates(pool);
+            assertSameCoordinates(incrementalNodes, fullNodes);
+
+            for (int step = 0; step < 40; step++) {
+                // edges only ever point to a later node, so no edit can make a cycle
+                int start = random.nextInt(size - 1);
+                int end = start + 1 + random.nextInt(size - start - 1);
+                switch (random.nextInt(5)) {
+                    case 0, 1 -> {
+                        if (incremental.containsNode(incrementalNodes[start]) || start == 0) {
+                            incrementalNodes[start].addChild(incrementalNodes[end]);
+                            fullNodes[start].addChild(fullNodes[end]);
+                        }
+                    }
+                    case 2 -> {
+                        incrementalNodes[start].removeChild(incrementalNodes[end]);
+                        fullNodes[start].removeChild(fullNodes[end]);
+                    }
+                    case 3 -> {
+                        if (incremental.containsNode(incrementalNodes[end])) {
+                            incremental.removeNode(incrementalNodes[end]);
+                            full.removeNode(fullNodes[end]);
+                        }
+                    }
+                    default -> {
+                        // several edits between updates
+                        incrementalNodes[0].addChild(incrementalNodes[end]);
+                        fullNodes[0].addChild(fullNodes[end]);
+                        incrementalNodes[0].removeChild(incrementalNodes[start == 0 ? end : start]);
+                        fullNodes[0].removeChild(fullNodes[start == 0 ? end : start]);
+                    }
+                }
+                layout.update();
+                full.layOut(pool, false);
+                assertSameCoordinates(incrementalNodes, fullNodes);
+            }
+            layout.calculateNodeCoordinates();
+            full.calculateNodeCoordinates(pool);
+            assertSameCoordinates(incrementalNodes, fullNodes);
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void testUpdateAboveStackedDiamonds() {
+        // 30 stacked diamonds below a, so 2^30 grid rows pass through each node that sits above them
+        BitsetClosure<NodeExample, EdgeExample> closure = new BitsetClosure<>();
+        BitsetClosure<NodeExample, EdgeExample> fullClosure = new BitsetClosure<>();
+        NodeExample[] nodes = new NodeExample[2 + 3 * 30];
+        NodeExample[] fullNodes = new NodeExample[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new NodeExample(closure);
+            fullNodes[i] = new NodeExample(fullClosure);
+        }
+        DirectedAcyclicGraphExampleImpl incremental = new DirectedAcyclicGraphExampleImpl(nodes[0]);
+        DirectedAcyclicGraph<NodeExample, EdgeExample> full = new DirectedAcyclicGraphExampleImpl(fullNodes[0]);
+        for (NodeExample[] graph : new NodeExample[][] {nodes, fullNodes}) {
+            graph[0].addChild(graph[1]);
+            for (int i = 0, top = 1; i < 30; i++, top += 3) {
+                graph[top].addChild(graph[top + 1]);
+                graph[top].addChild(graph[top + 2]);
+                graph[top + 1].addChild(graph[top + 3]);
+                graph[top + 2].addChild(graph[top + 3]);
+            }
+        }
+        IncrementalLayout<NodeExample, EdgeExample> layout = incremental.layOutIncrementally();
+        ForkJoinPool pool = new ForkJoinPool(1);
+
+        // a second way into the stack from the root doubles every count below it
+        NodeExample side = new NodeExample(closure);
+        NodeExample fullSide = new NodeExample(fullClosure);
+        nodes[0].addChild(side);
+        side.addChild(nodes[1]);
+        fullNodes[0].addChild(fullSide);
+        fullSide.addChild(fullNodes[1]);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> layout.update());
+        full.layOut(pool, false);
+        assertSameCoordinates(nodes, fullNodes);
+        assertEquals(fullSide.getX(), side.getX(), 0);
+
+        side.removeChild(nodes[1]);
+        fullSide.removeChild(fullNodes[1]);
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> layout.update());
+        full.layOut(pool, false);
+        assertSameCoordinates(nodes, fullNodes);
+        pool.shutdown();
+    }
+
+    private static void assertSameCoordinates(NodeExample[] incrementalNodes, NodeExample[] fullNodes) {
+        for (int i = 0; i < incrementalNodes.length; i++) {
+            assertEquals(fullNodes[i].getX(), incrementalNodes[i].getX(), 0);
+            assertEquals(fullNodes[i].getY(), incrementalNodes[i].getY(), 0);
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.nickmacinnis.dags;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.nickmacinnis.dags.example.DirectedAcyclicGraphExampleImpl;
+import com.nickmacinnis.dags.example.EdgeExample;
+import com.nickmacinnis.dags.example.NodeExample;
+
+public class LazyClosureTest {
+    LazyClosure<NodeExample, EdgeExample> closure;
+    DirectedAcyclicGraphExampleImpl r;
+
+    @BeforeEach
+    public void setUp() {
+        closure = new LazyClosure<>();
+        r = new DirectedAcyclicGraphExampleImpl(new NodeExample(closure));
+    }
+
+    @Test
+    public void testAddChildKeepsOnlyDirectEdges() {
+        NodeExample n = new NodeExample(closure);
+        NodeExample o = new NodeExample(closure);
+        r.addChild(n);
+        n.addChild(o);
+
+        assertEquals(1, r.getRootNode().getOutgoingEdges().size());
+        assertTrue(r.getRootNode().canReach(o));
+        assertEquals(Set.of(n, o), r.getRootNode().collectChildren());
+        assertEquals(1, o.calculateDepth());
+        assertThrows(GraphLogicException.class, () -> o.addChild(r.getRootNode()));
+    }
+
+    @Test
+    public void testCacheKeepsUnaffectedSets() {
+        NodeExample n = new NodeExample(closure);
+        NodeExample o = new NodeExample(closure);
+        NodeExample p = new NodeExample(closure);
+        r.addChild(n);
+        r.addChild(o);
+        n.collectChildren();
+        o.collectChildren();
+        r.getRootNode().collectChildren();
+
+        // the root already reaches p's parent but not p, n never reaches o
+        o.addChild(p);
+        assertTrue(closure.isCached(n));
+        assertFalse(closure.isCached(o));
+        assertFalse(closure.isCached(r.getRootNode()));
+        assertTrue(r.getRootNode().canReach(p));
+
+        r.getRootNode().collectChildren();
+        n.removeChild(new NodeExample(closure));
+        o.removeChild(p);
+        assertTrue(closure.isCached(n));
+        assertFalse(closure.isCached(r.getRootNode()));
+        assertFalse(r.getRootNode().canReach(p));
+    }
+
+    @Test
+    public void testKeptSetsAreNotCountedAsUsed() {
+        closure = new LazyClosure<>(6);
+        NodeExample a = new NodeExample(closure);
+        NodeExample b = new NodeExample(closure);
+        NodeExample x = new NodeExample(closure);
+        NodeExample d = new NodeExample(closure);
+        NodeExample e = new NodeExample(closure);
+        a.addChild(b);
+        a.addChild(x);
+        d.addChild(e);
+        x.collectChildren();
+        a.collectChildren();
+        d.collectChildren();
+
+        // a already reaches x, so keeps its set, which stays the least recently used
+        b.addChild(x);
+        assertTrue(closure.isCached(a));
+        e.collectChildren();
+        assertFalse(closure.isCached(a));
+        assertTrue(closure.isCached(d));
+        assertTrue(closure.isCached(x));
+        assertTrue(closure.isCached(e));
+
+        // the sets left are still dropped by the edges which change them
+        e.addChild(new NodeExample(closure));
+        assertFalse(closure.isCached(d));
+        assertFalse(closure.isCached(e));
+        assertTrue(closure.isCached(x));
+    }
+
+    @Test
+    public void testCacheEvictsLeastRecentlyUsed() {
+        closure = new LazyClosure<>(5);
+        NodeExample[] chain = new NodeExample[4];
+        for (int i = 0; i < chain.length; i++) {
+            chain[i] = new NodeExample(closure);
+            if (i > 0) {
+                chain[i - 1].addChild(chain[i]);
+            }
+        }
+        // each set weighs its descendants and one more for its key
+        chain[2].collectChildren();
+        chain[3].collectChildren();
+        chain[1].collectChildren();
+        assertFalse(closure.isCached(chain[2]));
+        assertTrue(closure.isCached(chain[3]));
+        assertTrue(closure.isCached(chain[1]));
+
+        chain[3].collectChildren();
+        chain[2].collectChildren();
+        assertFalse(closure.isCached(chain[1]));
+        assertTrue(closure.isCached(chain[3]));
+
+        // room is made for a set by evicting as many others as it takes
+        chain[0].collectChildren();
+        assertTrue(closure.isCached(chain[0]));
+        assertFalse(closure.isCached(chain[3]));
+        assertFalse(closure.isCached(chain[2]));
+
+        // and a set heavier than the whole cache is never kept
+        chain[3].addChild(new NodeExample(closure));
+        chain[3].addChild(new NodeExample(closure));
+        chain[0].collectChildren();
+        assertFalse(closure.isCached(chain[0]));
+        assertThrows(IllegalArgumentException.class, () -> new LazyClosure<NodeExample, EdgeExample>(-1));
+    }
+
+    @Test
+    public void testRandomEditsMatchImplicitEdges() {
+        Random random = new Random(5);
+        int size = 16;
+        closure = new LazyClosure<>(40);
+        NodeExample[] implicitNodes = new NodeExample[size];
+        NodeExample[] lazyNodes = new NodeExample[size];
+        for (int i = 0; i < size; i++) {
+            implicitNodes[i] = new NodeExample();
+            lazyNodes[i] = new NodeExample(closure);
+        }
+        for (int step = 0; step < 250; step++) {
+            // edges only run from lower to higher indices, so every edit keeps the graph acyclic
+            int start = random.nextInt(size - 1);
+            int end = start + 1 + random.nextInt(Math.min(5, size - start - 1));
+            if (random.nextInt(3) == 0) {
+                implicitNodes[start].removeChild(implicitNodes[end]);
+                lazyNodes[start].removeChild(lazyNodes[end]);
+            } else {
+                implicitNodes[start].addChild(implicitNodes[end]);
+                lazyNodes[start].addChild(lazyNodes[end]);
+            }
+            // queries fill the cache between edits, so later edits have entries to invalidate
+            int probe = random.nextInt(size);
+            assertEquals(indices(implicitNodes, implicitNodes[probe].collectChildren()),
+                    indices(lazyNodes, lazyNodes[probe].collectChildren()));
+            for (int j = 0; j < size; j++) {
+                assertEquals(implicitNodes[probe].canReach(implicitNodes[j]), lazyNodes[probe].canReach(lazyNodes[j]));
+                assertEquals(implicitNodes[j].canReach(implicitNodes[probe]), lazyNodes[j].canReach(lazyNodes[probe]));
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            assertEquals(implicitNodes[i].calculateDepth(), lazyNodes[i].calculateDepth());
+            assertEquals(indices(implicitNodes, closureAncestors(implicitNodes, implicitNodes[i])),
+                    indices(lazyNodes, closure.collectAncestors(lazyNodes[i])));
+        }
+    }
+
+    @Test
+    public void testAddEdgesMatchesAddChild() {
+        Random random = new Random(3);
+        int size = 30;
+        LazyClosure<NodeExample, EdgeExample> batchClosure = new LazyClosure<>();
+        NodeExample[] sequentialNodes = new NodeExample[size];
+        NodeExample[] batchNodes = new NodeExample[size];
+        for (int i = 0; i < size; i++) {
+            sequentialNodes[i] = new NodeExample(closure);
+            batchNodes[i] = new NodeExample(batchClosure);
+        }
+        DirectedAcyclicGraphExampleImpl batchGraph = new DirectedAcyclicGraphExampleImpl(batchNodes[0]);
+        for (int round = 0; round < 3; round++) {
+            List<Map.Entry<NodeExample, NodeExample>> batch = new ArrayList<>();
+            for (int step = 0; step < 25; step++) {
+                int start = random.nextInt(size - 1);
+                int end = start + 1 + random.nextInt(size - start - 1);
+                sequentialNodes[start].addChild(sequentialNodes[end]);
+                batch.add(Map.entry(batchNodes[start], batchNodes[end]));
+            }
+            batchGraph.addEdges(batch);
+
+            for (int i = 0; i < size; i++) {
+                assertEquals(sequentialNodes[i].calculateDepth(), batchNodes[i].calculateDepth());
+                for (int j = 0; j < size; j++) {
+                    assertEquals(sequentialNodes[i].canReach(sequentialNodes[j]), batchNodes[i].canReach(batchNodes[j]));
+                }
+            }
+        }
+    }
+
+    private static Set<NodeExample> closureAncestors(NodeExample[] nodes, NodeExample node) {
+        Set<NodeExample> ancestors = new HashSet<>();
+        for (NodeExample candidate : nodes) {
+            if (candidate.canReach(node)) {
+                ancestors.add(candidate);
+            }
+        }
+        return ancestors;
+    }
+
+    private static Set<Integer> indices(NodeExample[] nodes, Set<NodeExample> members) {
+        Set<Integer> indices = new HashSet<>();
+        for (int i = 0; i < nodes.length; i++) {
+            if (members.contains(nodes[i])) {
+                indices.add(i);
+            }
+        }
+        return indices;
+    }
+}
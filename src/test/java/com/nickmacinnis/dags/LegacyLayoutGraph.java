@@ -0,0 +1,237 @@
+package com.nickmacinnis.dags;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.nickmacinnis.dags.example.EdgeExample;
+import com.nickmacinnis.dags.example.NodeExample;
+
+/**
+ * A graph which lays itself out with the original sequential implementations of
+ * {@link DirectedAcyclicGraph#calculateNodeCoordinates()} and {@link DirectedAcyclicGraph#untangle()}, kept as the
+ * reference the current ones must agree with.
+ */
+class LegacyLayoutGraph extends DirectedAcyclicGraph<NodeExample, EdgeExample> {
+
+    LegacyLayoutGraph(NodeExample rootNode) {
+        super(rootNode);
+    }
+
+    @Override
+    protected DirectedAcyclicGraph<NodeExample, EdgeExample> constructThis() {
+        return new LegacyLayoutGraph(rootNode.copy());
+    }
+
+    /** The original, sequential {@link #calculateNodeCoordinates()}. */
+    void legacyCalculateNodeCoordinates() {
+        for (NodeExample node : rootNode.collectChildren()) {
+            node.setY(node.calculateDepth());
+        }
+        untangle();
+        List<List<NodeExample>> rootGrid = rootNode.generateGrid();
+        Map<NodeExample, Integer> nodeOccurrences = new HashMap<>();
+        for (int i = 0; i < rootGrid.size(); i++) {
+            List<NodeExample> row = rootGrid.get(i);
+            for (int j = 0; j < row.size(); j++) {
+                NodeExample node = row.get(j);
+                int occurrences = 1;
+                if (nodeOccurrences.containsKey(node)) {
+                    occurrences = nodeOccurrences.get(node) + 1;
+                }
+                nodeOccurrences.put(node, occurrences);
+                double oldX = node.getX();
+                node.setX(oldX + (i - oldX) / occurrences);
+            }
+        }
+        Set<NodeExample> positionedNodes = new LinkedHashSet<>();
+        //remove collisions
+        for (NodeExample node : rootNode.collectChildren()) {
+            NodeExample overlappingNode = findOverlappingNode(node, positionedNodes);
+            while (overlappingNode != null) {
+                node.setX(overlappingNode.getX() + 1);
+                overlappingNode = findOverlappingNode(node, positionedNodes);
+            }
+            positionedNodes.add(node);
+        }
+    }
+
+    /**
+     * Identify a node in the set of already positioned nodes which has the same
+     * Y coordinate as the candidate node and which has X coordinate within 1 of the
+     * candidate node.
+     * @return The first node found which overlaps, or null if none found
+     */
+    private NodeExample findOverlappingNode(NodeExample candidateNode, Set<NodeExample> positionedNodes) {
+        for (NodeExample positionedNode : positionedNodes) {
+            if (candidateNode.getY() == positionedNode.getY() &&
+                    Math.abs(candidateNode.getX() - positionedNode.getX()) < 1) {
+                return positionedNode;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected void untangle() {
+        List<NodeExample> initialList = new ArrayList<>();
+        final Map<NodeExample, List<NodeExample>> nodeParents = new HashMap<>();
+        final Map<NodeExample, List<NodeExample>> nodeChildren = new HashMap<>();
+        initialList.add(rootNode);
+        initialList.addAll(rootNode.collectChildren());
+
+        for (NodeExample node : initialList) {
+            List<NodeExample> parents = new ArrayList<>();
+            for (EdgeExample edge : node.getIncomingEdges()) {
+                if (edge instanceof DirectEdge<?, ?>) {
+                    parents.add(edge.getStartNode());
+                }
+            }
+            nodeParents.put(node, parents);
+            List<NodeExample> children = new ArrayList<>();
+            for (EdgeExample edge : node.getOutgoingEdges()) {
+                if (edge instanceof DirectEdge<?, ?>) {
+                    children.add(edge.getEndNode());
+                }
+            }
+            nodeChildren.put(node, children);
+        }
+
+        final List<NodeExample> firstPassSortedNodes = new ArrayList<>();
+
+        final Comparator<NodeExample> firstPassComparator = (n1, n2) -> {
+            List<NodeExample> n1Parents = nodeParents.get(n1);
+            for (NodeExample parent : n1Parents) {
+                if (!firstPassSortedNodes.contains(parent)) {
+                    return 1;
+                }
+            }
+            List<NodeExample> n2Parents = nodeParents.get(n2);
+            for (NodeExample parent : n2Parents) {
+                if (!firstPassSortedNodes.contains(parent)) {
+                    return -1;
+                }
+            }
+            int n1UnmarkedParents = n1Parents.size();
+            int n2UnmarkedParents = n2Parents.size();
+            for (int i = firstPassSortedNodes.size(); i > 0; i--) {
+                NodeExample recentNode = firstPassSortedNodes.get(i - 1);
+                boolean n1HasMostRecentNode = n1Parents.contains(recentNode);
+                if (n1HasMostRecentNode) {
+                    n1UnmarkedParents--;
+                }
+                boolean n2HasMostRecentNode = n2Parents.contains(recentNode);
+                if (n2HasMostRecentNode) {
+                    n2UnmarkedParents--;
+                }
+                if (n1HasMostRecentNode && !n2HasMostRecentNode) {
+                    return 1;
+                } else if (n2HasMostRecentNode && !n1HasMostRecentNode) {
+                    return -1;
+                } else if (n1UnmarkedParents == 0 && n2UnmarkedParents == 0) {
+                    return 0;
+                } else if (n1UnmarkedParents == 0) {
+                    return 1;
+                } else if (n2UnmarkedParents == 0) {
+                    return -1;
+                }
+            }
+            return 0;
+        };
+
+        while (!initialList.isEmpty()) {
+            NodeExample nextNode = Collections.min(initialList, firstPassComparator);
+            firstPassSortedNodes.add(nextNode);
+            initialList.remove(nextNode);
+        }
+        Collections.reverse(firstPassSortedNodes);
+
+        final List<NodeExample> secondPassSortedNodes = new ArrayList<>();
+
+        Comparator<NodeExample> secondPassComparator = (n1, n2) -> {
+            List<NodeExample> n1Children = nodeChildren.get(n1);
+            for (NodeExample child : n1Children) {
+                if (!secondPassSortedNodes.contains(child)) {
+                    return 1;
+                }
+            }
+            List<NodeExample> n2Children = nodeChildren.get(n2);
+            for (NodeExample child : n2Children) {
+                if (!secondPassSortedNodes.contains(child)) {
+                    return -1;
+                }
+            }
+            int n1UnmarkedChildren = n1Children.size();
+            int n2UnmarkedChildren = n2Children.size();
+            for (int i = secondPassSortedNodes.size(); i > 0; i--) {
+                NodeExample recentNode = secondPassSortedNodes.get(i - 1);
+                boolean n1HasMostRecentNode = n1Children.contains(recentNode);
+                if (n1HasMostRecentNode) {
+                    n1UnmarkedChildren--;
+                }
+                boolean n2HasMostRecentNode = n2Children.contains(recentNode);
+                if (n2HasMostRecentNode) {
+                    n2UnmarkedChildren--;
+                }
+                if (n1HasMostRecentNode && !n2HasMostRecentNode) {
+                    return 1;
+                } else if (n2HasMostRecentNode && !n1HasMostRecentNode) {
+                    return -1;
+                } else if (n1UnmarkedChildren == 0 && n2UnmarkedChildren == 0) {
+                    return 0;
+                } else if (n1UnmarkedChildren == 0) {
+                    return 1;
+                } else if (n2UnmarkedChildren == 0) {
+                    return -1;
+                }
+            }
+            return 0;
+        };
+
+        while (!firstPassSortedNodes.isEmpty()) {
+            NodeExample nextNode = Collections.min(firstPassSortedNodes, secondPassComparator);
+            secondPassSortedNodes.add(nextNode);
+            firstPassSortedNodes.remove(nextNode);
+        }
+        Collections.reverse(secondPassSortedNodes);
+
+        //now each node sorts its edges in the order of the nodes in this list
+
+        Comparator<EdgeExample> outgoingEdgeComparator = (o1, o2) -> {
+            Integer o1Index = secondPassSortedNodes.indexOf(o1.getEndNode());
+            Integer o2Index = secondPassSortedNodes.indexOf(o2.getEndNode());
+            return o1Index.compareTo(o2Index);
+        };
+
+        for (NodeExample node : this) {
+            Collections.sort(node.getOutgoingEdges(), outgoingEdgeComparator);
+        }
+
+        //now finally regenerate the node ordering based on traversal so that pass-through edges
+        // won't distort everything.
+        final List<NodeExample> nodesOrderedByTraversal = rootNode.dft();
+
+        //and reorder all the edges according to this list
+        Comparator<EdgeExample> incomingEdgeComparator = (o1, o2) -> {
+            Integer o1Index = nodesOrderedByTraversal.indexOf(o1.getStartNode());
+            Integer o2Index = nodesOrderedByTraversal.indexOf(o2.getStartNode());
+            return o1Index.compareTo(o2Index);
+        };
+
+        outgoingEdgeComparator = (o1, o2) -> {
+            Integer o1Index = nodesOrderedByTraversal.indexOf(o1.getEndNode());
+            Integer o2Index = nodesOrderedByTraversal.indexOf(o2.getEndNode());
+            return o1Index.compareTo(o2Index);
+        };
+
+        for (NodeExample node : this) {
+            Collections.sort(node.getIncomingEdges(), incomingEdgeComparator);
+            Collections.sort(node.getOutgoingEdges(), outgoingEdgeComparator);
+        }
+    }
+}
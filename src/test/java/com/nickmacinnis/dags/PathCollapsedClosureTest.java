@@ -0,0 +1,190 @@
+package com.nickmacinnis.dags;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.nickmacinnis.dags.example.DirectedAcyclicGraphExampleImpl;
+import com.nickmacinnis.dags.example.EdgeExample;
+import com.nickmacinnis.dags.example.NodeExample;
+
+public class PathCollapsedClosureTest {
+    PathCollapsedClosure<NodeExample, EdgeExample> closure;
+    DirectedAcyclicGraphExampleImpl r;
+
+    @BeforeEach
+    public void setUp() {
+        closure = new PathCollapsedClosure<>();
+        r = new DirectedAcyclicGraphExampleImpl(new NodeExample(closure));
+    }
+
+    @Test
+    public void testDiamondCollapsesToOneSummary() {
+        NodeExample n = new NodeExample(closure);
+        NodeExample o = new NodeExample(closure);
+        NodeExample p = new NodeExample(closure);
+
+        r.addChild(n);
+        r.addChild(o);
+        n.addChild(p);
+        o.addChild(p);
+        r.addChild(p);
+
+        PathSummary<NodeExample> summary = closure.getPathSummary(r.getRootNode(), p);
+        assertEquals(0, summary.getMinHops());
+        assertEquals(1, summary.getMaxHops());
+        assertEquals(3, summary.getPathCount());
+        assertEquals(3, closure.getPathSummaries(r.getRootNode()).size());
+
+        assertEquals(1, p.calculateDepth());
+        assertEquals(4, r.getNodeCount());
+        assertEquals(5, r.getEdgeCount());
+    }
+
+    @Test
+    public void testLayeredDiamonds() {
+        NodeExample top = r.getRootNode();
+        for (int layer = 0; layer < 40; layer++) {
+            NodeExample left = new NodeExample(closure);
+            NodeExample right = new NodeExample(closure);
+            NodeExample bottom = new NodeExample(closure);
+            top.addChild(left);
+            top.addChild(right);
+            left.addChild(bottom);
+            right.addChild(bottom);
+            top = bottom;
+        }
+
+        PathSummary<NodeExample> summary = closure.getPathSummary(r.getRootNode(), top);
+        assertEquals(1L << 40, summary.getPathCount());
+        assertEquals(79, summary.getMaxHops());
+        assertEquals(79, summary.getMinHops());
+        assertEquals(79, top.calculateDepth());
+        assertEquals(120, r.collectChildren().size());
+    }
+
+    @Test
+    public void testAddChildCycle() {
+        NodeExample n = new NodeExample(closure);
+        NodeExample o = new NodeExample(closure);
+
+        r.addChild(n);
+        n.addChild(o);
+
+        assertThrows(GraphLogicException.class, () -> o.addChild(r.getRootNode()));
+    }
+
+    @Test
+    public void testRemoveChildCascades() {
+        NodeExample n = new NodeExample(closure);
+        NodeExample o = new NodeExample(closure);
+        NodeExample p = new NodeExample(closure);
+
+        r.addChild(n);
+        r.addChild(o);
+        n.addChild(p);
+        o.addChild(p);
+
+        assertTrue(n.removeChild(p));
+
+        PathSummary<NodeExample> summary = closure.getPathSummary(r.getRootNode(), p);
+        assertEquals(1, summary.getPathCount());
+        assertNull(closure.getPathSummary(n, p));
+
+        assertTrue(r.removeChild(o));
+
+        assertNull(closure.getPathSummary(r.getRootNode(), p));
+        assertFalse(r.getRootNode().canReach(p));
+        assertTrue(o.canReach(p));
+        assertEquals(0, p.calculateDepth());
+    }
+
+    @Test
+    public void testRandomEditsMatchImplicitEdges() {
+        Random random = new Random(11);
+        int size = 16;
+        NodeExample[] implicitNodes = new NodeExample[size];
+        NodeExample[] collapsedNodes = new NodeExample[size];
+        for (int i = 0; i < size; i++) {
+            implicitNodes[i] = new NodeExample();
+            collapsedNodes[i] = new NodeExample(closure);
+        }
+        for (int step = 0; step < 250; step++) {
+            // edges only run from lower to higher indices, so every edit keeps the graph acyclic
+            int start = random.nextInt(size - 1);
+            int end = start + 1 + random.nextInt(Math.min(4, size - start - 1));
+            if (random.nextInt(3) == 0) {
+                implicitNodes[start].removeChild(implicitNodes[end]);
+                collapsedNodes[start].removeChild(collapsedNodes[end]);
+            } else {
+                implicitNodes[start].addChild(implicitNodes[end]);
+                collapsedNodes[start].addChild(collapsedNodes[end]);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            assertEquals(implicitNodes[i].calculateDepth(), collapsedNodes[i].calculateDepth());
+            for (int j = 0; j < size; j++) {
+                // one implicit or direct edge exists per path
+                int paths = 0;
+                int minHops = Integer.MAX_VALUE;
+                int maxHops = Integer.MIN_VALUE;
+                for (EdgeExample edge : implicitNodes[i].getOutgoingEdges()) {
+                    if (edge.getEndNode() == implicitNodes[j]) {
+                        paths++;
+                        minHops = Math.min(minHops, edge.getHops());
+                        maxHops = Math.max(maxHops, edge.getHops());
+                    }
+                }
+                PathSummary<NodeExample> summary = closure.getPathSummary(collapsedNodes[i], collapsedNodes[j]);
+                if (paths == 0) {
+                    assertNull(summary);
+                } else {
+                    assertEquals(paths, summary.getPathCount());
+                    assertEquals(minHops, summary.getMinHops());
+                    assertEquals(maxHops, summary.getMaxHops());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAddEdgesMatchesAddChild() {
+        Random random = new Random(3);
+        int size = 30;
+        PathCollapsedClosure<NodeExample, EdgeExample> batchClosure = new PathCollapsedClosure<>();
+        NodeExample[] sequentialNodes = new NodeExample[size];
+        NodeExample[] batchNodes = new NodeExample[size];
+        for (int i = 0; i < size; i++) {
+            sequentialNodes[i] = new NodeExample(closure);
+            batchNodes[i] = new NodeExample(batchClosure);
+        }
+        DirectedAcyclicGraphExampleImpl batchGraph = new DirectedAcyclicGraphExampleImpl(batchNodes[0]);
+        for (int round = 0; round < 3; round++) {
+            List<Map.Entry<NodeExample, NodeExample>> batch = new ArrayList<>();
+            for (int step = 0; step < 25; step++) {
+                int start = random.nextInt(size - 1);
+                int end = start + 1 + random.nextInt(size - start - 1);
+                sequentialNodes[start].addChild(sequentialNodes[end]);
+                batch.add(Map.entry(batchNodes[start], batchNodes[end]));
+            }
+            batchGraph.addEdges(batch);
+
+            for (int i = 0; i < size; i++) {
+                assertEquals(sequentialNodes[i].calculateDepth(), batchNodes[i].calculateDepth());
+                for (int j = 0; j < size; j++) {
+                    assertEquals(sequentialNodes[i].canReach(sequentialNodes[j]), batchNodes[i].canReach(batchNodes[j]));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.nickmacinnis.dags;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+
+import org.junit.jupiter.api.Test;
+
+public class RegistrySpliteratorTest {
+
+    @Test
+    public void testTraversal() {
+        Set<Integer> registry = new LinkedHashSet<>(List.of(3, 1, 2));
+        RegistrySpliterator<Integer> spliterator = new RegistrySpliterator<>(0, registry);
+        assertEquals(4, spliterator.estimateSize());
+        List<Integer> seen = new ArrayList<>();
+        assertTrue(spliterator.tryAdvance(seen::add));
+        assertEquals(3, spliterator.getExactSizeIfKnown());
+        spliterator.forEachRemaining(seen::add);
+        assertEquals(List.of(0, 3, 1, 2), seen);
+        assertEquals(0, spliterator.estimateSize());
+        assertEquals(false, spliterator.tryAdvance(seen::add));
+
+        // without a head, only the registry
+        seen.clear();
+        new RegistrySpliterator<Integer>(null, registry).forEachRemaining(seen::add);
+        assertEquals(List.of(3, 1, 2), seen);
+    }
+
+    @Test
+    public void testSplit() {
+        Set<Integer> registry = new LinkedHashSet<>();
+        for (int i = 1; i < 10000; i++) {
+            registry.add(i);
+        }
+        RegistrySpliterator<Integer> spliterator = new RegistrySpliterator<>(0, registry);
+        List<Integer> seen = new ArrayList<>();
+        long remaining = spliterator.estimateSize();
+        Spliterator<Integer> prefix = spliterator.trySplit();
+        while (prefix != null) {
+            // each batch is sized, no more than half of what was left, and in order ahead of the rest
+            assertTrue(prefix.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.ORDERED));
+            assertTrue(prefix.estimateSize() <= remaining / 2);
+            assertEquals(remaining, prefix.estimateSize() + spliterator.estimateSize());
+            Spliterator<Integer> half = prefix.trySplit();
+            if (half != null) {
+                half.forEachRemaining(seen::add);
+            }
+            prefix.forEachRemaining(seen::add);
+            remaining = spliterator.estimateSize();
+            prefix = spliterator.trySplit();
+        }
+        spliterator.forEachRemaining(seen::add);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, seen);
+        assertNull(spliterator.trySplit());
+    }
+
+    @Test
+    public void testChangedRegistry() {
+        Set<Integer> registry = new LinkedHashSet<>(List.of(1, 2, 3));
+        RegistrySpliterator<Integer> spliterator = new RegistrySpliterator<>(null, registry);
+        spliterator.tryAdvance(i -> registry.add(4));
+        assertThrows(ConcurrentModificationException.class, () -> spliterator.forEachRemaining(i -> { }));
+    }
+}
@@ -1,20 +1,58 @@
 package com.nickmacinnis.dags.example;
 
+import com.nickmacinnis.dags.BitsetClosure;
+import com.nickmacinnis.dags.Closure;
 import com.nickmacinnis.dags.DirectedAcyclicGraph;
+import com.nickmacinnis.dags.LazyClosure;
+import com.nickmacinnis.dags.PathCollapsedClosure;
 
 public class DirectedAcyclicGraphExampleImpl extends DirectedAcyclicGraph<NodeExample, EdgeExample> {
+    /** The closure the nodes of the copy under way join, so that copies never pile up in this graph's. */
+    private Closure<NodeExample, EdgeExample> copyClosure;
 
     public DirectedAcyclicGraphExampleImpl() {
         super(new NodeExample());
     }
 
+    public DirectedAcyclicGraphExampleImpl(NodeExample rootNode) {
+        super(rootNode);
+    }
+
     public NodeExample getRootNode() {
         return rootNode;
     }
 
+    /** Copies into a new closure of the same kind as the root's, dropped along with the copy. */
+    @Override
+    public DirectedAcyclicGraph<NodeExample, EdgeExample> copy() {
+        copyClosure = newClosureLike(rootNode.getClosure());
+        try {
+            return super.copy();
+        } finally {
+            copyClosure = null;
+        }
+    }
+
+    Closure<NodeExample, EdgeExample> getCopyClosure() {
+        return copyClosure;
+    }
+
+    private static Closure<NodeExample, EdgeExample> newClosureLike(Closure<NodeExample, EdgeExample> closure) {
+        if (closure instanceof BitsetClosure) {
+            return new BitsetClosure<>();
+        }
+        if (closure instanceof PathCollapsedClosure) {
+            return new PathCollapsedClosure<>();
+        }
+        if (closure instanceof LazyClosure) {
+            return new LazyClosure<>();
+        }
+        return null;
+    }
+
     @Override
     protected DirectedAcyclicGraph<NodeExample, EdgeExample> constructThis() {
-        return new DirectedAcyclicGraphExampleImpl();
+        return new DirectedAcyclicGraphExampleImpl(rootNode.copy());
     }
 
 }
@@ -1,9 +1,18 @@
 package com.nickmacinnis.dags.example;
 
 import com.nickmacinnis.dags.AbstractNode;
+import com.nickmacinnis.dags.Closure;
 
 public class NodeExample extends AbstractNode<NodeExample, EdgeExample> {
 
+    public NodeExample() {
+        super();
+    }
+
+    public NodeExample(Closure<NodeExample, EdgeExample> closure) {
+        super(closure);
+    }
+
     @Override
     protected EdgeExample buildDirectEdge(NodeExample startNode, NodeExample endNode) {
         return new DirectEdgeExampleImpl(startNode, endNode);
@@ -15,8 +24,12 @@ public class NodeExample extends AbstractNode<NodeExample, EdgeExample> {
         return new ImplicitEdgeExampleImpl(startNode, endNode, entryEdge, directEdge, exitEdge, hops);
     }
 
+    /** @return a node in the closure of the copy its graph is making, or in this node's outside a copy */
     @Override
     public NodeExample copy() {
-        return new NodeExample();
+        if (getGraph() instanceof DirectedAcyclicGraphExampleImpl graph && graph.getCopyClosure() != null) {
+            return new NodeExample(graph.getCopyClosure());
+        }
+        return new NodeExample(closure);
     }
 }